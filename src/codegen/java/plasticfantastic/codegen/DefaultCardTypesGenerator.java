@@ -0,0 +1,207 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic.codegen;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import plasticfantastic.internal.NumberPatternSyntax;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Generates the Java source for the default card types, so that they can be created without reading or parsing
+ * "plasticfantastic_card_types.json" at runtime.
+ * <p>
+ * The JSON is checked in the same way as {@code ValidatedCardFactory.fromFile()}, so invalid definitions fail the
+ * build rather than being found at runtime. The generated class creates the card types directly, with their number
+ * patterns already parsed.
+ * <p>
+ * Usage: {@code DefaultCardTypesGenerator <input JSON file> <output source directory>}
+ */
+public final class DefaultCardTypesGenerator {
+
+    private static final String PACKAGE = "plasticfantastic";
+    private static final String CLASS_NAME = "DefaultCardTypes";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Mirrors {@code plasticfantastic.CardTypeDefinition}, which can't be used here since this runs before the main
+     * classes are compiled.
+     */
+    private static final class Definition {
+        String name;
+        String[] numberPatterns;
+        int[] validLengths;
+    }
+
+    private DefaultCardTypesGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: DefaultCardTypesGenerator <input JSON file> <output directory>");
+        }
+        File input = new File(args[0]);
+        File outputDir = new File(new File(args[1]), PACKAGE.replace('.', File.separatorChar));
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Couldn't create directory: " + outputDir);
+        }
+
+        Definition[] definitions;
+        Reader reader = new InputStreamReader(new FileInputStream(input), UTF_8);
+        try {
+            definitions = new Gson().fromJson(reader, Definition[].class);
+        } finally {
+            reader.close();
+        }
+        if (definitions == null || definitions.length == 0) {
+            throw new JsonParseException("No card types in " + input);
+        }
+
+        String source = generate(input.getName(), definitions);
+        Writer writer = new OutputStreamWriter(new FileOutputStream(new File(outputDir, CLASS_NAME + ".java")), UTF_8);
+        try {
+            writer.write(source);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * @param inputName   name of the JSON file, for comments
+     * @param definitions the parsed JSON
+     * @return the Java source
+     * @throws JsonParseException if any of the definitions are invalid
+     */
+    static String generate(String inputName, Definition[] definitions) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("// Generated by ").append(DefaultCardTypesGenerator.class.getName()).append(" from ")
+                .append(inputName).append(". Do not edit.\n");
+        sb.append("package ").append(PACKAGE).append(";\n\n");
+        sb.append("import plasticfantastic.internal.NumberPattern;\n");
+        sb.append("import plasticfantastic.internal.RangePattern;\n");
+        sb.append("import plasticfantastic.internal.SingleNumberPattern;\n\n");
+        sb.append("import java.util.Arrays;\n");
+        sb.append("import java.util.Collections;\n");
+        sb.append("import java.util.List;\n\n");
+        sb.append("/**\n");
+        sb.append(" * The default card types, from \"").append(inputName).append("\".\n");
+        sb.append(" */\n");
+        sb.append("final class ").append(CLASS_NAME).append(" {\n\n");
+        sb.append("    /**\n");
+        sb.append("     * The card types, in priority order.\n");
+        sb.append("     */\n");
+        sb.append("    static final List<CardType> CARD_TYPES = Collections.unmodifiableList(Arrays.asList(\n");
+        for (int i = 0; i < definitions.length; i++) {
+            try {
+                appendCardType(sb, definitions[i]);
+            } catch (IllegalArgumentException e) {
+                throw new JsonParseException("Invalid data at position " + i, e);
+            }
+            sb.append(i + 1 < definitions.length ? ",\n" : "));\n\n");
+        }
+        sb.append("    private ").append(CLASS_NAME).append("() {\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static void appendCardType(StringBuilder sb, Definition definition) {
+        if (definition == null) {
+            throw new IllegalArgumentException("Card type is missing");
+        }
+        if (definition.name == null) {
+            throw new IllegalArgumentException("'name' is missing");
+        }
+        if (definition.numberPatterns == null || definition.numberPatterns.length == 0) {
+            throw new IllegalArgumentException("'numberPatterns' is missing or empty");
+        }
+        if (definition.validLengths == null || definition.validLengths.length == 0) {
+            throw new IllegalArgumentException("'validLengths' is missing or empty");
+        }
+
+        sb.append("            new CardType(");
+        appendStringLiteral(sb, definition.name);
+        sb.append(",\n                    new NumberPattern[]{");
+        for (int i = 0; i < definition.numberPatterns.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            appendNumberPattern(sb, definition.numberPatterns[i]);
+        }
+        sb.append("},\n                    new int[]{");
+        for (int i = 0; i < definition.validLengths.length; i++) {
+            if (definition.validLengths[i] <= 0) {
+                throw new IllegalArgumentException("Lengths must be greater than 0.");
+            }
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(definition.validLengths[i]);
+        }
+        sb.append("})");
+    }
+
+    /**
+     * Same rules as {@code CardType.Builder.withNumberPatterns()}, which also uses {@link NumberPatternSyntax}.
+     */
+    private static void appendNumberPattern(StringBuilder sb, String pattern) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("Number pattern is missing");
+        }
+        if (NumberPatternSyntax.isSingleNumber(pattern)) {
+            sb.append("new SingleNumberPattern(\"").append(pattern).append("\")");
+        } else if (NumberPatternSyntax.isRange(pattern)) {
+            String min = NumberPatternSyntax.getRangeMin(pattern);
+            String max = NumberPatternSyntax.getRangeMax(pattern);
+            NumberPatternSyntax.checkRange(min, max);
+            sb.append("new RangePattern(").append(min.length()).append(", ").append(Long.parseLong(min))
+                    .append("L, ").append(Long.parseLong(max)).append("L)");
+        } else {
+            throw new IllegalArgumentException("Unrecognised pattern: \"" + pattern + "\"");
+        }
+    }
+
+    /**
+     * Append a string as a Java literal, using only ASCII characters.
+     */
+    private static void appendStringLiteral(StringBuilder sb, String str) {
+        sb.append('"');
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c >= 0x20 && c < 0x7F) {
+                sb.append(c);
+            } else if (c < 0x20) {
+                // Unicode escapes of line breaks would end the literal, since they're replaced before parsing.
+                sb.append(String.format("\\%03o", (int) c));
+            } else {
+                sb.append(String.format("\\u%04x", (int) c));
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Recorded by {@link JfrValidationMetrics} when a batch takes longer than its threshold.
+ */
+@Name("plasticfantastic.Batch")
+@Label("Card Batch")
+@Category("Plastic Fantastic")
+@Description("A batch of card numbers created by ValidatedCardFactory.createAll()")
+final class BatchEvent extends Event {
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+    @Label("Size")
+    @Description("Number of card numbers in the batch")
+    int size;
+}
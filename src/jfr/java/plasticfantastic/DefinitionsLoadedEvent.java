@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded when card type definitions are loaded into a new factory. The event's duration is the time taken to load.
+ */
+@Name("plasticfantastic.DefinitionsLoaded")
+@Label("Card Type Definitions Loaded")
+@Category("Plastic Fantastic")
+@Description("Card type definitions loaded into a new ValidatedCardFactory")
+final class DefinitionsLoadedEvent extends Event {
+
+    @Label("Source")
+    @Description("Where the definitions came from, e.g. a file path")
+    String source;
+
+    @Label("Card Types")
+    int cardTypeCount;
+
+    @Label("Number Patterns")
+    @Description("Total number of number patterns over all card types")
+    int patternCount;
+}
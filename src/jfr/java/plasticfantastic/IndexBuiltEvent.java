@@ -0,0 +1,39 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded when an index of the card types is built. The event's duration is the time taken to build it.
+ */
+@Name("plasticfantastic.IndexBuilt")
+@Label("Card Type Index Built")
+@Category("Plastic Fantastic")
+@Description("An index used to speed up matching was built, e.g. by ValidatedCardFactory.withBinLookupTable()")
+final class IndexBuiltEvent extends Event {
+
+    @Label("Index")
+    String index;
+
+    @Label("Classes")
+    @Description("Number of distinct sets of matches the index holds")
+    int classCount;
+}
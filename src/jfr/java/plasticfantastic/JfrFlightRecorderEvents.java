@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+/**
+ * Records {@link DefinitionsLoadedEvent}s and {@link IndexBuiltEvent}s. Loaded by {@link FlightRecorderEvents} if the
+ * JVM has JFR.
+ */
+final class JfrFlightRecorderEvents extends FlightRecorderEvents {
+
+    @Override
+    Object beginLoad() {
+        DefinitionsLoadedEvent event = new DefinitionsLoadedEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void endLoad(Object token, String source, ValidatedCardFactory factory) {
+        if (token == null) {
+            return;
+        }
+        DefinitionsLoadedEvent event = (DefinitionsLoadedEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            int patternCount = 0;
+            for (int i = 0; i < factory.getCardTypeCount(); i++) {
+                patternCount += factory.getCardType(i).getNumberPatterns().length;
+            }
+            event.source = source;
+            event.cardTypeCount = factory.getCardTypeCount();
+            event.patternCount = patternCount;
+            event.commit();
+        }
+    }
+
+    @Override
+    Object beginIndexBuild() {
+        IndexBuiltEvent event = new IndexBuiltEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void endIndexBuild(Object token, String index, int classCount) {
+        if (token == null) {
+            return;
+        }
+        IndexBuiltEvent event = (IndexBuiltEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.index = index;
+            event.classCount = classCount;
+            event.commit();
+        }
+    }
+}
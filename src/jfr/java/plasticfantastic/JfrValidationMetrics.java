@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ValidationMetrics} which records Java Flight Recorder events for slow classifications and batches, so they
+ * can be seen in recordings alongside GC, allocation and other events.
+ * <p>
+ * Each classification or batch which takes at least its threshold is recorded as a
+ * {@link SlowClassificationEvent} or {@link BatchEvent}, if the event is enabled in the recording. Those which are
+ * quicker only cost a comparison. Reports can also be passed on to another {@link ValidationMetrics}, e.g. a
+ * {@link CountingValidationMetrics}, since a factory only has one. A {@link ValidatedCardFactoryMonitor} still finds
+ * the counts there.
+ * <p>
+ * Requires a JVM with JFR (Java 8 update 262 or later).
+ */
+public class JfrValidationMetrics implements DelegatingValidationMetrics {
+
+    /**
+     * Default threshold for recording a classification: 1 millisecond.
+     */
+    public static final long DEFAULT_CLASSIFY_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Default threshold for recording a batch: 0, so every batch is recorded.
+     */
+    public static final long DEFAULT_BATCH_THRESHOLD_NANOS = 0;
+
+    private final long classifyThresholdNanos;
+    private final long batchThresholdNanos;
+    private final ValidationMetrics delegate;
+
+    /**
+     * Create an instance with the default thresholds.
+     */
+    public JfrValidationMetrics() {
+        this(DEFAULT_CLASSIFY_THRESHOLD_NANOS, DEFAULT_BATCH_THRESHOLD_NANOS, TimeUnit.NANOSECONDS, null);
+    }
+
+    /**
+     * @param classifyThreshold minimum time for a classification to be recorded
+     * @param batchThreshold    minimum time for a batch to be recorded
+     * @param unit              unit of the thresholds
+     * @param delegate          metrics to pass every report on to, or null for none
+     * @throws NullPointerException     if unit is null
+     * @throws IllegalArgumentException if either threshold is negative
+     */
+    public JfrValidationMetrics(long classifyThreshold, long batchThreshold, TimeUnit unit,
+                                ValidationMetrics delegate) {
+        if (unit == null) {
+            throw new NullPointerException("unit cannot be null");
+        }
+        if (classifyThreshold < 0 || batchThreshold < 0) {
+            throw new IllegalArgumentException("Thresholds cannot be negative");
+        }
+        classifyThresholdNanos = unit.toNanos(classifyThreshold);
+        batchThresholdNanos = unit.toNanos(batchThreshold);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void onClassify(int classification, long elapsedNanos) {
+        if (delegate != null) {
+            delegate.onClassify(classification, elapsedNanos);
+        }
+        if (elapsedNanos >= classifyThresholdNanos) {
+            SlowClassificationEvent event = new SlowClassificationEvent();
+            if (event.isEnabled()) {
+                event.elapsed = elapsedNanos;
+                event.typeOrdinal = Classification.getTypeOrdinal(classification);
+                event.numberValid = Classification.isNumberValid(classification);
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public void onParseFailure(long elapsedNanos) {
+        if (delegate != null) {
+            delegate.onParseFailure(elapsedNanos);
+        }
+        if (elapsedNanos >= classifyThresholdNanos) {
+            SlowClassificationEvent event = new SlowClassificationEvent();
+            if (event.isEnabled()) {
+                event.elapsed = elapsedNanos;
+                event.typeOrdinal = -1;
+                event.parseFailure = true;
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public void onBatch(int size, long elapsedNanos) {
+        if (delegate != null) {
+            delegate.onBatch(size, elapsedNanos);
+        }
+        if (elapsedNanos >= batchThresholdNanos) {
+            BatchEvent event = new BatchEvent();
+            if (event.isEnabled()) {
+                event.elapsed = elapsedNanos;
+                event.size = size;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * @return the metrics every report is passed on to, or null if there are none
+     */
+    @Override
+    public ValidationMetrics getDelegate() {
+        return delegate;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Recorded by {@link JfrValidationMetrics} when classifying a card number takes longer than its threshold.
+ */
+@Name("plasticfantastic.SlowClassification")
+@Label("Slow Card Classification")
+@Category("Plastic Fantastic")
+@Description("A card number took longer than the threshold to classify")
+final class SlowClassificationEvent extends Event {
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+    @Label("Card Type Ordinal")
+    @Description("Ordinal of the matching card type in the factory, or -1 if none matched")
+    int typeOrdinal;
+
+    @Label("Number Valid")
+    boolean numberValid;
+
+    @Label("Parse Failure")
+    @Description("Whether the card number couldn't be parsed")
+    boolean parseFailure;
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the Java Flight Recorder events.
+ */
+public class FlightRecorderEvents_Recording {
+
+    private static final String JSON = "[{\"name\":\"Type 1\",\"numberPatterns\":[\"1\",\"30-39\"],"
+            + "\"validLengths\":[10]},{\"name\":\"Type 2\",\"numberPatterns\":[\"2\"],\"validLengths\":[10]}]";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Recording recording;
+
+    @Before
+    public void setUp() {
+        recording = new Recording();
+        recording.enable(DefinitionsLoadedEvent.class);
+        recording.enable(IndexBuiltEvent.class);
+        recording.enable(SlowClassificationEvent.class);
+        recording.enable(BatchEvent.class);
+        recording.start();
+    }
+
+    @After
+    public void tearDown() {
+        recording.close();
+    }
+
+    private List<RecordedEvent> stop(String eventName) throws IOException {
+        recording.stop();
+        Path path = temporaryFolder.newFile().toPath();
+        recording.dump(path);
+        List<RecordedEvent> events = new ArrayList<RecordedEvent>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(path)) {
+            if (event.getEventType().getName().equals(eventName)) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    @Test
+    public void hooks_use_flight_recorder() {
+        assertTrue(FlightRecorderEvents.get() instanceof JfrFlightRecorderEvents);
+    }
+
+    @Test
+    public void loads_are_recorded() throws IOException {
+        File jsonFile = temporaryFolder.newFile();
+        Writer writer = new OutputStreamWriter(new FileOutputStream(jsonFile), "UTF-8");
+        try {
+            writer.write(JSON);
+        } finally {
+            writer.close();
+        }
+        ValidatedCardFactory factory = ValidatedCardFactory.fromJsonString(JSON);
+        ValidatedCardFactory.fromFile(jsonFile);
+        ByteArrayOutputStream compiled = new ByteArrayOutputStream();
+        CompiledCardTypes.write(factory, compiled);
+        CompiledCardTypes.read(new ByteArrayInputStream(compiled.toByteArray()));
+
+        List<RecordedEvent> events = stop("plasticfantastic.DefinitionsLoaded");
+
+        assertThat(events.size(), is(equalTo(3)));
+        List<String> sources = new ArrayList<String>();
+        for (RecordedEvent event : events) {
+            sources.add(event.getString("source"));
+            assertThat(event.getInt("cardTypeCount"), is(equalTo(2)));
+            assertThat(event.getInt("patternCount"), is(equalTo(3)));
+        }
+        assertThat(sources, is(equalTo(Arrays.asList("JSON string", jsonFile.getPath(), "compiled InputStream"))));
+    }
+
+    @Test
+    public void index_builds_are_recorded() throws IOException {
+        ValidatedCardFactory factory = ValidatedCardFactory.fromJsonString(JSON);
+        factory.withBinLookupTable();
+        new IncrementalCardMatcher(factory);
+
+        List<RecordedEvent> events = stop("plasticfantastic.IndexBuilt");
+
+        assertThat(events.size(), is(equalTo(2)));
+        assertThat(events.get(0).getString("index"), is(equalTo("BinLookupTable")));
+        assertThat(events.get(1).getString("index"), is(equalTo("IncrementalMatchTable")));
+        assertTrue(events.get(0).getInt("classCount") > 0);
+    }
+
+    @Test
+    public void classifications_over_the_threshold_are_recorded() throws IOException {
+        CountingValidationMetrics counting = new CountingValidationMetrics();
+        JfrValidationMetrics metrics = new JfrValidationMetrics(1, 0, TimeUnit.MILLISECONDS, counting);
+        metrics.onClassify(Classification.encode(2, 1, true), TimeUnit.MICROSECONDS.toNanos(10));
+        metrics.onClassify(Classification.encode(3, 1, true), TimeUnit.MILLISECONDS.toNanos(5));
+        metrics.onParseFailure(TimeUnit.MILLISECONDS.toNanos(2));
+
+        List<RecordedEvent> events = stop("plasticfantastic.SlowClassification");
+
+        assertThat(events.size(), is(equalTo(2)));
+        assertThat(events.get(0).getLong("elapsed"), is(equalTo(TimeUnit.MILLISECONDS.toNanos(5))));
+        assertThat(events.get(0).getInt("typeOrdinal"), is(equalTo(1)));
+        assertThat(events.get(0).getBoolean("numberValid"), is(equalTo(true)));
+        assertThat(events.get(1).getInt("typeOrdinal"), is(equalTo(-1)));
+        assertThat(events.get(1).getBoolean("parseFailure"), is(equalTo(true)));
+        assertThat(counting.getMatchCount(1), is(equalTo(2L)));
+        assertThat(counting.getParseFailureCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void batches_are_recorded() throws IOException, InterruptedException {
+        ValidatedCardFactory factory = ValidatedCardFactory.fromJsonString(JSON)
+                .withMetrics(new JfrValidationMetrics());
+        factory.createAll(Arrays.asList("1000000008", "x", "2000000006"));
+
+        List<RecordedEvent> events = stop("plasticfantastic.Batch");
+
+        assertThat(events.size(), is(equalTo(1)));
+        assertThat(events.get(0).getInt("size"), is(equalTo(3)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negative_threshold_throws_IllegalArgumentException() {
+        new JfrValidationMetrics(-1, 0, TimeUnit.MILLISECONDS, null);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link ValidatedCardFactoryMonitor} with a {@link JfrValidationMetrics} in front of the counts.
+ */
+public class ValidatedCardFactoryMonitor_JfrValidationMetrics {
+
+    private static final String JSON = "[{\"name\":\"Type 1\",\"numberPatterns\":[\"1\",\"30-39\"],"
+            + "\"validLengths\":[10]},{\"name\":\"Type 2\",\"numberPatterns\":[\"2\"],\"validLengths\":[10]}]";
+
+    @Test
+    public void counts_behind_jfr_metrics_are_exposed() {
+        JfrValidationMetrics metrics = new JfrValidationMetrics(1, 0, TimeUnit.MILLISECONDS,
+                new CountingValidationMetrics());
+        ValidatedCardFactory factory = ValidatedCardFactory.fromJsonString(JSON).withMetrics(metrics);
+        ValidatedCardFactoryMonitor monitor = new ValidatedCardFactoryMonitor(factory);
+        factory.create("1000000008");
+        factory.create("3500000000");
+        factory.create("2000000006");
+
+        assertThat(monitor.isMetricsEnabled(), is(equalTo(true)));
+        assertThat(monitor.getClassificationCount(), is(equalTo(3L)));
+        Map<String, Long> matchCounts = monitor.getMatchCountsByType();
+        assertThat(matchCounts.get("Type 1"), is(equalTo(2L)));
+        assertThat(matchCounts.get("Type 2"), is(equalTo(1L)));
+    }
+
+    @Test
+    public void jfr_metrics_without_counts_are_not_enabled() {
+        ValidatedCardFactory factory = ValidatedCardFactory.fromJsonString(JSON)
+                .withMetrics(new JfrValidationMetrics());
+        ValidatedCardFactoryMonitor monitor = new ValidatedCardFactoryMonitor(factory);
+
+        assertThat(monitor.isMetricsEnabled(), is(equalTo(false)));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import plasticfantastic.CardNumber;
+import plasticfantastic.CompactCardNumber;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link CardNumber} and {@link CompactCardNumber} construction and the Luhn check.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CardNumberBenchmark {
+
+    private String[] clean;
+    private String[] withSpaces;
+    private CardNumber[] cardNumbers;
+    private CompactCardNumber[] compactCardNumbers;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        clean = Corpus.mixedBins();
+        withSpaces = Corpus.withSpaces(clean);
+        cardNumbers = new CardNumber[clean.length];
+        compactCardNumbers = new CompactCardNumber[clean.length];
+        for (int i = 0; i < clean.length; i++) {
+            cardNumbers[i] = new CardNumber(clean[i]);
+            compactCardNumbers[i] = new CompactCardNumber(clean[i]);
+        }
+    }
+
+    private int next() {
+        return index++ & Corpus.MASK;
+    }
+
+    @Benchmark
+    public CardNumber construct_clean() {
+        return new CardNumber(clean[next()]);
+    }
+
+    @Benchmark
+    public CardNumber construct_with_whitespace() {
+        return new CardNumber(withSpaces[next()]);
+    }
+
+    @Benchmark
+    public boolean passesLuhnCheck() {
+        return cardNumbers[next()].passesLuhnCheck();
+    }
+
+    @Benchmark
+    public CompactCardNumber construct_compact() {
+        return new CompactCardNumber(clean[next()]);
+    }
+
+    @Benchmark
+    public boolean compact_passesLuhnCheck() {
+        return compactCardNumbers[next()].passesLuhnCheck();
+    }
+}
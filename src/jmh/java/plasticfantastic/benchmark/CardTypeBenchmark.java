@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import plasticfantastic.CardNumber;
+import plasticfantastic.CardType;
+import plasticfantastic.ValidatedCardFactory;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link CardType#getMatchStrength(CardNumber)}, using the card types with the most patterns and the
+ * most valid lengths from the default set.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CardTypeBenchmark {
+
+    private CardType discover;
+    private CardType maestro;
+    private CardNumber[] cardNumbers;
+    private int index;
+
+    @Setup
+    public void setUp() throws IOException {
+        for (CardType cardType : ValidatedCardFactory.withDefaultCardTypes().getCardTypesList()) {
+            if (cardType.getName().equals("Discover")) {
+                discover = cardType;
+            } else if (cardType.getName().equals("Maestro")) {
+                maestro = cardType;
+            }
+        }
+        String[] numbers = Corpus.mixedBins();
+        cardNumbers = new CardNumber[numbers.length];
+        for (int i = 0; i < numbers.length; i++) {
+            cardNumbers[i] = new CardNumber(numbers[i]);
+        }
+    }
+
+    private CardNumber next() {
+        return cardNumbers[index++ & Corpus.MASK];
+    }
+
+    @Benchmark
+    public int getMatchStrength_ranges() {
+        return discover.getMatchStrength(next());
+    }
+
+    @Benchmark
+    public int getMatchStrength_many_patterns() {
+        return maestro.getMatchStrength(next());
+    }
+}
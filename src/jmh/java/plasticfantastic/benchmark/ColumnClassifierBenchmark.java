@@ -0,0 +1,60 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import plasticfantastic.ColumnClassifier;
+import plasticfantastic.ValidatedCardFactory;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link ColumnClassifier}, classifying the whole corpus as one column per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ColumnClassifierBenchmark {
+
+    private ColumnClassifier classifier;
+    private byte[] data;
+    private int[] offsets;
+
+    @Setup
+    public void setUp() throws IOException {
+        classifier = new ColumnClassifier(ValidatedCardFactory.withDefaultCardTypes());
+        String[] numbers = Corpus.mixedBins();
+        StringBuilder sb = new StringBuilder();
+        offsets = new int[numbers.length + 1];
+        for (int i = 0; i < numbers.length; i++) {
+            offsets[i] = sb.length();
+            sb.append(numbers[i]);
+        }
+        offsets[numbers.length] = sb.length();
+        data = sb.toString().getBytes(Charset.forName("US-ASCII"));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public ColumnClassifier.Result classify() {
+        return classifier.classify(data, offsets);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic.benchmark;
+
+import java.util.Random;
+
+/**
+ * Card numbers for the benchmarks, with a realistic mix of issuers and lengths.
+ * <p>
+ * Most numbers pass a Luhn check. A few have no known card type, or have the wrong check digit, so that the failure
+ * paths are exercised too. Corpora are generated from a fixed seed, so runs are comparable.
+ */
+final class Corpus {
+
+    /**
+     * Number of card numbers in a corpus. A power of 2, so benchmarks can cycle through it with a mask.
+     */
+    static final int SIZE = 1024;
+    static final int MASK = SIZE - 1;
+
+    /**
+     * Prefixes (either a single number, or a range), weighting out of 100, and lengths.
+     */
+    private static final Object[][] ISSUERS = {
+            {"4", 44, new int[]{16, 16, 16, 13}},
+            {"51-55", 28, new int[]{16}},
+            {"34-35", 8, new int[]{15}},
+            {"6011", 3, new int[]{16}},
+            {"622126-622925", 2, new int[]{16}},
+            {"644-649", 1, new int[]{16}},
+            {"3528-3589", 3, new int[]{16}},
+            {"62", 2, new int[]{16, 17, 18, 19}},
+            {"5018", 2, new int[]{12, 16, 19}},
+            {"300-305", 2, new int[]{14}},
+            {"1", 1, new int[]{15}},
+            // No known card type.
+            {"9", 4, new int[]{16}},
+    };
+
+    private static final int PERCENT_BAD_CHECK_DIGIT = 5;
+
+    private Corpus() {
+    }
+
+    /**
+     * @return card numbers, digits only
+     */
+    static String[] mixedBins() {
+        Random random = new Random(20150609L);
+        String[] result = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            result[i] = generate(random, pickIssuer(random));
+        }
+        return result;
+    }
+
+    /**
+     * @param numbers card numbers, digits only
+     * @return the same card numbers split into groups of 4 digits, as they would be typed
+     */
+    static String[] withSpaces(String[] numbers) {
+        String[] result = new String[numbers.length];
+        for (int i = 0; i < numbers.length; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < numbers[i].length(); j++) {
+                if (j > 0 && j % 4 == 0) {
+                    sb.append(' ');
+                }
+                sb.append(numbers[i].charAt(j));
+            }
+            result[i] = sb.toString();
+        }
+        return result;
+    }
+
+    private static Object[] pickIssuer(Random random) {
+        int roll = random.nextInt(100);
+        for (Object[] issuer : ISSUERS) {
+            roll -= (Integer) issuer[1];
+            if (roll < 0) {
+                return issuer;
+            }
+        }
+        return ISSUERS[0];
+    }
+
+    private static String generate(Random random, Object[] issuer) {
+        String pattern = (String) issuer[0];
+        int[] lengths = (int[]) issuer[2];
+        int length = lengths[random.nextInt(lengths.length)];
+
+        String prefix;
+        int hyphenIdx = pattern.indexOf('-');
+        if (hyphenIdx < 0) {
+            prefix = pattern;
+        } else {
+            long min = Long.parseLong(pattern.substring(0, hyphenIdx));
+            long max = Long.parseLong(pattern.substring(hyphenIdx + 1));
+            prefix = Long.toString(min + (long) (random.nextDouble() * (max - min + 1)));
+        }
+
+        char[] digits = new char[length];
+        for (int i = 0; i < length; i++) {
+            digits[i] = i < prefix.length() ? prefix.charAt(i) : (char) ('0' + random.nextInt(10));
+        }
+        int checkDigit = luhnCheckDigit(digits);
+        if (random.nextInt(100) < PERCENT_BAD_CHECK_DIGIT) {
+            checkDigit = (checkDigit + 1) % 10;
+        }
+        digits[length - 1] = (char) ('0' + checkDigit);
+        return new String(digits);
+    }
+
+    /**
+     * @return the check digit which makes the number pass a Luhn check, ignoring the current last digit
+     */
+    private static int luhnCheckDigit(char[] digits) {
+        int sum = 0;
+        boolean doubleValue = true;
+        for (int i = digits.length - 2; i >= 0; i--) {
+            int value = digits[i] - '0';
+            if (doubleValue) {
+                value *= 2;
+                if (value > 9) {
+                    value -= 9;
+                }
+            }
+            sum += value;
+            doubleValue = !doubleValue;
+        }
+        return (10 - sum % 10) % 10;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import plasticfantastic.IncrementalCardMatcher;
+import plasticfantastic.ValidatedCardFactory;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks typing each card number in the corpus one digit at a time, checking the classification after each
+ * keystroke, compared with classifying the whole number again after each keystroke.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IncrementalCardMatcherBenchmark {
+
+    private ValidatedCardFactory factory;
+    private IncrementalCardMatcher matcher;
+    private String[] numbers;
+    private int index;
+
+    @Setup
+    public void setUp() throws IOException {
+        factory = ValidatedCardFactory.withDefaultCardTypes();
+        matcher = new IncrementalCardMatcher(factory);
+        numbers = Corpus.mixedBins();
+    }
+
+    @Benchmark
+    public int type_incremental() {
+        String number = numbers[index++ & Corpus.MASK];
+        matcher.clear();
+        int result = 0;
+        for (int i = 0; i < number.length(); i++) {
+            matcher.append(number.charAt(i));
+            result += matcher.getClassification();
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int type_classifyEachPrefix() {
+        String number = numbers[index++ & Corpus.MASK];
+        int result = 0;
+        for (int i = 1; i <= number.length(); i++) {
+            result += factory.classify(number.subSequence(0, i));
+        }
+        return result;
+    }
+}
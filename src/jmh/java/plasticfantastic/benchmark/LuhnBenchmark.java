@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import plasticfantastic.Luhn;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link Luhn}, on both forms of input.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LuhnBenchmark {
+
+    private String[] strings;
+    private byte[][] bytes;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        strings = Corpus.mixedBins();
+        bytes = new byte[strings.length][];
+        for (int i = 0; i < strings.length; i++) {
+            bytes[i] = strings[i].getBytes(Charset.forName("US-ASCII"));
+        }
+    }
+
+    private int next() {
+        return index++ & Corpus.MASK;
+    }
+
+    @Benchmark
+    public boolean passesCheck_CharSequence() {
+        return Luhn.passesCheck(strings[next()]);
+    }
+
+    @Benchmark
+    public boolean passesCheck_bytes() {
+        return Luhn.passesCheck(bytes[next()]);
+    }
+}
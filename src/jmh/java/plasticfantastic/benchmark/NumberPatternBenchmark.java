@@ -0,0 +1,64 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import plasticfantastic.CardNumber;
+import plasticfantastic.internal.RangePattern;
+import plasticfantastic.internal.SingleNumberPattern;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for matching card numbers against {@link SingleNumberPattern}s and {@link RangePattern}s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NumberPatternBenchmark {
+
+    private final SingleNumberPattern singleNumberPattern = new SingleNumberPattern("6011");
+    private final RangePattern rangePattern = new RangePattern("622126", "622925");
+
+    private CardNumber[] cardNumbers;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        String[] numbers = Corpus.mixedBins();
+        cardNumbers = new CardNumber[numbers.length];
+        for (int i = 0; i < numbers.length; i++) {
+            cardNumbers[i] = new CardNumber(numbers[i]);
+        }
+    }
+
+    private CardNumber next() {
+        return cardNumbers[index++ & Corpus.MASK];
+    }
+
+    @Benchmark
+    public boolean single_number_isMatch() {
+        return singleNumberPattern.isMatch(next());
+    }
+
+    @Benchmark
+    public boolean range_isMatch() {
+        return rangePattern.isMatch(next());
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import plasticfantastic.CardNumber;
+import plasticfantastic.CompiledCardTypes;
+import plasticfantastic.CountingValidationMetrics;
+import plasticfantastic.ValidatedCard;
+import plasticfantastic.ValidatedCardFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link ValidatedCardFactory}, using the default card types from "plasticfantastic_card_types.json".
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidatedCardFactoryBenchmark {
+
+    private ValidatedCardFactory factory;
+    private ValidatedCardFactory factoryWithBinLookupTable;
+    private ValidatedCardFactory factoryWithBinCache;
+    private ValidatedCardFactory factoryWithMetrics;
+    private String[] numbers;
+    private CardNumber[] cardNumbers;
+    private byte[][] asciiNumbers;
+    private ByteBuffer[] directNumbers;
+    private byte[] json;
+    private File compiledFile;
+    private int index;
+
+    @Setup
+    public void setUp() throws IOException {
+        factory = ValidatedCardFactory.withDefaultCardTypes();
+        factoryWithBinLookupTable = factory.withBinLookupTable();
+        factoryWithBinCache = factory.withBinCache(1000);
+        factoryWithMetrics = factory.withMetrics(new CountingValidationMetrics());
+        numbers = Corpus.withSpaces(Corpus.mixedBins());
+        cardNumbers = new CardNumber[numbers.length];
+        asciiNumbers = new byte[numbers.length][];
+        directNumbers = new ByteBuffer[numbers.length];
+        for (int i = 0; i < numbers.length; i++) {
+            cardNumbers[i] = new CardNumber(numbers[i]);
+            asciiNumbers[i] = cardNumbers[i].getNumberString().getBytes(Charset.forName("US-ASCII"));
+            directNumbers[i] = ByteBuffer.allocateDirect(asciiNumbers[i].length);
+            directNumbers[i].put(asciiNumbers[i]).flip();
+        }
+        json = readResource("/plasticfantastic_card_types.json");
+        compiledFile = File.createTempFile("plasticfantastic", ".bin");
+        compiledFile.deleteOnExit();
+        CompiledCardTypes.write(factory, compiledFile);
+    }
+
+    private int next() {
+        return index++ & Corpus.MASK;
+    }
+
+    @Benchmark
+    public ValidatedCard create_from_CardNumber() {
+        return factory.create(cardNumbers[next()]);
+    }
+
+    @Benchmark
+    public ValidatedCard create_from_CardNumber_with_bin_lookup_table() {
+        return factoryWithBinLookupTable.create(cardNumbers[next()]);
+    }
+
+    @Benchmark
+    public ValidatedCard create_from_CardNumber_with_bin_cache() {
+        return factoryWithBinCache.create(cardNumbers[next()]);
+    }
+
+    @Benchmark
+    public ValidatedCard create_from_CardNumber_with_metrics() {
+        return factoryWithMetrics.create(cardNumbers[next()]);
+    }
+
+    @Benchmark
+    public ValidatedCard create_from_bytes() {
+        byte[] bytes = asciiNumbers[next()];
+        return factory.create(bytes, 0, bytes.length);
+    }
+
+    @Benchmark
+    public ValidatedCard create_from_direct_ByteBuffer() {
+        return factory.create(directNumbers[next()]);
+    }
+
+    @Benchmark
+    public int classify_bytes() {
+        byte[] bytes = asciiNumbers[next()];
+        return factory.classify(bytes, 0, bytes.length);
+    }
+
+    @Benchmark
+    public int classify_bytes_with_metrics() {
+        byte[] bytes = asciiNumbers[next()];
+        return factoryWithMetrics.classify(bytes, 0, bytes.length);
+    }
+
+    @Benchmark
+    public ValidatedCard create_from_String() {
+        return factory.create(numbers[next()]);
+    }
+
+    private static byte[] readResource(String name) throws IOException {
+        InputStream inputStream = ValidatedCardFactory.class.getResourceAsStream(name);
+        if (inputStream == null) {
+            throw new IOException("Missing resource: " + name);
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Parses the bundled JSON, which {@link ValidatedCardFactory#withDefaultCardTypes()} no longer does at runtime.
+     * Read from memory, so only the parsing and building of the factory is measured.
+     */
+    @Benchmark
+    public ValidatedCardFactory from_reader_default_card_types_json() {
+        return ValidatedCardFactory.fromReader(
+                new InputStreamReader(new ByteArrayInputStream(json), Charset.forName("UTF-8")));
+    }
+
+    @Benchmark
+    public ValidatedCardFactory read_compiled_card_types() throws IOException {
+        return CompiledCardTypes.read(compiledFile);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The results of validating a batch of card numbers with {@link ValidatedCardFactory#createAll(List)}. Results are in
+ * the same order as the input.
+ */
+public final class BatchResult {
+
+    private final ValidatedCard[] cards;
+    private final NumberFormatException[] errors;
+
+    BatchResult(ValidatedCard[] cards, NumberFormatException[] errors) {
+        this.cards = cards;
+        this.errors = errors;
+    }
+
+    /**
+     * @return the number of card numbers in the batch
+     */
+    public int size() {
+        return cards.length;
+    }
+
+    /**
+     * @param index position in the batch
+     * @return the validated card, or null if no matching card type was found or the card number was not valid
+     * @throws IndexOutOfBoundsException if index is not in the batch
+     */
+    public ValidatedCard get(int index) {
+        return cards[index];
+    }
+
+    /**
+     * @param index position in the batch
+     * @return the reason the card number could not be parsed, or null if it was parsed successfully
+     * @throws IndexOutOfBoundsException if index is not in the batch
+     */
+    public NumberFormatException getError(int index) {
+        return errors[index];
+    }
+
+    /**
+     * @return the number of card numbers which could not be parsed
+     */
+    public int getErrorCount() {
+        int count = 0;
+        for (int i = 0; i < errors.length; i++) {
+            if (errors[i] != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return a read-only list of the results, in input order. Elements are null where no card type was found or the
+     * card number could not be parsed.
+     */
+    public List<ValidatedCard> getCards() {
+        return Collections.unmodifiableList(Arrays.asList(cards));
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder()
+                .append("{size:")
+                .append(cards.length)
+                .append(", errors:")
+                .append(getErrorCount())
+                .append("}")
+                .toString();
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import java.util.Arrays;
+
+/**
+ * A bounded cache of match results, keyed on the leading digits and the length of a card number.
+ * <p>
+ * Only the leading digits up to the length of the longest pattern can affect a match, so a key made from those and
+ * the length gives exactly the same result as matching the whole number. Keys are the digits packed 4 bits each, then
+ * 6 bits of length, so this only works if the longest pattern has no more than {@link #MAX_KEY_DIGITS} digits, and for
+ * numbers shorter than 64 digits. {@link #getKey(CharSequence)} returns {@link #NO_KEY} otherwise, and those numbers
+ * should just be matched without the cache.
+ * <p>
+ * The cache is split into stripes, chosen by the hash of the key, each with its own lock. Each stripe is an open
+ * addressed table of primitive keys and matches, with clock eviction, so lookups don't box or allocate.
+ */
+final class BinCache {
+
+    static final int MAX_KEY_DIGITS = 14;
+    static final long NO_KEY = -1;
+    static final int MISSING = -1;
+
+    private static final int MAX_LENGTH = 64;
+    private static final int STRIPE_BITS = 4;
+    private static final int MAX_STRIPES = 1 << STRIPE_BITS;
+
+    private final int maximumSize;
+    private final int keyDigits;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    /**
+     * @param maximumSize      maximum number of entries
+     * @param maxPatternLength length of the longest pattern used for matching
+     * @throws IllegalArgumentException if maximumSize is &lt;= 0
+     */
+    BinCache(int maximumSize, int maxPatternLength) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be greater than 0");
+        }
+        this.maximumSize = maximumSize;
+        keyDigits = maxPatternLength <= MAX_KEY_DIGITS ? maxPatternLength : -1;
+        int stripeCount = Integer.highestOneBit(Math.min(maximumSize, MAX_STRIPES));
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(maximumSize / stripeCount);
+        }
+        stripeMask = stripeCount - 1;
+    }
+
+    /**
+     * @param digits normalised card number
+     * @return the key for the card number, or {@link #NO_KEY} if it can't be cached
+     */
+    long getKey(CharSequence digits) {
+        int length = digits.length();
+        if (keyDigits < 0 || length >= MAX_LENGTH) {
+            return NO_KEY;
+        }
+        int count = Math.min(length, keyDigits);
+        long key = 0;
+        for (int i = 0; i < count; i++) {
+            key = (key << 4) | (digits.charAt(i) - '0');
+        }
+        return (key << 6) | length;
+    }
+
+    /**
+     * See {@link #getKey(CharSequence)}.
+     *
+     * @param digits ASCII digits
+     * @param offset index of the first digit
+     * @param length number of digits
+     * @return the key for the card number, or {@link #NO_KEY} if it can't be cached
+     */
+    long getKey(byte[] digits, int offset, int length) {
+        if (keyDigits < 0 || length >= MAX_LENGTH) {
+            return NO_KEY;
+        }
+        int count = Math.min(length, keyDigits);
+        long key = 0;
+        for (int i = 0; i < count; i++) {
+            key = (key << 4) | (digits[offset + i] - '0');
+        }
+        return (key << 6) | length;
+    }
+
+    /**
+     * @param key key returned by one of the getKey methods
+     * @return the cached match, or {@link #MISSING}
+     */
+    int get(long key) {
+        int hash = hash(key);
+        return stripes[hash & stripeMask].get(key, hash >>> STRIPE_BITS);
+    }
+
+    /**
+     * @param key   key returned by one of the getKey methods
+     * @param match match to cache
+     */
+    void put(long key, int match) {
+        int hash = hash(key);
+        stripes[hash & stripeMask].put(key, hash >>> STRIPE_BITS, match);
+    }
+
+    /**
+     * The low bits choose the stripe, and the rest the slot within it.
+     */
+    private static int hash(long key) {
+        // Fibonacci hashing, to spread keys which differ in only a few bits.
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    long getHitCount() {
+        long result = 0;
+        for (Stripe stripe : stripes) {
+            result += stripe.getHitCount();
+        }
+        return result;
+    }
+
+    long getMissCount() {
+        long result = 0;
+        for (Stripe stripe : stripes) {
+            result += stripe.getMissCount();
+        }
+        return result;
+    }
+
+    /**
+     * @return the maximum number of entries, as passed to the constructor
+     */
+    int getMaximumSize() {
+        return maximumSize;
+    }
+
+    void resetCounts() {
+        for (Stripe stripe : stripes) {
+            stripe.resetCounts();
+        }
+    }
+
+    int size() {
+        int result = 0;
+        for (Stripe stripe : stripes) {
+            result += stripe.size();
+        }
+        return result;
+    }
+
+    /**
+     * One part of the cache, with its own lock. Entries are kept in an open addressed table of primitive keys and
+     * matches, with linear probing, and evicted by the clock algorithm: a hit sets an entry's referenced flag, and the
+     * clock hand clears flags until it finds an entry without one. The table starts small and doubles as needed, up to
+     * twice the maximum number of entries.
+     */
+    private static final class Stripe {
+        private static final long EMPTY = -1;
+        private static final int INITIAL_CAPACITY = 16;
+
+        private final int maximumSize;
+        private final int maximumCapacity;
+        private long[] keys;
+        private int[] matches;
+        private boolean[] referenced;
+        private int mask;
+        private int size;
+        private int hand;
+        private long hitCount;
+        private long missCount;
+
+        private Stripe(int maximumSize) {
+            this.maximumSize = maximumSize;
+            maximumCapacity = Integer.highestOneBit(maximumSize) << 2;
+            allocate(Math.min(INITIAL_CAPACITY, maximumCapacity));
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            matches = new int[capacity];
+            referenced = new boolean[capacity];
+            mask = capacity - 1;
+        }
+
+        private synchronized int get(long key, int hash) {
+            int i = indexOf(key, hash);
+            if (keys[i] == EMPTY) {
+                missCount++;
+                return MISSING;
+            }
+            hitCount++;
+            referenced[i] = true;
+            return matches[i];
+        }
+
+        private synchronized void put(long key, int hash, int match) {
+            int i = indexOf(key, hash);
+            if (keys[i] == EMPTY) {
+                if (size == maximumSize) {
+                    evict();
+                    i = indexOf(key, hash);
+                } else if (size * 2 >= keys.length && keys.length < maximumCapacity) {
+                    resize();
+                    i = indexOf(key, hash);
+                }
+                size++;
+            }
+            keys[i] = key;
+            matches[i] = match;
+        }
+
+        /**
+         * @return the index of the key, or of the empty slot where it would go
+         */
+        private int indexOf(long key, int hash) {
+            int i = hash & mask;
+            while (keys[i] != EMPTY && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldMatches = matches;
+            boolean[] oldReferenced = referenced;
+            allocate(oldKeys.length * 2);
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != EMPTY) {
+                    int i = indexOf(oldKeys[j], hash(oldKeys[j]) >>> STRIPE_BITS);
+                    keys[i] = oldKeys[j];
+                    matches[i] = oldMatches[j];
+                    referenced[i] = oldReferenced[j];
+                }
+            }
+            hand = 0;
+        }
+
+        private void evict() {
+            while (true) {
+                hand = (hand + 1) & mask;
+                if (keys[hand] != EMPTY) {
+                    if (!referenced[hand]) {
+                        remove(hand);
+                        return;
+                    }
+                    referenced[hand] = false;
+                }
+            }
+        }
+
+        /**
+         * Removes the entry at index i, moving back any later entries in its run that would no longer be found.
+         */
+        private void remove(int i) {
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (keys[j] == EMPTY) {
+                    break;
+                }
+                int home = (hash(keys[j]) >>> STRIPE_BITS) & mask;
+                // Move the entry at j into the gap at i, unless its home slot lies cyclically in (i, j].
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    keys[i] = keys[j];
+                    matches[i] = matches[j];
+                    referenced[i] = referenced[j];
+                    i = j;
+                }
+            }
+            keys[i] = EMPTY;
+            referenced[i] = false;
+            size--;
+        }
+
+        private synchronized long getHitCount() {
+            return hitCount;
+        }
+
+        private synchronized long getMissCount() {
+            return missCount;
+        }
+
+        private synchronized void resetCounts() {
+            hitCount = 0;
+            missCount = 0;
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+    }
+}
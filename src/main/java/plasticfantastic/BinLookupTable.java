@@ -0,0 +1,227 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A table with a slot for every 6 digit prefix (BIN), built from a {@link PrefixTrie}.
+ * <p>
+ * Which card type wins depends on the number's length as well as its prefix, since a pattern only counts if the
+ * number has at least as many digits, and a card type's valid lengths add to the strength of a match. So each slot
+ * holds a class: an index into a small table of the best match for each length, shared by every slot with the same set
+ * of candidate patterns. Finding a match is then one lookup for the prefix, and one for the length.
+ * <p>
+ * Slots where a pattern goes deeper than 6 digits hold {@link #FALLBACK}, as do any slots which don't fit once there
+ * are more than {@link Short#MAX_VALUE} classes. Numbers in those slots, numbers shorter than 6 digits, and numbers of
+ * {@link #MAX_LENGTH} digits or more are matched with the trie instead.
+ */
+final class BinLookupTable {
+
+    static final int BIN_LENGTH = 6;
+    static final int MAX_LENGTH = 64;
+
+    private static final int SLOT_COUNT = 1000000;
+    private static final short FALLBACK = -1;
+
+    private final PrefixTrie prefixTrie;
+    private final short[] classes = new short[SLOT_COUNT];
+    /**
+     * Best match for each class and length, at {@code class * MAX_LENGTH + length}.
+     */
+    private final int[] matches;
+
+    /**
+     * @param prefixTrie trie to build the table from, and to fall back to
+     */
+    BinLookupTable(PrefixTrie prefixTrie) {
+        this.prefixTrie = prefixTrie;
+        ClassBuilder classBuilder = new ClassBuilder();
+        fill(PrefixTrie.ROOT, 0, 0, new ArrayList<int[]>(), classBuilder);
+
+        List<int[]> classMatches = classBuilder.classMatches;
+        matches = new int[classMatches.size() * MAX_LENGTH];
+        for (int i = 0; i < classMatches.size(); i++) {
+            System.arraycopy(classMatches.get(i), 0, matches, i * MAX_LENGTH, MAX_LENGTH);
+        }
+    }
+
+    /**
+     * @return the number of distinct sets of best matches by length
+     */
+    int getClassCount() {
+        return matches.length / MAX_LENGTH;
+    }
+
+    /**
+     * Fill in the slots under a node of the trie.
+     *
+     * @param candidates {type index, pattern length} for every pattern entry on the path to the node
+     */
+    private void fill(int node, int depth, int prefix, List<int[]> candidates, ClassBuilder classBuilder) {
+        for (int digit = 0; digit < 10; digit++) {
+            int child = prefixTrie.getChild(node, digit);
+            int childPrefix = prefix * 10 + digit;
+            if (child == PrefixTrie.NO_NODE) {
+                int slotsPerPrefix = pow10(BIN_LENGTH - depth - 1);
+                Arrays.fill(classes, childPrefix * slotsPerPrefix, (childPrefix + 1) * slotsPerPrefix,
+                        classBuilder.getClassId(candidates));
+                continue;
+            }
+
+            int added = 0;
+            for (int e = prefixTrie.getFirstEntry(child); e < prefixTrie.getFirstEntry(child + 1); e++) {
+                candidates.add(new int[]{prefixTrie.getEntryType(e), prefixTrie.getEntryLength(e)});
+                added++;
+            }
+            if (depth + 1 < BIN_LENGTH) {
+                fill(child, depth + 1, childPrefix, candidates, classBuilder);
+            } else {
+                classes[childPrefix] = hasChildren(child) ? FALLBACK : classBuilder.getClassId(candidates);
+            }
+            for (int i = 0; i < added; i++) {
+                candidates.remove(candidates.size() - 1);
+            }
+        }
+    }
+
+    private boolean hasChildren(int node) {
+        for (int digit = 0; digit < 10; digit++) {
+            if (prefixTrie.getChild(node, digit) != PrefixTrie.NO_NODE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int pow10(int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+
+    /**
+     * See {@link PrefixTrie#findBestMatch(CharSequence)}.
+     *
+     * @param digits normalised card number
+     * @return the best match, or {@link PrefixTrie#NO_MATCH}
+     */
+    int findBestMatch(CharSequence digits) {
+        int length = digits.length();
+        if (length >= BIN_LENGTH && length < MAX_LENGTH) {
+            int bin = (digits.charAt(0) - '0') * 100000
+                    + (digits.charAt(1) - '0') * 10000
+                    + (digits.charAt(2) - '0') * 1000
+                    + (digits.charAt(3) - '0') * 100
+                    + (digits.charAt(4) - '0') * 10
+                    + (digits.charAt(5) - '0');
+            int classId = classes[bin];
+            if (classId != FALLBACK) {
+                return matches[classId * MAX_LENGTH + length];
+            }
+        }
+        return prefixTrie.findBestMatch(digits);
+    }
+
+    /**
+     * See {@link PrefixTrie#findBestMatch(byte[], int, int)}.
+     *
+     * @param digits ASCII digits
+     * @param offset index of the first digit
+     * @param length number of digits
+     * @return the best match, or {@link PrefixTrie#NO_MATCH}
+     */
+    int findBestMatch(byte[] digits, int offset, int length) {
+        if (length >= BIN_LENGTH && length < MAX_LENGTH) {
+            int bin = (digits[offset] - '0') * 100000
+                    + (digits[offset + 1] - '0') * 10000
+                    + (digits[offset + 2] - '0') * 1000
+                    + (digits[offset + 3] - '0') * 100
+                    + (digits[offset + 4] - '0') * 10
+                    + (digits[offset + 5] - '0');
+            int classId = classes[bin];
+            if (classId != FALLBACK) {
+                return matches[classId * MAX_LENGTH + length];
+            }
+        }
+        return prefixTrie.findBestMatch(digits, offset, length);
+    }
+
+    /**
+     * @return the number of slots which fall back to the trie
+     */
+    int getFallbackCount() {
+        int result = 0;
+        for (short classId : classes) {
+            if (classId == FALLBACK) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Assigns ids to sets of candidate patterns while the table is being filled.
+     */
+    private final class ClassBuilder {
+        private final Map<String, Short> classIds = new HashMap<String, Short>();
+        private final List<int[]> classMatches = new ArrayList<int[]>();
+
+        private short getClassId(List<int[]> candidates) {
+            int[][] sorted = candidates.toArray(new int[candidates.size()][]);
+            Arrays.sort(sorted, new Comparator<int[]>() {
+                @Override
+                public int compare(int[] lhs, int[] rhs) {
+                    return lhs[0] != rhs[0] ? lhs[0] - rhs[0] : lhs[1] - rhs[1];
+                }
+            });
+            StringBuilder sb = new StringBuilder();
+            for (int[] candidate : sorted) {
+                sb.append(candidate[0]).append(':').append(candidate[1]).append(',');
+            }
+            String key = sb.toString();
+
+            Short id = classIds.get(key);
+            if (id == null) {
+                if (classMatches.size() > Short.MAX_VALUE) {
+                    return FALLBACK;
+                }
+                id = (short) classMatches.size();
+                classIds.put(key, id);
+                classMatches.add(resolve(sorted));
+            }
+            return id;
+        }
+
+        /**
+         * @return the best match for each length, in the same way as {@link PrefixTrie#findBestMatch(CharSequence)}
+         */
+        private int[] resolve(int[][] candidates) {
+            int[] result = new int[MAX_LENGTH];
+            for (int length = BIN_LENGTH; length < MAX_LENGTH; length++) {
+                result[length] = prefixTrie.findBestMatch(candidates, length);
+            }
+            return result;
+        }
+    }
+}
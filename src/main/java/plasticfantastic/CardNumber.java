@@ -23,8 +23,7 @@ package plasticfantastic;
  */
 public final class CardNumber {
 
-    private static final String REGEX_NUMBERS_ONLY = "^[0-9]+$";
-    private static final String REGEX_WHITESPACE = "\\s";
+    static final char[] NO_SEPARATORS = new char[0];
 
     private final String numberString;
 
@@ -34,18 +33,93 @@ public final class CardNumber {
      * @throws java.lang.NumberFormatException if numberString is not a valid number, or is negative
      */
     public CardNumber(String numberString) {
+        this(numberString, NO_SEPARATORS);
+    }
+
+    /**
+     * @param numberString partial or complete card number (must consist only of digits, and optional whitespace or
+     *                     separator characters)
+     * @param separators   characters which may separate groups of digits, and are stripped along with any whitespace.
+     *                     e.g. '-' and '.'
+     * @throws java.lang.NullPointerException  if numberString or separators is null
+     * @throws java.lang.NumberFormatException if numberString is not a valid number, or is negative
+     */
+    public CardNumber(String numberString, char... separators) {
         if (numberString == null) {
             throw new NullPointerException("numberString cannot be null");
         }
-        final String normalised = numberString.replaceAll(REGEX_WHITESPACE, "");
-        if (!normalised.matches(REGEX_NUMBERS_ONLY)) {
+        if (separators == null) {
+            throw new NullPointerException("separators cannot be null");
+        }
+        final String normalised = normalise(numberString, separators);
+        if (normalised == null) {
             throw new NumberFormatException("Not a valid card number: '" + numberString + "'");
         }
         this.numberString = normalised;
     }
 
     /**
-     * @return the normalised form of the card number (i.e. digits only, no whitespace)
+     * Strip whitespace and separators in a single pass. If the string is already just digits it is returned as-is,
+     * without copying.
+     *
+     * @return the digits, or null if there are none or there are any other characters
+     */
+    private static String normalise(String numberString, char[] separators) {
+        final int length = numberString.length();
+        int i = 0;
+        while (i < length && isDigit(numberString.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            return length > 0 ? numberString : null;
+        }
+
+        char[] digits = new char[length];
+        numberString.getChars(0, i, digits, 0);
+        int count = i;
+        for (; i < length; i++) {
+            char c = numberString.charAt(i);
+            if (isDigit(c)) {
+                digits[count++] = c;
+            } else if (!isWhitespace(c) && !isSeparator(c, separators)) {
+                return null;
+            }
+        }
+        return count > 0 ? new String(digits, 0, count) : null;
+    }
+
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Same set of characters as {@code \s} in a regular expression.
+     */
+    static boolean isWhitespace(char c) {
+        switch (c) {
+            case ' ':
+            case '\t':
+            case '\n':
+            case '\u000B':
+            case '\f':
+            case '\r':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    static boolean isSeparator(char c, char[] separators) {
+        for (int i = 0; i < separators.length; i++) {
+            if (c == separators[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the normalised form of the card number (i.e. digits only, no whitespace or separators)
      */
     public String getNumberString() {
         return numberString;
@@ -63,34 +137,10 @@ public final class CardNumber {
      * See <a href="http://en.wikipedia.org/wiki/Luhn_algorithm">here</a> for more information.
      *
      * @return true if the number is valid according to the Luhn formula.
+     * @see Luhn
      */
     public boolean passesLuhnCheck() {
-        /* Description from Wikipedia:
-         * 1. From the rightmost digit, which is the check digit, moving left, double the value of every second digit;
-         * if the product of this doubling operation is greater than 9 (e.g., 8 * 2 = 16), then sum the digits of the
-         * products (e.g., 16: 1 + 6 = 7, 18: 1 + 8 = 9).
-         * 2. Take the sum of all the digits.
-         * 3. If the total modulo 10 is equal to 0 (if the total ends in zero) then the number is valid according to
-         * the Luhn formula; else it is not valid.
-         */
-
-        int sum = 0;
-        boolean doubleValue = false;
-        for (int i = numberString.length() - 1; i >= 0; i--) {
-            int value = Character.getNumericValue(numberString.charAt(i));
-            if (doubleValue) {
-                // Double it.
-                value *= 2;
-                if (value > 9) {
-                    // Sum the digits.
-                    // Since we know that the 10 <= val <= 18, we can just subtract 9 for the same result.
-                    value = value - 9;
-                }
-            }
-            sum += value;
-            doubleValue = !doubleValue;
-        }
-        return sum % 10 == 0;
+        return Luhn.passesCheck(numberString);
     }
 
     @Override
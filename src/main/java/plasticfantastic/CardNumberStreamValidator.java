@@ -0,0 +1,322 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+/**
+ * Validates card numbers read from a stream, one per line, passing each result to a {@link Listener}.
+ * <p>
+ * The card number can either be the whole line, or one column of CSV data. Input is read through a fixed size buffer,
+ * so memory use doesn't depend on the size of the input. Empty lines are skipped, but still counted for the purposes
+ * of line numbers.
+ * <p>
+ * <strong>CSV data</strong><br>
+ * Columns are separated by a delimiter character (',' by default). Fields may be enclosed in double quotes, in which
+ * case they may contain the delimiter, and a double quote is written as two double quotes. Quoted fields cannot span
+ * lines.
+ */
+public class CardNumberStreamValidator {
+
+    /**
+     * Receives the results of validating a stream.
+     */
+    public interface Listener {
+
+        /**
+         * Called for each card number which could be parsed.
+         *
+         * @param lineNumber       line number, starting from 1
+         * @param cardNumberString the card number as it appeared in the input
+         * @param card             the validated card, or null if no matching card type was found
+         */
+        void onCard(long lineNumber, String cardNumberString, ValidatedCard card);
+
+        /**
+         * Called for each line where a card number couldn't be parsed.
+         *
+         * @param lineNumber line number, starting from 1
+         * @param error      the reason parsing failed
+         */
+        void onError(long lineNumber, NumberFormatException error);
+    }
+
+    /**
+     * Builder for {@link CardNumberStreamValidator} instances.
+     * <p>
+     * By default the whole of each line is treated as the card number.
+     */
+    public static class Builder {
+        private final ValidatedCardFactory factory;
+        private int column = -1;
+        private char delimiter = ',';
+        private int headerLines = 0;
+        private int maxFieldLength = DEFAULT_MAX_FIELD_LENGTH;
+
+        /**
+         * @param factory used to validate the card numbers
+         * @throws NullPointerException if factory is null
+         */
+        public Builder(ValidatedCardFactory factory) {
+            if (factory == null) {
+                throw new NullPointerException("factory cannot be null");
+            }
+            this.factory = factory;
+        }
+
+        /**
+         * Read card numbers from one column of CSV data.
+         *
+         * @param column    index of the column holding the card number, starting from 0
+         * @param delimiter character separating the columns
+         * @return the builder instance, for method chaining
+         * @throws IllegalArgumentException if column is negative, or delimiter is a double quote or line break
+         */
+        public Builder withCsvColumn(int column, char delimiter) {
+            if (column < 0) {
+                throw new IllegalArgumentException("column cannot be negative");
+            }
+            if (delimiter == QUOTE || delimiter == '\n' || delimiter == '\r') {
+                throw new IllegalArgumentException("Invalid delimiter: '" + delimiter + "'");
+            }
+            this.column = column;
+            this.delimiter = delimiter;
+            return this;
+        }
+
+        /**
+         * Skip one or more lines at the start of the input.
+         *
+         * @param headerLines number of lines to skip
+         * @return the builder instance, for method chaining
+         * @throws IllegalArgumentException if headerLines is negative
+         */
+        public Builder withHeaderLines(int headerLines) {
+            if (headerLines < 0) {
+                throw new IllegalArgumentException("headerLines cannot be negative");
+            }
+            this.headerLines = headerLines;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of characters in a card number, including any whitespace. Longer values are reported
+         * as errors. This bounds the memory used for each line.
+         *
+         * @param maxFieldLength maximum length
+         * @return the builder instance, for method chaining
+         * @throws IllegalArgumentException if maxFieldLength is &lt;= 0
+         */
+        public Builder withMaxFieldLength(int maxFieldLength) {
+            if (maxFieldLength <= 0) {
+                throw new IllegalArgumentException("maxFieldLength must be greater than 0");
+            }
+            this.maxFieldLength = maxFieldLength;
+            return this;
+        }
+
+        /**
+         * Build the validator instance.
+         *
+         * @return new validator instance
+         */
+        public CardNumberStreamValidator build() {
+            return new CardNumberStreamValidator(this);
+        }
+    }
+
+    private static final int DEFAULT_MAX_FIELD_LENGTH = 64;
+    private static final int BUFFER_SIZE = 8192;
+    private static final char QUOTE = '"';
+
+    private final ValidatedCardFactory factory;
+    private final int column;
+    private final char delimiter;
+    private final int headerLines;
+    private final int maxFieldLength;
+
+    private CardNumberStreamValidator(Builder builder) {
+        factory = builder.factory;
+        column = builder.column;
+        delimiter = builder.delimiter;
+        headerLines = builder.headerLines;
+        maxFieldLength = builder.maxFieldLength;
+    }
+
+    /**
+     * Validate each line of a stream. See {@link #validate(Reader, Listener)}.
+     *
+     * @param inputStream to read from. This is not closed.
+     * @param charset     character encoding of the input
+     * @param listener    to receive the results
+     * @return the number of lines read
+     * @throws NullPointerException if any of the parameters is null
+     * @throws IOException          if there was some problem reading the input
+     */
+    public long validate(InputStream inputStream, Charset charset, Listener listener) throws IOException {
+        if (inputStream == null) {
+            throw new NullPointerException("inputStream cannot be null");
+        }
+        if (charset == null) {
+            throw new NullPointerException("charset cannot be null");
+        }
+        return validate(new InputStreamReader(inputStream, charset), listener);
+    }
+
+    /**
+     * Validate each line of a stream. The listener is called for each non-empty line (after any header lines), in
+     * order, on the calling thread.
+     *
+     * @param reader   to read from. This is not closed.
+     * @param listener to receive the results
+     * @return the number of lines read
+     * @throws NullPointerException if reader or listener is null
+     * @throws IOException          if there was some problem reading the input
+     */
+    public long validate(Reader reader, Listener listener) throws IOException {
+        if (reader == null) {
+            throw new NullPointerException("reader cannot be null");
+        }
+        if (listener == null) {
+            throw new NullPointerException("listener cannot be null");
+        }
+        return new LineParser(listener).parse(reader);
+    }
+
+    /**
+     * Holds the state for a single call to {@link #validate(Reader, Listener)}.
+     */
+    private final class LineParser {
+        private final Listener listener;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private final char[] field = new char[maxFieldLength];
+        private int fieldLength;
+        private boolean fieldTooLong;
+        private int lineLength;
+        private int currentColumn;
+        private boolean inQuotes;
+        private boolean quotePending;
+        private long lineNumber;
+
+        private LineParser(Listener listener) {
+            this.listener = listener;
+        }
+
+        private long parse(Reader reader) throws IOException {
+            boolean previousWasCarriageReturn = false;
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    char c = buffer[i];
+                    if (c == '\n' && previousWasCarriageReturn) {
+                        // Second half of "\r\n".
+                        previousWasCarriageReturn = false;
+                    } else if (c == '\n' || c == '\r') {
+                        endLine();
+                        previousWasCarriageReturn = c == '\r';
+                    } else {
+                        previousWasCarriageReturn = false;
+                        lineLength++;
+                        if (column < 0) {
+                            append(c);
+                        } else {
+                            parseCsv(c);
+                        }
+                    }
+                }
+            }
+            if (lineLength > 0) {
+                endLine();
+            }
+            return lineNumber;
+        }
+
+        private void parseCsv(char c) {
+            if (quotePending) {
+                quotePending = false;
+                if (c == QUOTE) {
+                    // An escaped double quote.
+                    appendIfInColumn(c);
+                    return;
+                }
+                inQuotes = false;
+            }
+            if (inQuotes) {
+                if (c == QUOTE) {
+                    quotePending = true;
+                } else {
+                    appendIfInColumn(c);
+                }
+            } else if (c == QUOTE) {
+                inQuotes = true;
+            } else if (c == delimiter) {
+                currentColumn++;
+            } else {
+                appendIfInColumn(c);
+            }
+        }
+
+        private void appendIfInColumn(char c) {
+            if (currentColumn == column) {
+                append(c);
+            }
+        }
+
+        private void append(char c) {
+            if (fieldLength < field.length) {
+                field[fieldLength++] = c;
+            } else {
+                fieldTooLong = true;
+            }
+        }
+
+        private void endLine() {
+            lineNumber++;
+            if (lineNumber > headerLines && lineLength > 0) {
+                if (fieldTooLong) {
+                    listener.onError(lineNumber, new NumberFormatException(
+                            "Card number longer than " + maxFieldLength + " characters"));
+                } else if (currentColumn < column) {
+                    listener.onError(lineNumber, new NumberFormatException("Missing column " + column));
+                } else {
+                    validateField();
+                }
+            }
+            fieldLength = 0;
+            fieldTooLong = false;
+            lineLength = 0;
+            currentColumn = 0;
+            inQuotes = false;
+            quotePending = false;
+        }
+
+        private void validateField() {
+            String cardNumberString = new String(field, 0, fieldLength);
+            ValidatedCard card;
+            try {
+                card = factory.create(cardNumberString);
+            } catch (NumberFormatException e) {
+                listener.onError(lineNumber, e);
+                return;
+            }
+            listener.onCard(lineNumber, cardNumberString, card);
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package plasticfantastic;
 
 import plasticfantastic.internal.NumberPattern;
+import plasticfantastic.internal.NumberPatternSyntax;
 import plasticfantastic.internal.RangePattern;
 import plasticfantastic.internal.SingleNumberPattern;
 
@@ -39,9 +40,6 @@ public class CardType {
      * You must specify at least one pattern (single number/range) and at least one valid length for the card type.
      */
     public static class Builder {
-        private static final String REGEX_SINGLE_NUMBER = "^[0-9]+$";
-        private static final String REGEX_RANGE = "^[0-9]+\\s*[-]\\s*[0-9]+$";
-
         private final String name;
         private final List<NumberPattern> patternList = new ArrayList<NumberPattern>();
         private int[] validLengths;
@@ -78,13 +76,11 @@ public class CardType {
             }
             for (int i = 0; i < patterns.length; i++) {
                 if (patterns[i] != null) {
-                    if (patterns[i].matches(REGEX_SINGLE_NUMBER)) {
+                    if (NumberPatternSyntax.isSingleNumber(patterns[i])) {
                         patternList.add(new SingleNumberPattern(patterns[i]));
-                    } else if (patterns[i].matches(REGEX_RANGE)) {
-                        int hyphenIdx = patterns[i].indexOf('-');
-                        String min = patterns[i].substring(0, hyphenIdx).trim();
-                        String max = patterns[i].substring(hyphenIdx + 1).trim();
-                        patternList.add(new RangePattern(min, max));
+                    } else if (NumberPatternSyntax.isRange(patterns[i])) {
+                        patternList.add(new RangePattern(NumberPatternSyntax.getRangeMin(patterns[i]),
+                                NumberPatternSyntax.getRangeMax(patterns[i])));
                     } else {
                         throw new IllegalArgumentException("Unrecognised pattern: \"" + patterns[i] + "\"");
                     }
@@ -139,11 +135,16 @@ public class CardType {
     private final String name;
     private final NumberPattern[] numberPatterns;
     private final int[] validLengths;
+    private final CardTypeMatcher matcher;
 
-    private CardType(String name, NumberPattern[] numberPatterns, int[] validLengths) {
+    /**
+     * Create a card type without checking its data. Use {@link Builder} unless the data is already known to be valid.
+     */
+    CardType(String name, NumberPattern[] numberPatterns, int[] validLengths) {
         this.name = name;
         this.numberPatterns = numberPatterns;
         this.validLengths = validLengths;
+        this.matcher = new CardTypeMatcher(numberPatterns, validLengths);
     }
 
     /**
@@ -166,24 +167,7 @@ public class CardType {
      * @return 0 for no match, or &gt;0 for a match
      */
     public int getMatchStrength(CardNumber cardNumber) {
-        int result = 0;
-        for (int i = 0; i < numberPatterns.length; i++) {
-            if (numberPatterns[i].isMatch(cardNumber)) {
-                // TODO: if we sort the patterns by length, could exit this loop as soon as a match is found
-                int length = numberPatterns[i].getLength();
-                if (length > result) {
-                    result = length;
-                }
-            }
-        }
-        if (result > 0) {
-            // Factor in whether the card number is a valid length for the card type.
-            result <<= 1;
-            if (lengthMatches(cardNumber)) {
-                result++;
-            }
-        }
-        return result;
+        return matcher.getMatchStrength(cardNumber.getNumberString());
     }
 
     /**
@@ -204,16 +188,23 @@ public class CardType {
      * @return true if the card number length matches one of the valid lengths defined for this card type
      */
     public boolean lengthMatches(CardNumber cardNumber) {
-        boolean result = false;
-        if (validLengths != null) {
-            for (int i = 0; i < validLengths.length; i++) {
-                if (cardNumber.getLength() == validLengths[i]) {
-                    result = true;
-                    break;
-                }
-            }
-        }
-        return result;
+        return lengthMatches(cardNumber.getLength());
+    }
+
+    boolean lengthMatches(int length) {
+        return matcher.lengthMatches(length);
+    }
+
+    CardTypeMatcher getMatcher() {
+        return matcher;
+    }
+
+    NumberPattern[] getNumberPatterns() {
+        return numberPatterns;
+    }
+
+    int[] getValidLengths() {
+        return validLengths;
     }
 
     @Override
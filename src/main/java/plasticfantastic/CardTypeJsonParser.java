@@ -0,0 +1,476 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses card types from JSON, in the format described in {@link ValidatedCardFactory}.
+ * <p>
+ * The JSON is read one character at a time through a small buffer, and each card type is built as soon as its object
+ * has been read, so there's no reflection and no tree of intermediate objects, and Gson isn't needed. Errors are
+ * reported through {@link JsonErrors}, as Gson's exception types if Gson is on the classpath. For compatibility with
+ * Gson, numbers and booleans are accepted where strings are expected, and strings holding a number where ints are
+ * expected.
+ */
+final class CardTypeJsonParser {
+
+    private static final int BUFFER_SIZE = 1024;
+    private static final int EOF = -1;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private int line = 1;
+    private int column;
+    private final StringBuilder sb = new StringBuilder();
+
+    private CardTypeJsonParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @param reader provides the JSON. This is read to the end, but not closed.
+     * @return the card types, in the order they appear
+     * @throws RuntimeException from {@link JsonErrors} if the JSON is malformed, there was some problem reading it, or
+     *                          any of the card types are missing data or invalid
+     */
+    static List<CardType> parse(Reader reader) {
+        return new CardTypeJsonParser(reader).parseCardTypes();
+    }
+
+    private List<CardType> parseCardTypes() {
+        if (peek() == EOF) {
+            throw JsonErrors.invalidData("No data", null);
+        }
+        expect('[');
+        List<CardType> cardTypes = new ArrayList<CardType>();
+        if (peek() == ']') {
+            read();
+        } else {
+            do {
+                cardTypes.add(parseCardType(cardTypes.size()));
+            } while (readSeparator(']'));
+        }
+        if (peek() != EOF) {
+            throw syntaxError("Expected end of data");
+        }
+        if (cardTypes.isEmpty()) {
+            throw JsonErrors.invalidData("No card types", null);
+        }
+        return cardTypes;
+    }
+
+    private CardType parseCardType(int index) {
+        if (peekLiteral()) {
+            readNullLiteral();
+            throw JsonErrors.invalidData("Invalid data at position " + index,
+                    new IllegalArgumentException("Card type is null"));
+        }
+        expect('{');
+        String name = null;
+        String[] numberPatterns = null;
+        int[] validLengths = null;
+        if (peek() == '}') {
+            read();
+        } else {
+            do {
+                expect('"');
+                String key = readString();
+                expect(':');
+                if (key.equals("name")) {
+                    name = readStringValue();
+                } else if (key.equals("numberPatterns")) {
+                    numberPatterns = readStringArray();
+                } else if (key.equals("validLengths")) {
+                    validLengths = readIntArray();
+                } else {
+                    skipValue();
+                }
+            } while (readSeparator('}'));
+        }
+        try {
+            return ValidatedCardFactory.createCardType(name, numberPatterns, validLengths);
+        } catch (IllegalArgumentException e) {
+            throw JsonErrors.invalidData("Invalid data at position " + index, e);
+        } catch (IllegalStateException e) {
+            throw JsonErrors.invalidData("Invalid data at position " + index, e);
+        }
+    }
+
+    /**
+     * @return a string, or null
+     */
+    private String readStringValue() {
+        int c = peek();
+        if (c == '"') {
+            read();
+            return readString();
+        }
+        if (c == '-' || (c >= '0' && c <= '9')) {
+            return readNumber();
+        }
+        if (peekLiteral()) {
+            String literal = readLiteral();
+            return literal.equals("null") ? null : literal;
+        }
+        throw syntaxError("Expected a string");
+    }
+
+    /**
+     * @return the array, or null
+     */
+    private String[] readStringArray() {
+        if (peekLiteral()) {
+            return readNullLiteral();
+        }
+        expect('[');
+        List<String> values = new ArrayList<String>();
+        if (peek() == ']') {
+            read();
+        } else {
+            do {
+                values.add(readStringValue());
+            } while (readSeparator(']'));
+        }
+        return values.toArray(new String[values.size()]);
+    }
+
+    /**
+     * @return the array, or null
+     */
+    private int[] readIntArray() {
+        if (peekLiteral()) {
+            return readNullLiteral();
+        }
+        expect('[');
+        int[] values = new int[4];
+        int count = 0;
+        if (peek() == ']') {
+            read();
+        } else {
+            do {
+                if (count == values.length) {
+                    int[] grown = new int[count * 2];
+                    System.arraycopy(values, 0, grown, 0, count);
+                    values = grown;
+                }
+                values[count++] = readInt();
+            } while (readSeparator(']'));
+        }
+        int[] result = new int[count];
+        System.arraycopy(values, 0, result, 0, count);
+        return result;
+    }
+
+    private int readInt() {
+        int c = peek();
+        String number;
+        if (c == '"') {
+            read();
+            number = readString();
+        } else if (c == '-' || (c >= '0' && c <= '9')) {
+            number = readNumber();
+        } else {
+            throw syntaxError("Expected an int");
+        }
+        try {
+            return Integer.parseInt(number);
+        } catch (NumberFormatException e) {
+            // Could still be an int written with a fraction or exponent, e.g. "1.6e1".
+        }
+        try {
+            double value = Double.parseDouble(number);
+            if (value == (int) value) {
+                return (int) value;
+            }
+        } catch (NumberFormatException e) {
+            // Report below.
+        }
+        throw syntaxError("Expected an int but was " + number);
+    }
+
+    /**
+     * Read a literal which must be null, in place of some other value.
+     */
+    private <T> T readNullLiteral() {
+        if (!readLiteral().equals("null")) {
+            throw syntaxError("Unexpected boolean");
+        }
+        return null;
+    }
+
+    private void skipValue() {
+        int c = peek();
+        if (c == '"') {
+            read();
+            readString();
+        } else if (c == '-' || (c >= '0' && c <= '9')) {
+            readNumber();
+        } else if (peekLiteral()) {
+            readLiteral();
+        } else if (c == '[') {
+            read();
+            if (peek() == ']') {
+                read();
+            } else {
+                do {
+                    skipValue();
+                } while (readSeparator(']'));
+            }
+        } else if (c == '{') {
+            read();
+            if (peek() == '}') {
+                read();
+            } else {
+                do {
+                    expect('"');
+                    readString();
+                    expect(':');
+                    skipValue();
+                } while (readSeparator('}'));
+            }
+        } else {
+            throw syntaxError("Expected a value");
+        }
+    }
+
+    /**
+     * Read the separator after an element of an array or object.
+     *
+     * @param end the character which ends the array or object
+     * @return true if there's another element, or false if the end was reached
+     */
+    private boolean readSeparator(char end) {
+        int c = peek();
+        read();
+        if (c == ',') {
+            return true;
+        }
+        if (c == end) {
+            return false;
+        }
+        throw syntaxError("Expected ',' or '" + end + "'");
+    }
+
+    /**
+     * Read the rest of a string, after the opening quote.
+     */
+    private String readString() {
+        sb.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c == EOF) {
+                throw syntaxError("Unterminated string");
+            }
+            if (c < 0x20) {
+                throw syntaxError("Unescaped control character in string");
+            }
+            if (c == '\\') {
+                c = read();
+                switch (c) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        sb.append((char) c);
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'u':
+                        sb.append(readHexChar());
+                        break;
+                    default:
+                        throw syntaxError("Invalid escape sequence");
+                }
+            } else {
+                sb.append((char) c);
+            }
+        }
+    }
+
+    private char readHexChar() {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(read(), 16);
+            if (digit < 0) {
+                throw syntaxError("Invalid unicode escape sequence");
+            }
+            value = value * 16 + digit;
+        }
+        return (char) value;
+    }
+
+    /**
+     * Read a number, checking that it follows the JSON grammar.
+     *
+     * @return the number as it was written
+     */
+    private String readNumber() {
+        sb.setLength(0);
+        if (peekChar() == '-') {
+            sb.append((char) read());
+        }
+        if (peekChar() == '0') {
+            sb.append((char) read());
+        } else if (readDigits() == 0) {
+            throw syntaxError("Invalid number");
+        }
+        if (peekChar() == '.') {
+            sb.append((char) read());
+            if (readDigits() == 0) {
+                throw syntaxError("Invalid number");
+            }
+        }
+        if (peekChar() == 'e' || peekChar() == 'E') {
+            sb.append((char) read());
+            if (peekChar() == '+' || peekChar() == '-') {
+                sb.append((char) read());
+            }
+            if (readDigits() == 0) {
+                throw syntaxError("Invalid number");
+            }
+        }
+        int c = peekChar();
+        if (isLiteralChar(c)) {
+            throw syntaxError("Invalid number");
+        }
+        return sb.toString();
+    }
+
+    private int readDigits() {
+        int count = 0;
+        while (peekChar() >= '0' && peekChar() <= '9') {
+            sb.append((char) read());
+            count++;
+        }
+        return count;
+    }
+
+    private boolean peekLiteral() {
+        int c = peek();
+        return c == 'n' || c == 't' || c == 'f';
+    }
+
+    /**
+     * @return "null", "true" or "false"
+     */
+    private String readLiteral() {
+        sb.setLength(0);
+        while (isLiteralChar(peekChar())) {
+            sb.append((char) read());
+        }
+        String literal = sb.toString();
+        if (!literal.equals("null") && !literal.equals("true") && !literal.equals("false")) {
+            throw syntaxError("Unexpected value: " + literal);
+        }
+        return literal;
+    }
+
+    private static boolean isLiteralChar(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '.';
+    }
+
+    private void expect(char expected) {
+        int c = peek();
+        if (c != expected) {
+            throw syntaxError("Expected '" + expected + "'");
+        }
+        read();
+    }
+
+    /**
+     * Skip any whitespace, then look at the next character without reading it.
+     *
+     * @return the next character, or {@link #EOF}
+     */
+    private int peek() {
+        while (true) {
+            int c = peekChar();
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return c;
+            }
+            read();
+        }
+    }
+
+    /**
+     * @return the next character, or {@link #EOF}, without reading it
+     */
+    private int peekChar() {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position];
+    }
+
+    /**
+     * @return the next character, or {@link #EOF}
+     */
+    private int read() {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        char c = buffer[position++];
+        if (c == '\n') {
+            line++;
+            column = 0;
+        } else {
+            column++;
+        }
+        return c;
+    }
+
+    private boolean fill() {
+        try {
+            int read;
+            do {
+                read = reader.read(buffer, 0, buffer.length);
+            } while (read == 0);
+            if (read < 0) {
+                return false;
+            }
+            position = 0;
+            limit = read;
+            return true;
+        } catch (IOException e) {
+            throw JsonErrors.io(e);
+        }
+    }
+
+    private RuntimeException syntaxError(String message) {
+        return JsonErrors.syntax(message + " at line " + line + " column " + (column + 1));
+    }
+}
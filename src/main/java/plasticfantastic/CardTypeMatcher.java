@@ -0,0 +1,255 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import plasticfantastic.internal.NumberPattern;
+import plasticfantastic.internal.RangePattern;
+import plasticfantastic.internal.SingleNumberPattern;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The number patterns and valid lengths of a {@link CardType}, compiled for fast matching.
+ * <p>
+ * Patterns are reduced to ranges of prefix values. Ranges of the same length which overlap or are adjacent (including
+ * duplicates, and single numbers within a range) are merged, and the result is sorted by descending length. The first
+ * range which matches is then the longest, so matching can stop there. Single number patterns which are too long to
+ * be held as a long value are compared digit by digit, and are checked first since they are the longest of all.
+ * <p>
+ * Before any of that, the first digit is checked against the set of first digits which can match at all.
+ */
+final class CardTypeMatcher {
+
+    private static final long[] POWERS_OF_TEN = new long[RangePattern.MAX_LENGTH + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /**
+     * Bit n is set if a card number starting with the digit n could match.
+     */
+    private final int firstDigits;
+
+    /**
+     * Ranges (or long prefixes), by descending length.
+     */
+    private final int[] lengths;
+    private final long[] mins;
+    private final long[] maxes;
+    /**
+     * Non-null for single number patterns which are too long to be held as a long value.
+     */
+    private final String[] prefixes;
+    /**
+     * The number of leading digits needed to check any of the ranges.
+     */
+    private final int maxRangeLength;
+
+    /**
+     * Bit n is set if n is a valid length. Lengths which don't fit are held in {@link #otherLengths}.
+     */
+    private final long lengthMask;
+    private final int[] otherLengths;
+
+    /**
+     * @param numberPatterns patterns to match
+     * @param validLengths   valid card number lengths
+     * @throws IllegalArgumentException if there's an unsupported type of pattern
+     */
+    CardTypeMatcher(NumberPattern[] numberPatterns, int[] validLengths) {
+        List<String> longPrefixes = new ArrayList<String>();
+        List<long[]> ranges = new ArrayList<long[]>();
+        int firstDigits = 0;
+        for (NumberPattern pattern : numberPatterns) {
+            int length = pattern.getLength();
+            if (pattern instanceof SingleNumberPattern && length > RangePattern.MAX_LENGTH) {
+                String prefix = ((SingleNumberPattern) pattern).getNumberPattern();
+                if (!longPrefixes.contains(prefix)) {
+                    longPrefixes.add(prefix);
+                }
+                firstDigits |= 1 << (prefix.charAt(0) - '0');
+                continue;
+            }
+
+            long min;
+            long max;
+            if (pattern instanceof SingleNumberPattern) {
+                min = Long.parseLong(((SingleNumberPattern) pattern).getNumberPattern());
+                max = min;
+            } else if (pattern instanceof RangePattern) {
+                min = ((RangePattern) pattern).getMin();
+                max = ((RangePattern) pattern).getMax();
+            } else {
+                throw new IllegalArgumentException("Unsupported pattern: " + pattern);
+            }
+            ranges.add(new long[]{length, min, max});
+            for (long digit = min / POWERS_OF_TEN[length - 1]; digit <= max / POWERS_OF_TEN[length - 1]; digit++) {
+                firstDigits |= 1 << digit;
+            }
+        }
+        this.firstDigits = firstDigits;
+
+        Collections.sort(longPrefixes, new Comparator<String>() {
+            @Override
+            public int compare(String lhs, String rhs) {
+                return rhs.length() - lhs.length();
+            }
+        });
+        ranges = mergeRanges(ranges);
+
+        int count = longPrefixes.size() + ranges.size();
+        lengths = new int[count];
+        mins = new long[count];
+        maxes = new long[count];
+        prefixes = new String[count];
+        int i = 0;
+        for (String prefix : longPrefixes) {
+            lengths[i] = prefix.length();
+            prefixes[i] = prefix;
+            i++;
+        }
+        int maxRangeLength = 0;
+        for (long[] range : ranges) {
+            lengths[i] = (int) range[0];
+            mins[i] = range[1];
+            maxes[i] = range[2];
+            maxRangeLength = Math.max(maxRangeLength, lengths[i]);
+            i++;
+        }
+        this.maxRangeLength = maxRangeLength;
+
+        long lengthMask = 0;
+        int otherCount = 0;
+        for (int length : validLengths) {
+            if (length < Long.SIZE) {
+                lengthMask |= 1L << length;
+            } else {
+                otherCount++;
+            }
+        }
+        this.lengthMask = lengthMask;
+        otherLengths = new int[otherCount];
+        for (int length : validLengths) {
+            if (length >= Long.SIZE) {
+                otherLengths[--otherCount] = length;
+            }
+        }
+    }
+
+    /**
+     * @param ranges {length, min, max} for each range
+     * @return the ranges by descending length then ascending min, with any which overlap or are adjacent merged
+     */
+    private static List<long[]> mergeRanges(List<long[]> ranges) {
+        Collections.sort(ranges, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] lhs, long[] rhs) {
+                if (lhs[0] != rhs[0]) {
+                    return lhs[0] > rhs[0] ? -1 : 1;
+                }
+                return lhs[1] < rhs[1] ? -1 : (lhs[1] == rhs[1] ? 0 : 1);
+            }
+        });
+        List<long[]> merged = new ArrayList<long[]>();
+        long[] current = null;
+        for (long[] range : ranges) {
+            if (current != null && current[0] == range[0] && range[1] <= current[2] + 1) {
+                current[2] = Math.max(current[2], range[2]);
+            } else {
+                current = range.clone();
+                merged.add(current);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * See {@link CardType#getMatchStrength(CardNumber)}.
+     *
+     * @param digits the digits of the card number
+     * @return 0 for no match, or &gt;0 for a match
+     */
+    int getMatchStrength(CharSequence digits) {
+        final int length = digits.length();
+        if (length == 0 || (firstDigits & (1 << (digits.charAt(0) - '0'))) == 0) {
+            return 0;
+        }
+
+        int valueLength = Math.min(length, maxRangeLength);
+        long value = 0;
+        for (int i = 0; i < valueLength; i++) {
+            value = value * 10 + (digits.charAt(i) - '0');
+        }
+
+        for (int i = 0; i < lengths.length; i++) {
+            int patternLength = lengths[i];
+            if (patternLength > length) {
+                continue;
+            }
+            boolean match;
+            if (prefixes[i] != null) {
+                match = startsWith(digits, prefixes[i]);
+            } else {
+                long prefixValue = value / POWERS_OF_TEN[valueLength - patternLength];
+                match = mins[i] <= prefixValue && prefixValue <= maxes[i];
+            }
+            if (match) {
+                // Sorted by length, so this is the strongest match.
+                return (patternLength << 1) | (lengthMatches(length) ? 1 : 0);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param length number of digits
+     * @return true if the length is one of the valid lengths
+     */
+    boolean lengthMatches(int length) {
+        if (length >= 0 && length < Long.SIZE) {
+            return (lengthMask & (1L << length)) != 0;
+        }
+        for (int i = 0; i < otherLengths.length; i++) {
+            if (length == otherLengths[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of patterns left after merging
+     */
+    int getPatternCount() {
+        return lengths.length;
+    }
+
+    private static boolean startsWith(CharSequence digits, String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            if (digits.charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+/**
+ * Helpers for decoding the {@code int} results of {@link ValidatedCardFactory#classify(CharSequence)} and its
+ * overloads.
+ * <p>
+ * A classification holds:
+ * <ul>
+ *     <li>bit 0 - set if the card number passes a Luhn check</li>
+ *     <li>bit 1 - set if the card number is a valid length for the card type</li>
+ *     <li>bits 2-15 - the length of the matching number pattern</li>
+ *     <li>bits 16-31 - the ordinal of the card type in the factory</li>
+ * </ul>
+ * Bits 1-15 together are the match strength, as returned by {@link CardType#getMatchStrength(CardNumber)}. If no card
+ * type matched, the classification is {@link #NO_MATCH}.
+ */
+public final class Classification {
+
+    /**
+     * The classification of a card number which doesn't match any card type.
+     */
+    public static final int NO_MATCH = 0;
+
+    private static final int LUHN_BIT = 1;
+    private static final int LENGTH_BIT = 2;
+
+    private Classification() {
+    }
+
+    /**
+     * @param matchStrength strength of the match, as returned by {@link CardType#getMatchStrength(CardNumber)}
+     * @param typeOrdinal   ordinal of the card type
+     * @param luhnCheck     whether the card number passes a Luhn check
+     * @return the classification
+     */
+    static int encode(int matchStrength, int typeOrdinal, boolean luhnCheck) {
+        return (typeOrdinal << 16) | (matchStrength << 1) | (luhnCheck ? LUHN_BIT : 0);
+    }
+
+    /**
+     * @param classification a classification
+     * @return true if a card type matched
+     */
+    public static boolean isMatch(int classification) {
+        return classification != NO_MATCH;
+    }
+
+    /**
+     * @param classification a classification
+     * @return ordinal of the matching card type (see {@link ValidatedCardFactory#getCardType(int)}), or -1 if no card
+     * type matched
+     */
+    public static int getTypeOrdinal(int classification) {
+        return classification != NO_MATCH ? classification >>> 16 : -1;
+    }
+
+    /**
+     * @param classification a classification
+     * @return the match strength, as returned by {@link CardType#getMatchStrength(CardNumber)}, or 0 if no card type
+     * matched
+     */
+    public static int getMatchStrength(int classification) {
+        return (classification >>> 1) & 0x7FFF;
+    }
+
+    /**
+     * @param classification a classification
+     * @return true if a card type matched, and the card number is a valid length for it
+     */
+    public static boolean isLengthValid(int classification) {
+        return (classification & LENGTH_BIT) != 0;
+    }
+
+    /**
+     * @param classification a classification
+     * @return true if a card type matched, and the card number passes a Luhn check
+     */
+    public static boolean passesLuhnCheck(int classification) {
+        return (classification & LUHN_BIT) != 0;
+    }
+
+    /**
+     * @param classification a classification
+     * @return true if the card number passes the same checks as {@link ValidatedCard#isNumberValid()}
+     */
+    public static boolean isNumberValid(int classification) {
+        return (classification & (LENGTH_BIT | LUHN_BIT)) == (LENGTH_BIT | LUHN_BIT);
+    }
+}
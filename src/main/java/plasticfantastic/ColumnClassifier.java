@@ -0,0 +1,263 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Classifies a column of card numbers held in one buffer, returning the results as columns too.
+ * <p>
+ * The layout follows Arrow-style string columns. The card numbers are ASCII, one after another in a single
+ * {@code byte[]} or {@link ByteBuffer}, and an offsets array holds the start of each one, followed by the end of the
+ * last. So card number {@code i} runs from {@code offsets[i]} up to {@code offsets[i + 1]}, and there is one more
+ * offset than card numbers.
+ * <p>
+ * No objects are created per card number. As with {@link CardNumber}, whitespace is ignored. A card number is
+ * malformed if it holds anything other than digits and whitespace, or has no digits at all.
+ * <p>
+ * Bitmaps have bit {@code i & 63} of word {@code i >>> 6} for card number {@code i}, which is the layout used by
+ * {@code BitSet.valueOf(long[])}.
+ */
+public class ColumnClassifier {
+
+    /**
+     * Per-card number results of classifying a column. All of the arrays are returned directly, not copied.
+     */
+    public static final class Result {
+        private final int[] typeOrdinals;
+        private final long[] luhnValid;
+        private final long[] lengthValid;
+        private final long[] malformed;
+
+        private Result(int size) {
+            typeOrdinals = new int[size];
+            int words = (size + 63) >>> 6;
+            luhnValid = new long[words];
+            lengthValid = new long[words];
+            malformed = new long[words];
+        }
+
+        /**
+         * @return the number of card numbers
+         */
+        public int size() {
+            return typeOrdinals.length;
+        }
+
+        /**
+         * @return the ordinal of the matching card type for each card number (see
+         * {@link ValidatedCardFactory#getCardType(int)}), or -1 if no card type matched or the card number is malformed
+         */
+        public int[] getTypeOrdinals() {
+            return typeOrdinals;
+        }
+
+        /**
+         * @return bitmap of card numbers which pass a Luhn check, whether or not a card type matched
+         */
+        public long[] getLuhnValid() {
+            return luhnValid;
+        }
+
+        /**
+         * @return bitmap of card numbers which are a valid length for the matching card type
+         */
+        public long[] getLengthValid() {
+            return lengthValid;
+        }
+
+        /**
+         * @return bitmap of card numbers which are malformed
+         */
+        public long[] getMalformed() {
+            return malformed;
+        }
+
+        /**
+         * @param index index of the card number
+         * @return true if the card number passes the same checks as {@link ValidatedCard#isNumberValid()}
+         */
+        public boolean isNumberValid(int index) {
+            return isSet(luhnValid, index) && isSet(lengthValid, index);
+        }
+
+        private static boolean isSet(long[] bitmap, int index) {
+            return (bitmap[index >>> 6] & (1L << index)) != 0;
+        }
+    }
+
+    private final ValidatedCardFactory factory;
+
+    /**
+     * @param factory used to classify the card numbers
+     * @throws NullPointerException if factory is null
+     */
+    public ColumnClassifier(ValidatedCardFactory factory) {
+        if (factory == null) {
+            throw new NullPointerException("factory cannot be null");
+        }
+        this.factory = factory;
+    }
+
+    /**
+     * Classify a column of card numbers.
+     *
+     * @param data    the card numbers, as ASCII
+     * @param offsets start of each card number in data, then the end of the last
+     * @return the results
+     * @throws NullPointerException      if data or offsets is null
+     * @throws IllegalArgumentException  if offsets is empty, or decreases
+     * @throws IndexOutOfBoundsException if an offset is outside of data
+     */
+    public Result classify(byte[] data, int[] offsets) {
+        if (data == null) {
+            throw new NullPointerException("data cannot be null");
+        }
+        checkOffsets(offsets, data.length);
+        return new Column(data, 0, offsets).classify();
+    }
+
+    /**
+     * Classify a column of card numbers. Offsets are from the buffer's position, which is not changed.
+     *
+     * @param data    the card numbers, as ASCII
+     * @param offsets start of each card number in data, then the end of the last
+     * @return the results
+     * @throws NullPointerException      if data or offsets is null
+     * @throws IllegalArgumentException  if offsets is empty, or decreases
+     * @throws IndexOutOfBoundsException if an offset is outside of the buffer's remaining bytes
+     */
+    public Result classify(ByteBuffer data, int[] offsets) {
+        if (data == null) {
+            throw new NullPointerException("data cannot be null");
+        }
+        checkOffsets(offsets, data.remaining());
+        if (data.hasArray()) {
+            return new Column(data.array(), data.arrayOffset() + data.position(), offsets).classify();
+        }
+        return new Column(data, offsets).classify();
+    }
+
+    private static void checkOffsets(int[] offsets, int dataLength) {
+        if (offsets == null) {
+            throw new NullPointerException("offsets cannot be null");
+        }
+        if (offsets.length == 0) {
+            throw new IllegalArgumentException("offsets cannot be empty");
+        }
+        if (offsets[0] < 0) {
+            throw new IndexOutOfBoundsException("Offset " + offsets[0] + " is negative");
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            if (offsets[i] < offsets[i - 1]) {
+                throw new IllegalArgumentException("Offsets decrease at index " + i);
+            }
+        }
+        if (offsets[offsets.length - 1] > dataLength) {
+            throw new IndexOutOfBoundsException(
+                    "Offset " + offsets[offsets.length - 1] + " is past the end of the data (" + dataLength + ")");
+        }
+    }
+
+    /**
+     * Holds the state for classifying one column.
+     */
+    private final class Column {
+        private final byte[] array;
+        private final int base;
+        private final ByteBuffer buffer;
+        private final int[] offsets;
+        private byte[] digits = new byte[32];
+
+        private Column(byte[] array, int base, int[] offsets) {
+            this.array = array;
+            this.base = base;
+            this.buffer = null;
+            this.offsets = offsets;
+        }
+
+        private Column(ByteBuffer buffer, int[] offsets) {
+            this.array = null;
+            this.base = buffer.position();
+            this.buffer = buffer;
+            this.offsets = offsets;
+        }
+
+        private Result classify() {
+            Result result = new Result(offsets.length - 1);
+            for (int i = 0; i < result.size(); i++) {
+                int start = base + offsets[i];
+                int length = offsets[i + 1] - offsets[i];
+
+                // Card numbers which are only digits are checked in place. Others are copied without whitespace.
+                byte[] source = array;
+                int offset = start;
+                int digitCount = buffer == null ? countLeadingDigits(start, length) : -1;
+                if (digitCount != length) {
+                    source = digits;
+                    offset = 0;
+                    digitCount = copyDigits(start, length);
+                }
+
+                if (digitCount <= 0) {
+                    result.typeOrdinals[i] = -1;
+                    result.malformed[i >>> 6] |= 1L << i;
+                    continue;
+                }
+                int match = factory.findBestMatch(source, offset, digitCount);
+                result.typeOrdinals[i] = PrefixTrie.getTypeIndex(match);
+                if (match != PrefixTrie.NO_MATCH && (PrefixTrie.getStrength(match) & 1) != 0) {
+                    result.lengthValid[i >>> 6] |= 1L << i;
+                }
+                if (Luhn.passesCheck(source, offset, digitCount)) {
+                    result.luhnValid[i >>> 6] |= 1L << i;
+                }
+            }
+            return result;
+        }
+
+        private int countLeadingDigits(int start, int length) {
+            int i = 0;
+            while (i < length && array[start + i] >= '0' && array[start + i] <= '9') {
+                i++;
+            }
+            return i;
+        }
+
+        /**
+         * Copy the digits to {@link #digits}, skipping whitespace.
+         *
+         * @return the number of digits, or -1 if there's anything other than digits and whitespace
+         */
+        private int copyDigits(int start, int length) {
+            int count = 0;
+            for (int i = start; i < start + length; i++) {
+                byte b = array != null ? array[i] : buffer.get(i);
+                if (b >= '0' && b <= '9') {
+                    if (count == digits.length) {
+                        byte[] grown = new byte[digits.length * 2];
+                        System.arraycopy(digits, 0, grown, 0, count);
+                        digits = grown;
+                    }
+                    digits[count++] = b;
+                } else if (!CardNumber.isWhitespace((char) (b & 0xFF))) {
+                    return -1;
+                }
+            }
+            return count;
+        }
+    }
+}
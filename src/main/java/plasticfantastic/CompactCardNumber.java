@@ -0,0 +1,173 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+/**
+ * A memory efficient alternative to {@link CardNumber}, for when large numbers of card numbers need to be kept.
+ * <p>
+ * Up to {@link #MAX_LENGTH} digits are packed into two {@code long}s, 4 bits per digit, along with the number of digits
+ * so that leading zeros are kept. Equality, hashing, length and the Luhn check all work on the packed digits. The
+ * {@link String} form is only built when asked for, and isn't kept.
+ */
+public final class CompactCardNumber {
+
+    /**
+     * Maximum number of digits (the maximum length of an ISO/IEC 7812 card number).
+     */
+    public static final int MAX_LENGTH = 19;
+
+    private static final int DIGITS_PER_LONG = 16;
+
+    /**
+     * Digits, starting from the rightmost in the lowest 4 bits of {@code low}. Any beyond the 16th are in {@code high}.
+     */
+    private final long low;
+    private final long high;
+    private final byte length;
+
+    /**
+     * @param numberString partial or complete card number (must consist only of digits, and optional whitespace)
+     * @throws NullPointerException     if numberString is null
+     * @throws NumberFormatException    if numberString is not a valid number, or is negative
+     * @throws IllegalArgumentException if numberString is a valid number, but has more than {@link #MAX_LENGTH} digits
+     */
+    public CompactCardNumber(String numberString) {
+        this(numberString, CardNumber.NO_SEPARATORS);
+    }
+
+    /**
+     * @param cardNumber card number to copy
+     * @throws NullPointerException     if cardNumber is null
+     * @throws IllegalArgumentException if cardNumber has more than {@link #MAX_LENGTH} digits
+     */
+    public CompactCardNumber(CardNumber cardNumber) {
+        this(getNumberString(cardNumber), CardNumber.NO_SEPARATORS);
+    }
+
+    /**
+     * @param numberString partial or complete card number (must consist only of digits, and optional whitespace or
+     *                     separator characters)
+     * @param separators   characters which may separate groups of digits, and are ignored along with any whitespace.
+     *                     e.g. '-' and '.'
+     * @throws NullPointerException     if numberString or separators is null
+     * @throws NumberFormatException    if numberString is not a valid number, or is negative
+     * @throws IllegalArgumentException if numberString is a valid number, but has more than {@link #MAX_LENGTH} digits
+     */
+    public CompactCardNumber(String numberString, char... separators) {
+        if (numberString == null) {
+            throw new NullPointerException("numberString cannot be null");
+        }
+        if (separators == null) {
+            throw new NullPointerException("separators cannot be null");
+        }
+        long low = 0;
+        long high = 0;
+        int count = 0;
+        for (int i = 0; i < numberString.length(); i++) {
+            char c = numberString.charAt(i);
+            if (CardNumber.isDigit(c)) {
+                // Keep counting past the maximum, so that invalid characters are reported whatever the length.
+                if (count < MAX_LENGTH) {
+                    // Shift the digits so far left by one, and add the new one on the right.
+                    high = (high << 4) | (low >>> 60);
+                    low = (low << 4) | (c - '0');
+                }
+                count++;
+            } else if (!CardNumber.isWhitespace(c) && !CardNumber.isSeparator(c, separators)) {
+                count = 0;
+                break;
+            }
+        }
+        if (count == 0) {
+            throw new NumberFormatException("Not a valid card number: '" + numberString + "'");
+        }
+        if (count > MAX_LENGTH) {
+            throw new IllegalArgumentException("Card number cannot have more than " + MAX_LENGTH + " digits");
+        }
+        this.low = low;
+        this.high = high;
+        this.length = (byte) count;
+    }
+
+    private static String getNumberString(CardNumber cardNumber) {
+        if (cardNumber == null) {
+            throw new NullPointerException("cardNumber cannot be null");
+        }
+        return cardNumber.getNumberString();
+    }
+
+    /**
+     * Builds a new string on each call.
+     *
+     * @return the normalised form of the card number (i.e. digits only, no whitespace or separators)
+     */
+    public String getNumberString() {
+        char[] digits = new char[length];
+        for (int i = 0; i < length; i++) {
+            int fromRight = length - 1 - i;
+            long packed = fromRight < DIGITS_PER_LONG ? low : high;
+            digits[i] = (char) ('0' + ((packed >>> ((fromRight % DIGITS_PER_LONG) * 4)) & 0xF));
+        }
+        return new String(digits);
+    }
+
+    /**
+     * @return the number of digits comprising the card number
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Check whether the card number passes a Luhn algorithm check.
+     * See <a href="http://en.wikipedia.org/wiki/Luhn_algorithm">here</a> for more information.
+     *
+     * @return true if the number is valid according to the Luhn formula.
+     */
+    public boolean passesLuhnCheck() {
+        return Luhn.passesCheck(low, high);
+    }
+
+    /**
+     * @return an equivalent {@link CardNumber}
+     */
+    public CardNumber toCardNumber() {
+        return new CardNumber(getNumberString());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        CompactCardNumber that = (CompactCardNumber) o;
+
+        return low == that.low && high == that.high && length == that.length;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (low ^ (low >>> 32));
+        result = 31 * result + (int) (high ^ (high >>> 32));
+        result = 31 * result + length;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return getNumberString();
+    }
+}
@@ -0,0 +1,415 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import plasticfantastic.internal.NumberPattern;
+import plasticfantastic.internal.RangePattern;
+import plasticfantastic.internal.SingleNumberPattern;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes factories in a compact binary format, which is much quicker to load than JSON.
+ * <p>
+ * The file holds the card types, with their number patterns already parsed, and the index used to match card numbers
+ * against them. Loading it is a single read, followed by copying the data into place. Nothing is parsed from text, and
+ * the index doesn't need to be rebuilt. Factories read from a file give the same results as the factory which was
+ * written.
+ * <p>
+ * <strong>Format</strong><br>
+ * All values are big-endian.
+ * <ul>
+ *     <li>magic number - 4 bytes, "PFCT"</li>
+ *     <li>format version - int, currently {@value #VERSION}</li>
+ *     <li>length of the body in bytes - int</li>
+ *     <li>body - the card types, followed by the index</li>
+ *     <li>CRC-32 checksum of everything before it - int</li>
+ * </ul>
+ * Files with a different version are rejected, rather than converted. They should be written again from the JSON
+ * definitions.
+ */
+public final class CompiledCardTypes {
+
+    private static final Logger LOGGER = Logger.getLogger(CompiledCardTypes.class.getName());
+
+    /**
+     * Current version of the format.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x50464354;
+    private static final int HEADER_SIZE = 12;
+    private static final int CHECKSUM_SIZE = 4;
+
+    private static final byte NO_TYPE = 0;
+    private static final byte TYPE = 1;
+    private static final byte SINGLE_NUMBER_PATTERN = 0;
+    private static final byte RANGE_PATTERN = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+    private CompiledCardTypes() {
+    }
+
+    /**
+     * Write a factory's card types to a file.
+     *
+     * @param factory the factory to write
+     * @param file    the file to write to. Any existing file is replaced.
+     * @throws NullPointerException if factory or file is null
+     * @throws IOException          if there was some problem writing the file
+     */
+    public static void write(ValidatedCardFactory factory, File file) throws IOException {
+        if (file == null) {
+            throw new NullPointerException("file cannot be null");
+        }
+        byte[] bytes = toBytes(factory);
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(bytes);
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    /**
+     * Write a factory's card types to a stream.
+     *
+     * @param factory      the factory to write
+     * @param outputStream to write to. This is not closed.
+     * @throws NullPointerException if factory or outputStream is null
+     * @throws IOException          if there was some problem writing to the stream
+     */
+    public static void write(ValidatedCardFactory factory, OutputStream outputStream) throws IOException {
+        if (outputStream == null) {
+            throw new NullPointerException("outputStream cannot be null");
+        }
+        outputStream.write(toBytes(factory));
+    }
+
+    /**
+     * Read a factory from a file written by {@link #write(ValidatedCardFactory, File)}.
+     *
+     * @param file the file to read
+     * @return a new factory
+     * @throws NullPointerException if file is null
+     * @throws IOException          if there was some problem reading the file, or it isn't a valid file of this format
+     *                              and version
+     */
+    public static ValidatedCardFactory read(File file) throws IOException {
+        if (file == null) {
+            throw new NullPointerException("file cannot be null");
+        }
+        FlightRecorderEvents events = FlightRecorderEvents.get();
+        Object load = events.beginLoad();
+        FileInputStream inputStream = new FileInputStream(file);
+        try {
+            long length = file.length();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("File too large: " + length);
+            }
+            byte[] bytes = new byte[(int) length];
+            readFully(inputStream, bytes);
+            if (inputStream.read() != -1) {
+                throw new IOException("File changed while being read");
+            }
+            ValidatedCardFactory factory = fromBytes(bytes);
+            events.endLoad(load, file.getPath(), factory);
+            return factory;
+        } finally {
+            // Close silently, but at least log issues.
+            try {
+                inputStream.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, e.toString(), e);
+            }
+        }
+    }
+
+    /**
+     * Read a factory from a stream written by {@link #write(ValidatedCardFactory, OutputStream)}. The stream is read
+     * up to the end of the data.
+     *
+     * @param inputStream to read from. This is not closed.
+     * @return a new factory
+     * @throws NullPointerException if inputStream is null
+     * @throws IOException          if there was some problem reading the stream, or it doesn't hold valid data of
+     *                              this format and version
+     */
+    public static ValidatedCardFactory read(InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            throw new NullPointerException("inputStream cannot be null");
+        }
+        FlightRecorderEvents events = FlightRecorderEvents.get();
+        Object load = events.beginLoad();
+        byte[] header = new byte[HEADER_SIZE];
+        readFully(inputStream, header);
+        int bodyLength = checkHeader(ByteBuffer.wrap(header));
+        byte[] bytes = new byte[HEADER_SIZE + bodyLength + CHECKSUM_SIZE];
+        System.arraycopy(header, 0, bytes, 0, HEADER_SIZE);
+        readFully(inputStream, bytes, HEADER_SIZE, bytes.length - HEADER_SIZE);
+        ValidatedCardFactory factory = fromBytes(bytes);
+        events.endLoad(load, "compiled InputStream", factory);
+        return factory;
+    }
+
+    private static void readFully(InputStream inputStream, byte[] bytes) throws IOException {
+        readFully(inputStream, bytes, 0, bytes.length);
+    }
+
+    private static void readFully(InputStream inputStream, byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            int read = inputStream.read(bytes, offset, length);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of data");
+            }
+            offset += read;
+            length -= read;
+        }
+    }
+
+    static byte[] toBytes(ValidatedCardFactory factory) throws IOException {
+        if (factory == null) {
+            throw new NullPointerException("factory cannot be null");
+        }
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(byteStream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        // Body length, filled in below.
+        out.writeInt(0);
+
+        List<CardType> cardTypes = factory.getCardTypesList();
+        out.writeInt(cardTypes.size());
+        for (CardType cardType : cardTypes) {
+            if (cardType == null) {
+                out.writeByte(NO_TYPE);
+            } else {
+                out.writeByte(TYPE);
+                writeCardType(out, cardType);
+            }
+        }
+        writePrefixTrie(out, factory.getPrefixTrie());
+        out.flush();
+
+        int end = byteStream.size();
+        byte[] bytes = Arrays.copyOf(byteStream.toByteArray(), end + CHECKSUM_SIZE);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.putInt(8, end - HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, end);
+        buffer.putInt(end, (int) crc.getValue());
+        return bytes;
+    }
+
+    private static void writeCardType(DataOutputStream out, CardType cardType) throws IOException {
+        byte[] name = cardType.getName().getBytes(UTF_8);
+        out.writeInt(name.length);
+        out.write(name);
+
+        int[] validLengths = cardType.getValidLengths();
+        out.writeInt(validLengths.length);
+        for (int length : validLengths) {
+            out.writeInt(length);
+        }
+
+        NumberPattern[] patterns = cardType.getNumberPatterns();
+        out.writeInt(patterns.length);
+        for (NumberPattern pattern : patterns) {
+            if (pattern instanceof RangePattern) {
+                RangePattern range = (RangePattern) pattern;
+                out.writeByte(RANGE_PATTERN);
+                out.writeInt(range.getLength());
+                out.writeLong(range.getMin());
+                out.writeLong(range.getMax());
+            } else if (pattern instanceof SingleNumberPattern) {
+                byte[] digits = ((SingleNumberPattern) pattern).getNumberPattern().getBytes(US_ASCII);
+                out.writeByte(SINGLE_NUMBER_PATTERN);
+                out.writeInt(digits.length);
+                out.write(digits);
+            } else {
+                throw new IllegalArgumentException("Unsupported pattern type: " + pattern.getClass().getName());
+            }
+        }
+    }
+
+    private static void writePrefixTrie(DataOutputStream out, PrefixTrie trie) throws IOException {
+        int nodeCount = trie.getNodeCount();
+        out.writeInt(nodeCount);
+        for (int node = 0; node < nodeCount; node++) {
+            for (int digit = 0; digit < 10; digit++) {
+                out.writeInt(trie.getChild(node, digit));
+            }
+        }
+        for (int node = 0; node <= nodeCount; node++) {
+            out.writeInt(trie.getFirstEntry(node));
+        }
+        int entryCount = trie.getFirstEntry(nodeCount);
+        for (int e = 0; e < entryCount; e++) {
+            out.writeInt(trie.getEntryType(e));
+        }
+        for (int e = 0; e < entryCount; e++) {
+            out.writeInt(trie.getEntryLength(e));
+        }
+    }
+
+    /**
+     * @return the length of the body
+     */
+    private static int checkHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a compiled card types file");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported version: " + version + ", expected " + VERSION);
+        }
+        int bodyLength = buffer.getInt(8);
+        if (bodyLength < 0 || bodyLength > Integer.MAX_VALUE - HEADER_SIZE - CHECKSUM_SIZE) {
+            throw new IOException("Invalid body length: " + bodyLength);
+        }
+        return bodyLength;
+    }
+
+    static ValidatedCardFactory fromBytes(byte[] bytes) throws IOException {
+        if (bytes.length < HEADER_SIZE + CHECKSUM_SIZE) {
+            throw new IOException("Not a compiled card types file");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int bodyLength = checkHeader(buffer);
+        int end = HEADER_SIZE + bodyLength;
+        if (end + CHECKSUM_SIZE != bytes.length) {
+            throw new IOException("Expected " + (end + CHECKSUM_SIZE) + " bytes, but found " + bytes.length);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, end);
+        if ((int) crc.getValue() != buffer.getInt(end)) {
+            throw new IOException("Checksum mismatch");
+        }
+
+        buffer.position(HEADER_SIZE);
+        buffer.limit(end);
+        try {
+            int typeCount = readCount(buffer, 1);
+            List<CardType> cardTypes = new ArrayList<CardType>(typeCount);
+            for (int i = 0; i < typeCount; i++) {
+                byte flag = buffer.get();
+                if (flag == NO_TYPE) {
+                    cardTypes.add(null);
+                } else if (flag == TYPE) {
+                    cardTypes.add(readCardType(buffer));
+                } else {
+                    throw new IOException("Invalid card type flag: " + flag);
+                }
+            }
+            PrefixTrie trie = readPrefixTrie(buffer, cardTypes);
+            if (buffer.hasRemaining()) {
+                throw new IOException("Unexpected data at end of body");
+            }
+            return new ValidatedCardFactory(cardTypes, trie);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Unexpected end of body", e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid data", e);
+        }
+    }
+
+    private static CardType readCardType(ByteBuffer buffer) throws IOException {
+        byte[] name = new byte[readCount(buffer, 1)];
+        buffer.get(name);
+
+        int[] validLengths = new int[readCount(buffer, 4)];
+        if (validLengths.length == 0) {
+            throw new IOException("No valid lengths");
+        }
+        for (int i = 0; i < validLengths.length; i++) {
+            validLengths[i] = buffer.getInt();
+            if (validLengths[i] <= 0) {
+                throw new IOException("Invalid length: " + validLengths[i]);
+            }
+        }
+
+        NumberPattern[] patterns = new NumberPattern[readCount(buffer, 5)];
+        if (patterns.length == 0) {
+            throw new IOException("No number patterns");
+        }
+        for (int i = 0; i < patterns.length; i++) {
+            byte kind = buffer.get();
+            if (kind == RANGE_PATTERN) {
+                patterns[i] = new RangePattern(buffer.getInt(), buffer.getLong(), buffer.getLong());
+            } else if (kind == SINGLE_NUMBER_PATTERN) {
+                byte[] digits = new byte[readCount(buffer, 1)];
+                buffer.get(digits);
+                patterns[i] = new SingleNumberPattern(new String(digits, US_ASCII));
+            } else {
+                throw new IOException("Invalid pattern kind: " + kind);
+            }
+        }
+        return new CardType(new String(name, UTF_8), patterns, validLengths);
+    }
+
+    private static PrefixTrie readPrefixTrie(ByteBuffer buffer, List<CardType> cardTypes) throws IOException {
+        int nodeCount = readCount(buffer, 44);
+        int[] children = readInts(buffer, nodeCount * 10);
+        int[] entryOffsets = readInts(buffer, nodeCount + 1);
+        int entryCount = entryOffsets[nodeCount];
+        if (entryCount < 0 || entryCount > buffer.remaining() / 8) {
+            throw new IOException("Invalid entry count: " + entryCount);
+        }
+        int[] entryTypes = readInts(buffer, entryCount);
+        int[] entryLengths = readInts(buffer, entryCount);
+        return new PrefixTrie(cardTypes, children, entryOffsets, entryTypes, entryLengths);
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] result = new int[count];
+        buffer.asIntBuffer().get(result);
+        buffer.position(buffer.position() + count * 4);
+        return result;
+    }
+
+    /**
+     * Read a count of items, checking that there is enough data left for them, so that corrupt data can't cause a
+     * huge allocation.
+     *
+     * @param minItemSize smallest number of bytes taken by each item
+     */
+    private static int readCount(ByteBuffer buffer, int minItemSize) throws IOException {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / minItemSize) {
+            throw new IOException("Invalid count: " + count);
+        }
+        return count;
+    }
+}
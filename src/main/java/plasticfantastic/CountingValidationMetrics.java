@@ -0,0 +1,197 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+/**
+ * {@link ValidationMetrics} which counts what happens, and keeps histograms of how long it takes.
+ * <p>
+ * Matches are counted per card type ordinal (see {@link ValidatedCardFactory#getCardType(int)}). Luhn failures and
+ * length mismatches are only counted for card numbers which match a card type, and a card number can be counted as
+ * both. Parse failures are counted in the classify latency, as well as on their own.
+ * <p>
+ * Counters are striped, so threads recording at the same time don't contend with each other. Totals are read by
+ * adding up the stripes, so aren't an atomic snapshot while there are updates in progress.
+ */
+public class CountingValidationMetrics implements ValidationMetrics {
+
+    /**
+     * Indexed by card type ordinal. Only replaced, never modified, so it can be read without locking.
+     */
+    private volatile StripedCounter[] matchCounters = new StripedCounter[0];
+
+    private final StripedCounter unmatchedCounter = new StripedCounter();
+    private final StripedCounter luhnFailureCounter = new StripedCounter();
+    private final StripedCounter lengthMismatchCounter = new StripedCounter();
+    private final StripedCounter parseFailureCounter = new StripedCounter();
+    private final StripedCounter batchedCardCounter = new StripedCounter();
+    private final LatencyHistogram classifyLatency = new LatencyHistogram();
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+
+    @Override
+    public void onClassify(int classification, long elapsedNanos) {
+        classifyLatency.record(elapsedNanos);
+        if (!Classification.isMatch(classification)) {
+            unmatchedCounter.increment();
+            return;
+        }
+        getMatchCounter(Classification.getTypeOrdinal(classification)).increment();
+        if (!Classification.isLengthValid(classification)) {
+            lengthMismatchCounter.increment();
+        }
+        if (!Classification.passesLuhnCheck(classification)) {
+            luhnFailureCounter.increment();
+        }
+    }
+
+    @Override
+    public void onParseFailure(long elapsedNanos) {
+        classifyLatency.record(elapsedNanos);
+        parseFailureCounter.increment();
+    }
+
+    @Override
+    public void onBatch(int size, long elapsedNanos) {
+        batchLatency.record(elapsedNanos);
+        batchedCardCounter.add(size);
+    }
+
+    /**
+     * @param typeOrdinal ordinal of a card type
+     * @return the number of card numbers which matched the card type
+     * @throws IllegalArgumentException if typeOrdinal is negative
+     */
+    public long getMatchCount(int typeOrdinal) {
+        if (typeOrdinal < 0) {
+            throw new IllegalArgumentException("typeOrdinal cannot be negative");
+        }
+        StripedCounter[] counters = matchCounters;
+        return typeOrdinal < counters.length ? counters[typeOrdinal].sum() : 0;
+    }
+
+    /**
+     * @return the number of card numbers which matched any card type
+     */
+    public long getMatchCount() {
+        long sum = 0;
+        for (StripedCounter counter : matchCounters) {
+            sum += counter.sum();
+        }
+        return sum;
+    }
+
+    /**
+     * @return the number of card numbers which didn't match any card type
+     */
+    public long getUnmatchedCount() {
+        return unmatchedCounter.sum();
+    }
+
+    /**
+     * @return the number of card numbers which matched a card type, but failed the Luhn check
+     */
+    public long getLuhnFailureCount() {
+        return luhnFailureCounter.sum();
+    }
+
+    /**
+     * @return the number of card numbers which matched a card type, but weren't a valid length for it
+     */
+    public long getLengthMismatchCount() {
+        return lengthMismatchCounter.sum();
+    }
+
+    /**
+     * @return the number of card numbers which couldn't be parsed
+     */
+    public long getParseFailureCount() {
+        return parseFailureCounter.sum();
+    }
+
+    /**
+     * @return the total number of card numbers in all batches
+     */
+    public long getBatchedCardCount() {
+        return batchedCardCounter.sum();
+    }
+
+    /**
+     * @return latencies of each card number classified, whether by creating a card or not, including those which
+     * failed to parse
+     */
+    public LatencyHistogram getClassifyLatency() {
+        return classifyLatency;
+    }
+
+    /**
+     * @return latencies of each batch
+     */
+    public LatencyHistogram getBatchLatency() {
+        return batchLatency;
+    }
+
+    /**
+     * Set all of the counts to 0, and clear the histograms. Reports made at the same time may or may not be kept.
+     */
+    public void reset() {
+        for (StripedCounter counter : matchCounters) {
+            counter.reset();
+        }
+        unmatchedCounter.reset();
+        luhnFailureCounter.reset();
+        lengthMismatchCounter.reset();
+        parseFailureCounter.reset();
+        batchedCardCounter.reset();
+        classifyLatency.reset();
+        batchLatency.reset();
+    }
+
+    private StripedCounter getMatchCounter(int typeOrdinal) {
+        StripedCounter[] counters = matchCounters;
+        if (typeOrdinal < counters.length) {
+            return counters[typeOrdinal];
+        }
+        return growMatchCounters(typeOrdinal);
+    }
+
+    /**
+     * Only needed the first time each card type matches. The existing counters are kept, so no counts are lost.
+     */
+    private synchronized StripedCounter growMatchCounters(int typeOrdinal) {
+        StripedCounter[] counters = matchCounters;
+        if (typeOrdinal >= counters.length) {
+            StripedCounter[] grown = new StripedCounter[typeOrdinal + 1];
+            System.arraycopy(counters, 0, grown, 0, counters.length);
+            for (int i = counters.length; i < grown.length; i++) {
+                grown[i] = new StripedCounter();
+            }
+            matchCounters = grown;
+            counters = grown;
+        }
+        return counters[typeOrdinal];
+    }
+
+    @Override
+    public String toString() {
+        return "CountingValidationMetrics{matched=" + getMatchCount()
+                + ", unmatched=" + getUnmatchedCount()
+                + ", luhnFailures=" + getLuhnFailureCount()
+                + ", lengthMismatches=" + getLengthMismatchCount()
+                + ", parseFailures=" + getParseFailureCount()
+                + ", classifyLatency=" + classifyLatency
+                + ", batchLatency=" + batchLatency
+                + '}';
+    }
+}
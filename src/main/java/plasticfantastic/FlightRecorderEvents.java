@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hooks for Java Flight Recorder events about work the library does outside the hot path: loading card type
+ * definitions, and building indexes.
+ * <p>
+ * The events themselves are in the "jfr" source set, which is compiled for Java 8 and published as a separate jar,
+ * with the classifier "jfr". They are only loaded if that jar is on the classpath and the JVM has JFR (from Java 8
+ * update 262, or Java 11). Otherwise the hooks do nothing.
+ * <p>
+ * Each {@code begin} method returns a token, or null if the event isn't enabled, which is passed to the matching
+ * {@code end} method. If the work fails, the {@code end} method isn't called and nothing is recorded.
+ */
+abstract class FlightRecorderEvents {
+
+    private static final Logger LOGGER = Logger.getLogger(FlightRecorderEvents.class.getName());
+
+    private static final String IMPLEMENTATION_CLASS = "plasticfantastic.JfrFlightRecorderEvents";
+
+    private static final FlightRecorderEvents NONE = new FlightRecorderEvents() {
+        @Override
+        Object beginLoad() {
+            return null;
+        }
+
+        @Override
+        void endLoad(Object token, String source, ValidatedCardFactory factory) {
+        }
+
+        @Override
+        Object beginIndexBuild() {
+            return null;
+        }
+
+        @Override
+        void endIndexBuild(Object token, String index, int classCount) {
+        }
+    };
+
+    private static final FlightRecorderEvents INSTANCE = load();
+
+    /**
+     * @return the hooks to use
+     */
+    static FlightRecorderEvents get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Called before loading card type definitions.
+     *
+     * @return token to pass to {@link #endLoad(Object, String, ValidatedCardFactory)}, or null
+     */
+    abstract Object beginLoad();
+
+    /**
+     * Called after loading card type definitions.
+     *
+     * @param token   returned by {@link #beginLoad()}
+     * @param source  where the definitions came from, e.g. a file path
+     * @param factory the factory created from the definitions
+     */
+    abstract void endLoad(Object token, String source, ValidatedCardFactory factory);
+
+    /**
+     * Called before building an index of the card types.
+     *
+     * @return token to pass to {@link #endIndexBuild(Object, String, int)}, or null
+     */
+    abstract Object beginIndexBuild();
+
+    /**
+     * Called after building an index of the card types.
+     *
+     * @param token      returned by {@link #beginIndexBuild()}
+     * @param index      name of the index
+     * @param classCount number of distinct sets of matches the index holds
+     */
+    abstract void endIndexBuild(Object token, String index, int classCount);
+
+    private static FlightRecorderEvents load() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+        } catch (ClassNotFoundException e) {
+            return NONE;
+        }
+        try {
+            return (FlightRecorderEvents) Class.forName(IMPLEMENTATION_CLASS).newInstance();
+        } catch (Exception e) {
+            // Missing from the classpath, i.e. the "jfr" jar isn't in use.
+            LOGGER.log(Level.FINE, "Flight Recorder events not available", e);
+        } catch (LinkageError e) {
+            LOGGER.log(Level.FINE, "Flight Recorder events not available", e);
+        }
+        return NONE;
+    }
+}
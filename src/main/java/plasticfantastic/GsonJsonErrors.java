@@ -0,0 +1,48 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+
+import java.io.IOException;
+
+/**
+ * {@link JsonErrors} which creates Gson's exception types. Only loaded by name, if Gson is on the classpath.
+ */
+final class GsonJsonErrors extends JsonErrors {
+
+    @Override
+    RuntimeException createSyntax(String message) {
+        return new JsonSyntaxException(message);
+    }
+
+    @Override
+    RuntimeException createIo(IOException cause) {
+        return new JsonIOException(cause);
+    }
+
+    @Override
+    RuntimeException createInvalidData(String message, Throwable cause) {
+        return cause != null ? new JsonParseException(message, cause) : new JsonParseException(message);
+    }
+
+    @Override
+    boolean isError(RuntimeException e) {
+        return e instanceof JsonParseException;
+    }
+}
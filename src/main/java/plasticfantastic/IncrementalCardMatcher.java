@@ -0,0 +1,225 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Matches a card number as it is typed, one digit at a time.
+ * <p>
+ * Each call to {@link #append(char)} or {@link #deleteLast()} takes constant time, whatever the length of the card
+ * number, and the query methods don't allocate, apart from {@link #getNumberString()}. Results are the same as
+ * classifying the whole card number with the factory the matcher was created from, so {@link #getClassification()} is
+ * always equal to {@link ValidatedCardFactory#classify(CharSequence)} for {@link #getNumberString()}.
+ * <p>
+ * Matchers are cheap to create, and the tables they use are shared by all matchers for the same factory, so one can
+ * be kept for each user session. Instances are not thread-safe.
+ */
+public final class IncrementalCardMatcher {
+
+    private static final int INITIAL_CAPACITY = 20;
+
+    /**
+     * Luhn check values of each digit when doubled.
+     */
+    private static final int[] DOUBLED = {0, 2, 4, 6, 8, 1, 3, 5, 7, 9};
+
+    private final ValidatedCardFactory factory;
+    private final PrefixTrie prefixTrie;
+    private final IncrementalMatchTable table;
+
+    private int length;
+    private char[] digits = new char[INITIAL_CAPACITY];
+    /**
+     * Deepest trie node reached, and its depth, for each length up to the current one.
+     */
+    private int[] nodes = new int[INITIAL_CAPACITY + 1];
+    private int[] depths = new int[INITIAL_CAPACITY + 1];
+    /**
+     * Luhn state for each length up to the current one. See {@link #append(char)}.
+     */
+    private byte[] luhnSums = new byte[INITIAL_CAPACITY + 1];
+
+    /**
+     * @param factory used to match the card number
+     * @throws NullPointerException if factory is null
+     */
+    public IncrementalCardMatcher(ValidatedCardFactory factory) {
+        if (factory == null) {
+            throw new NullPointerException("factory cannot be null");
+        }
+        this.factory = factory;
+        prefixTrie = factory.getPrefixTrie();
+        table = prefixTrie.getIncrementalMatchTable();
+        nodes[0] = PrefixTrie.ROOT;
+    }
+
+    /**
+     * Add a digit to the end of the card number.
+     *
+     * @param digit the digit to add
+     * @throws IllegalArgumentException if digit isn't between '0' and '9'
+     */
+    public void append(char digit) {
+        if (digit < '0' || digit > '9') {
+            throw new IllegalArgumentException("Not a digit: '" + digit + "'");
+        }
+        if (length == digits.length) {
+            grow();
+        }
+        int value = digit - '0';
+        digits[length] = digit;
+
+        int node = nodes[length];
+        int depth = depths[length];
+        if (depth == length) {
+            int child = prefixTrie.getChild(node, value);
+            if (child != PrefixTrie.NO_NODE) {
+                node = child;
+                depth++;
+            }
+        }
+
+        // The Luhn check doubles every second digit counting back from the last one, so which digits are doubled
+        // changes with each new digit. Keep the sum mod 10 both ways: with the last digit not doubled (the high
+        // nibble), and with it doubled (the low nibble). Appending a digit swaps which of these applies to the
+        // digits before it.
+        int luhnSum = luhnSums[length] & 0xFF;
+        int undoubled = (luhnSum & 0xF) + value;
+        int doubled = (luhnSum >>> 4) + DOUBLED[value];
+
+        length++;
+        nodes[length] = node;
+        depths[length] = depth;
+        luhnSums[length] = (byte) (((undoubled % 10) << 4) | (doubled % 10));
+    }
+
+    /**
+     * Remove the last digit of the card number.
+     *
+     * @throws IllegalStateException if the card number is empty
+     */
+    public void deleteLast() {
+        if (length == 0) {
+            throw new IllegalStateException("Card number is empty");
+        }
+        length--;
+    }
+
+    /**
+     * Remove all the digits of the card number.
+     */
+    public void clear() {
+        length = 0;
+    }
+
+    /**
+     * @return the number of digits in the card number
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return the digits of the card number
+     */
+    public String getNumberString() {
+        return new String(digits, 0, length);
+    }
+
+    /**
+     * @return the card number's classification, as described in {@link Classification}
+     */
+    public int getClassification() {
+        int match = getBestMatch();
+        if (match == PrefixTrie.NO_MATCH) {
+            return Classification.NO_MATCH;
+        }
+        return Classification.encode(PrefixTrie.getStrength(match), PrefixTrie.getTypeIndex(match), passesLuhnCheck());
+    }
+
+    /**
+     * @return the best matching card type, or null if there is none
+     */
+    public CardType getCardType() {
+        int match = getBestMatch();
+        return match != PrefixTrie.NO_MATCH ? prefixTrie.getCardType(PrefixTrie.getTypeIndex(match)) : null;
+    }
+
+    /**
+     * @return strength of the match with {@link #getCardType()}, as returned by
+     * {@link CardType#getMatchStrength(CardNumber)}
+     */
+    public int getMatchStrength() {
+        return PrefixTrie.getStrength(getBestMatch());
+    }
+
+    /**
+     * @return true if the card number is a valid length for {@link #getCardType()}
+     */
+    public boolean isLengthValid() {
+        return (getMatchStrength() & 1) != 0;
+    }
+
+    /**
+     * @return true if the card number passes a Luhn check. An empty card number passes.
+     */
+    public boolean passesLuhnCheck() {
+        return (luhnSums[length] & 0xF0) == 0;
+    }
+
+    /**
+     * @return true if the card number passes the same checks as {@link ValidatedCard#isNumberValid()}
+     */
+    public boolean isNumberValid() {
+        return isLengthValid() && passesLuhnCheck();
+    }
+
+    /**
+     * The card types which could still match as more digits are added: those with number patterns which the card
+     * number already matches, or which start with the card number. Valid lengths aren't taken into account.
+     *
+     * @return the card types, in the order they were given to the factory
+     */
+    public List<CardType> getPossibleCardTypes() {
+        return table.getPossibleTypes(nodes[length], depths[length] == length);
+    }
+
+    /**
+     * @return the factory the matcher was created from
+     */
+    public ValidatedCardFactory getFactory() {
+        return factory;
+    }
+
+    private int getBestMatch() {
+        if (length < IncrementalMatchTable.MAX_LENGTH) {
+            return table.getBestMatch(nodes[length], length);
+        }
+        // Too long for any real card number, so not worth a table.
+        return prefixTrie.findBestMatch(CharBuffer.wrap(digits, 0, length));
+    }
+
+    private void grow() {
+        int capacity = digits.length * 2;
+        digits = Arrays.copyOf(digits, capacity);
+        nodes = Arrays.copyOf(nodes, capacity + 1);
+        depths = Arrays.copyOf(depths, capacity + 1);
+        luhnSums = Arrays.copyOf(luhnSums, capacity + 1);
+    }
+}
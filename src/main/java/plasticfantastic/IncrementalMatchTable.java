@@ -0,0 +1,207 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precomputed results for each node of a {@link PrefixTrie}, so that {@link IncrementalCardMatcher} can update in
+ * constant time.
+ * <p>
+ * Walking the trie digit by digit, the entries which can match are those on the path to the current node. So for each
+ * node this holds the best match for every card number length (below {@link #MAX_LENGTH}), and the card types which
+ * could still match: those on the path, plus those further down the trie if the walk hasn't left it. Nodes with the
+ * same entries or card types share results.
+ */
+final class IncrementalMatchTable {
+
+    static final int MAX_LENGTH = 64;
+
+    private final int[] matchClasses;
+    /**
+     * Best match for each class and length, at {@code class * MAX_LENGTH + length}.
+     */
+    private final int[] matches;
+
+    private final int[] possibleTypesInTrie;
+    private final int[] possibleTypesOnPath;
+    private final List<List<CardType>> typeSets;
+
+    /**
+     * @param prefixTrie trie to build the table from
+     */
+    IncrementalMatchTable(PrefixTrie prefixTrie) {
+        int nodeCount = prefixTrie.getNodeCount();
+        matchClasses = new int[nodeCount];
+        possibleTypesInTrie = new int[nodeCount];
+        possibleTypesOnPath = new int[nodeCount];
+
+        Builder builder = new Builder(prefixTrie);
+        builder.visit(PrefixTrie.ROOT, new ArrayList<int[]>());
+
+        matches = new int[builder.classMatches.size() * MAX_LENGTH];
+        for (int i = 0; i < builder.classMatches.size(); i++) {
+            System.arraycopy(builder.classMatches.get(i), 0, matches, i * MAX_LENGTH, MAX_LENGTH);
+        }
+        typeSets = builder.typeSets;
+    }
+
+    /**
+     * @return the number of distinct sets of best matches by length
+     */
+    int getClassCount() {
+        return matches.length / MAX_LENGTH;
+    }
+
+    /**
+     * @param node   deepest node reached in the trie
+     * @param length number of digits in the card number, less than {@link #MAX_LENGTH}
+     * @return the best match, as for {@link PrefixTrie#findBestMatch(CharSequence)}
+     */
+    int getBestMatch(int node, int length) {
+        return matches[matchClasses[node] * MAX_LENGTH + length];
+    }
+
+    /**
+     * @param node   deepest node reached in the trie
+     * @param inTrie true if the node is at the depth of the card number's length, so more digits could lead further
+     *               down the trie
+     * @return the card types which could match as more digits are added, in order. The list is unmodifiable.
+     */
+    List<CardType> getPossibleTypes(int node, boolean inTrie) {
+        return typeSets.get(inTrie ? possibleTypesInTrie[node] : possibleTypesOnPath[node]);
+    }
+
+    /**
+     * Fills in the tables with a walk over the trie.
+     */
+    private final class Builder {
+        private final PrefixTrie prefixTrie;
+        private final Map<String, Integer> classIds = new HashMap<String, Integer>();
+        private final List<int[]> classMatches = new ArrayList<int[]>();
+        private final Map<String, Integer> typeSetIds = new HashMap<String, Integer>();
+        private final List<List<CardType>> typeSets = new ArrayList<List<CardType>>();
+
+        private Builder(PrefixTrie prefixTrie) {
+            this.prefixTrie = prefixTrie;
+        }
+
+        /**
+         * @param path {type index, pattern length} for every entry on the path to the node, not including the node
+         * @return the sorted indexes of the card types with entries at or below the node
+         */
+        private int[] visit(int node, List<int[]> path) {
+            int added = 0;
+            int[] subtreeTypes = new int[0];
+            for (int e = prefixTrie.getFirstEntry(node); e < prefixTrie.getFirstEntry(node + 1); e++) {
+                path.add(new int[]{prefixTrie.getEntryType(e), prefixTrie.getEntryLength(e)});
+                subtreeTypes = union(subtreeTypes, new int[]{prefixTrie.getEntryType(e)});
+                added++;
+            }
+
+            int[][] entries = path.toArray(new int[path.size()][]);
+            matchClasses[node] = getClassId(entries);
+            int[] pathTypes = new int[0];
+            for (int[] entry : entries) {
+                pathTypes = union(pathTypes, new int[]{entry[0]});
+            }
+            possibleTypesOnPath[node] = getTypeSetId(pathTypes);
+
+            for (int digit = 0; digit < 10; digit++) {
+                int child = prefixTrie.getChild(node, digit);
+                if (child != PrefixTrie.NO_NODE) {
+                    subtreeTypes = union(subtreeTypes, visit(child, path));
+                }
+            }
+            possibleTypesInTrie[node] = getTypeSetId(union(pathTypes, subtreeTypes));
+
+            for (int i = 0; i < added; i++) {
+                path.remove(path.size() - 1);
+            }
+            return subtreeTypes;
+        }
+
+        private int getClassId(int[][] entries) {
+            int[][] sorted = entries.clone();
+            Arrays.sort(sorted, new Comparator<int[]>() {
+                @Override
+                public int compare(int[] lhs, int[] rhs) {
+                    return lhs[0] != rhs[0] ? lhs[0] - rhs[0] : lhs[1] - rhs[1];
+                }
+            });
+            StringBuilder sb = new StringBuilder();
+            for (int[] entry : sorted) {
+                sb.append(entry[0]).append(':').append(entry[1]).append(',');
+            }
+            String key = sb.toString();
+
+            Integer id = classIds.get(key);
+            if (id == null) {
+                id = classMatches.size();
+                classIds.put(key, id);
+                int[] result = new int[MAX_LENGTH];
+                for (int length = 1; length < MAX_LENGTH; length++) {
+                    result[length] = prefixTrie.findBestMatch(sorted, length);
+                }
+                classMatches.add(result);
+            }
+            return id;
+        }
+
+        private int getTypeSetId(int[] types) {
+            String key = Arrays.toString(types);
+            Integer id = typeSetIds.get(key);
+            if (id == null) {
+                id = typeSets.size();
+                typeSetIds.put(key, id);
+                CardType[] cardTypes = new CardType[types.length];
+                for (int i = 0; i < types.length; i++) {
+                    cardTypes[i] = prefixTrie.getCardType(types[i]);
+                }
+                typeSets.add(Collections.unmodifiableList(Arrays.asList(cardTypes)));
+            }
+            return id;
+        }
+    }
+
+    /**
+     * @return the sorted union of two sorted arrays, without duplicates
+     */
+    private static int[] union(int[] lhs, int[] rhs) {
+        int[] result = new int[lhs.length + rhs.length];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < lhs.length || j < rhs.length) {
+            int next;
+            if (j == rhs.length || (i < lhs.length && lhs[i] <= rhs[j])) {
+                next = lhs[i++];
+            } else {
+                next = rhs[j++];
+            }
+            if (count == 0 || result[count - 1] != next) {
+                result[count++] = next;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+}
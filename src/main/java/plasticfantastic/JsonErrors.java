@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates the exceptions for errors in card type JSON.
+ * <p>
+ * If Gson is on the classpath they're Gson's exception types, as they were when the JSON was parsed with Gson:
+ * {@code JsonSyntaxException}, {@code JsonIOException} and {@code JsonParseException}. Gson is an optional dependency
+ * though, and without it they're {@link IllegalArgumentException}s. Gson's types are only referenced by
+ * {@code GsonJsonErrors}, which is loaded by name, so nothing else loads them.
+ */
+abstract class JsonErrors {
+
+    private static final Logger LOGGER = Logger.getLogger(JsonErrors.class.getName());
+
+    private static final String GSON_CLASS = "com.google.gson.JsonParseException";
+    private static final String IMPLEMENTATION_CLASS = "plasticfantastic.GsonJsonErrors";
+
+    private static final JsonErrors INSTANCE = load();
+
+    /**
+     * @param message description of the error, including where it is
+     * @return exception for malformed JSON
+     */
+    static RuntimeException syntax(String message) {
+        return INSTANCE.createSyntax(message);
+    }
+
+    /**
+     * @param cause what went wrong
+     * @return exception for a failure reading the JSON
+     */
+    static RuntimeException io(IOException cause) {
+        return INSTANCE.createIo(cause);
+    }
+
+    /**
+     * @param message description of the error
+     * @param cause   what was wrong with the data, or null
+     * @return exception for well formed JSON which isn't valid card type data
+     */
+    static RuntimeException invalidData(String message, Throwable cause) {
+        return INSTANCE.createInvalidData(message, cause);
+    }
+
+    /**
+     * @param e exception thrown while parsing
+     * @return true if e was created by one of the methods of this class
+     */
+    static boolean isJsonError(RuntimeException e) {
+        return INSTANCE.isError(e);
+    }
+
+    /**
+     * @param e exception thrown while parsing
+     * @return true if e was created by {@link #io(IOException)}
+     */
+    static boolean isIoError(RuntimeException e) {
+        return INSTANCE.isError(e) && e.getCause() instanceof IOException;
+    }
+
+    abstract RuntimeException createSyntax(String message);
+
+    abstract RuntimeException createIo(IOException cause);
+
+    abstract RuntimeException createInvalidData(String message, Throwable cause);
+
+    abstract boolean isError(RuntimeException e);
+
+    private static JsonErrors load() {
+        try {
+            Class.forName(GSON_CLASS);
+        } catch (ClassNotFoundException e) {
+            return new IllegalArgumentErrors();
+        }
+        try {
+            return (JsonErrors) Class.forName(IMPLEMENTATION_CLASS).newInstance();
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Gson exceptions not available", e);
+        } catch (LinkageError e) {
+            LOGGER.log(Level.FINE, "Gson exceptions not available", e);
+        }
+        return new IllegalArgumentErrors();
+    }
+
+    /**
+     * Used when Gson isn't on the classpath.
+     */
+    private static final class IllegalArgumentErrors extends JsonErrors {
+        @Override
+        RuntimeException createSyntax(String message) {
+            return new IllegalArgumentException(message);
+        }
+
+        @Override
+        RuntimeException createIo(IOException cause) {
+            return new IllegalArgumentException(cause.toString(), cause);
+        }
+
+        @Override
+        RuntimeException createInvalidData(String message, Throwable cause) {
+            return new IllegalArgumentException(message, cause);
+        }
+
+        @Override
+        boolean isError(RuntimeException e) {
+            return e instanceof IllegalArgumentException;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in nanoseconds, which can be recorded to by many threads at once.
+ * <p>
+ * Values are counted in buckets which split each power of 2 into 4, so a bucket's bounds are within 25% of any value
+ * in it. Values below 4 have a bucket each. Recording is a single atomic add to a bucket, plus one to the total, in a
+ * row of buckets chosen by the current thread (as for {@link StripedCounter}). Reading adds up the rows, and isn't an
+ * atomic snapshot if there are updates in progress.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Number of buckets. Enough for any non-negative {@code long}.
+     */
+    static final int BUCKET_COUNT = 256;
+
+    private static final int TOTAL_INDEX = BUCKET_COUNT;
+    private static final int ROW_LENGTH = BUCKET_COUNT + StripedCounter.PADDING;
+
+    private final AtomicLongArray rows = new AtomicLongArray(StripedCounter.STRIPE_COUNT * ROW_LENGTH);
+
+    /**
+     * Record a value.
+     *
+     * @param nanos the latency. Negative values, which can happen if the clock is adjusted, are recorded as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        int row = StripedCounter.getStripe() * ROW_LENGTH;
+        rows.incrementAndGet(row + getBucket(value));
+        rows.addAndGet(row + TOTAL_INDEX, value);
+    }
+
+    /**
+     * @return the number of values recorded
+     */
+    public long getCount() {
+        long count = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            count += getBucketCount(bucket);
+        }
+        return count;
+    }
+
+    /**
+     * @return the sum of the values recorded, in nanoseconds
+     */
+    public long getTotalNanos() {
+        return sumColumn(TOTAL_INDEX);
+    }
+
+    /**
+     * @return the mean of the values recorded, in nanoseconds, or 0 if there are none
+     */
+    public double getMeanNanos() {
+        long count = getCount();
+        return count > 0 ? (double) getTotalNanos() / count : 0;
+    }
+
+    /**
+     * Get an approximate percentile of the values recorded. This is the upper bound of the bucket it falls in, so it
+     * is never less than the exact value, and at most 25% more.
+     *
+     * @param percentile from 0 to 100
+     * @return the value at the percentile, in nanoseconds, or 0 if there are none
+     * @throws IllegalArgumentException if percentile is out of range
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("percentile must be from 0 to 100: " + percentile);
+        }
+        long[] counts = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            counts[bucket] = getBucketCount(bucket);
+            count += counts[bucket];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += counts[bucket];
+            if (seen >= target) {
+                return getUpperBound(bucket);
+            }
+        }
+        // Only reachable if updates were made while counting.
+        return getUpperBound(BUCKET_COUNT - 1);
+    }
+
+    /**
+     * Clear all of the values recorded. Values recorded at the same time may or may not be kept.
+     */
+    public void reset() {
+        for (int i = 0; i < rows.length(); i++) {
+            rows.set(i, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{count=" + getCount()
+                + ", mean=" + (long) getMeanNanos()
+                + ", p50=" + getValueAtPercentile(50)
+                + ", p99=" + getValueAtPercentile(99)
+                + ", max=" + getValueAtPercentile(100)
+                + '}';
+    }
+
+    private long getBucketCount(int bucket) {
+        return sumColumn(bucket);
+    }
+
+    private long sumColumn(int index) {
+        long sum = 0;
+        for (int row = 0; row < StripedCounter.STRIPE_COUNT; row++) {
+            sum += rows.get(row * ROW_LENGTH + index);
+        }
+        return sum;
+    }
+
+    /**
+     * @param value non-negative value
+     * @return the bucket the value is counted in
+     */
+    static int getBucket(long value) {
+        if (value < 4) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - 2)) & 3;
+        return ((exponent - 1) << 2) | subBucket;
+    }
+
+    /**
+     * @param bucket a bucket
+     * @return the smallest value counted in the bucket
+     */
+    static long getLowerBound(int bucket) {
+        if (bucket < 4) {
+            return bucket;
+        }
+        int exponent = (bucket >>> 2) + 1;
+        return (long) (4 | (bucket & 3)) << (exponent - 2);
+    }
+
+    /**
+     * @param bucket a bucket
+     * @return the largest value counted in the bucket
+     */
+    static long getUpperBound(int bucket) {
+        int last = getBucket(Long.MAX_VALUE);
+        return bucket >= last ? Long.MAX_VALUE : getLowerBound(bucket + 1) - 1;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+/**
+ * Fast Luhn checks on ASCII digits, for use without creating a {@link CardNumber}.
+ * See <a href="http://en.wikipedia.org/wiki/Luhn_algorithm">here</a> for more information on the algorithm.
+ * <p>
+ * Neither form branches on the value of a digit. {@code byte[]} input is handled 8 digits at a time, packed into a
+ * {@code long}, and anything else uses a lookup table of (possibly doubled) digit values.
+ */
+public final class Luhn {
+
+    /**
+     * Digit values, indexed by {@code (doubled << 4) | digit}. Entries for 10-15 are never used for valid input.
+     */
+    private static final byte[] VALUES = {
+            0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 0, 0, 0, 0, 0, 0,
+            0, 2, 4, 6, 8, 1, 3, 5, 7, 9, 0, 0, 0, 0, 0, 0
+    };
+
+    private static final long ZEROS = 0x3030303030303030L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long LOW_NIBBLES = 0x0F0F0F0F0F0F0F0FL;
+    /**
+     * Adding this to a byte holding 0-9 sets its high bit if it is 5 or more.
+     */
+    private static final long FIVE_OR_MORE = 0x7B7B7B7B7B7B7B7BL;
+    /**
+     * Adding this to an ASCII byte sets its high bit if it is greater than '9'.
+     */
+    private static final long ABOVE_NINE = 0x4646464646464646L;
+    /**
+     * Lanes holding every second digit, counting from the rightmost. Packed with the rightmost digit in the lowest
+     * byte, these are the digits which get doubled.
+     */
+    private static final long DOUBLED_LANES = 0xFF00FF00FF00FF00L;
+
+    private Luhn() {
+    }
+
+    /**
+     * @param digits ASCII digits, with the check digit last
+     * @return true if the number is valid according to the Luhn formula
+     * @throws NullPointerException  if digits is null
+     * @throws NumberFormatException if any character is not an ASCII digit
+     */
+    public static boolean passesCheck(CharSequence digits) {
+        /* Description from Wikipedia:
+         * 1. From the rightmost digit, which is the check digit, moving left, double the value of every second digit;
+         * if the product of this doubling operation is greater than 9 (e.g., 8 * 2 = 16), then sum the digits of the
+         * products (e.g., 16: 1 + 6 = 7, 18: 1 + 8 = 9).
+         * 2. Take the sum of all the digits.
+         * 3. If the total modulo 10 is equal to 0 (if the total ends in zero) then the number is valid according to
+         * the Luhn formula; else it is not valid.
+         */
+
+        final int length = digits.length();
+        int sum = 0;
+        int invalid = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = digits.charAt(i) - '0';
+            // Negative if the character isn't a digit, which is checked once at the end.
+            invalid |= digit | (9 - digit);
+            sum += VALUES[(((length - i + 1) & 1) << 4) | (digit & 0xF)];
+        }
+        if (invalid < 0) {
+            throw new NumberFormatException("Not a valid card number: '" + digits + "'");
+        }
+        return sum % 10 == 0;
+    }
+
+    /**
+     * @param digits ASCII digits, with the check digit last
+     * @return true if the number is valid according to the Luhn formula
+     * @throws NullPointerException  if digits is null
+     * @throws NumberFormatException if any byte is not an ASCII digit
+     */
+    public static boolean passesCheck(byte[] digits) {
+        return passesCheck(digits, 0, digits.length);
+    }
+
+    /**
+     * @param digits ASCII digits
+     * @param offset index of the first digit
+     * @param length number of digits, with the check digit last
+     * @return true if the number is valid according to the Luhn formula
+     * @throws NullPointerException      if digits is null
+     * @throws IndexOutOfBoundsException if offset or length are negative, or offset + length is greater than the
+     *                                   length of digits
+     * @throws NumberFormatException     if any byte in the range is not an ASCII digit
+     */
+    public static boolean passesCheck(byte[] digits, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > digits.length - length) {
+            throw new IndexOutOfBoundsException(
+                    "offset: " + offset + ", length: " + length + ", array length: " + digits.length);
+        }
+        int sum = 0;
+        int invalid = 0;
+        // Whole blocks of 8, working back from the check digit.
+        int end = offset + length;
+        for (; end - offset >= 8; end -= 8) {
+            int blockSum = sumBlock(digits, end - 8);
+            invalid |= blockSum;
+            sum += blockSum;
+        }
+        // Any remaining digits at the start.
+        for (int i = offset; i < end; i++) {
+            int digit = digits[i] - '0';
+            invalid |= digit | (9 - digit);
+            sum += VALUES[(((end - i + 1) & 1) << 4) | (digit & 0xF)];
+        }
+        if (invalid < 0) {
+            throw invalidDigits(digits, offset, length);
+        }
+        return sum % 10 == 0;
+    }
+
+    /**
+     * Sum the Luhn values of 8 ASCII digits, the last of which is in an undoubled position.
+     *
+     * @return the sum, or -1 if any of the bytes is not an ASCII digit
+     */
+    private static int sumBlock(byte[] digits, int from) {
+        long block = ((long) digits[from] << 56)
+                | ((long) (digits[from + 1] & 0xFF) << 48)
+                | ((long) (digits[from + 2] & 0xFF) << 40)
+                | ((long) (digits[from + 3] & 0xFF) << 32)
+                | ((long) (digits[from + 4] & 0xFF) << 24)
+                | ((long) (digits[from + 5] & 0xFF) << 16)
+                | ((long) (digits[from + 6] & 0xFF) << 8)
+                | (long) (digits[from + 7] & 0xFF);
+
+        // Each lane must be in '0'-'9'. None of these can borrow or carry between lanes, other than when a lane
+        // already has its high bit set, in which case the block is invalid anyway.
+        long invalid = (block | (block + ABOVE_NINE) | ~((block | HIGH_BITS) - ZEROS)) & HIGH_BITS;
+        if (invalid != 0) {
+            return -1;
+        }
+
+        long values = block - ZEROS;
+        // Doubling subtracts 9 from digits of 5 or more, so the result stays in 0-9.
+        long fiveOrMore = ((values + FIVE_OR_MORE) & HIGH_BITS) >>> 7;
+        long doubled = (values << 1) - fiveOrMore * 9;
+        values = (values & ~DOUBLED_LANES) | (doubled & DOUBLED_LANES);
+        // Horizontal sum of the lanes. The total is at most 72, so it fits in the top lane.
+        return (int) ((values * LOW_BITS) >>> 56);
+    }
+
+    /**
+     * Luhn check for digits packed 4 bits each, as in {@link CompactCardNumber}.
+     *
+     * @param low  the rightmost 16 digits, with the check digit in the lowest 4 bits
+     * @param high any further digits, continuing in the same order
+     * @return true if the number is valid according to the Luhn formula
+     */
+    static boolean passesCheck(long low, long high) {
+        return (sumPacked(low) + sumPacked(high)) % 10 == 0;
+    }
+
+    /**
+     * Sum the Luhn values of 16 packed digits, the lowest of which is in an undoubled position.
+     */
+    private static int sumPacked(long packed) {
+        // Split the digits into bytes, so there's room to double them.
+        long undoubled = packed & LOW_NIBBLES;
+        long values = (packed >>> 4) & LOW_NIBBLES;
+        long fiveOrMore = ((values + FIVE_OR_MORE) & HIGH_BITS) >>> 7;
+        long doubled = (values << 1) - fiveOrMore * 9;
+        // The total is at most 144, so it still fits in the top lane.
+        return (int) (((undoubled + doubled) * LOW_BITS) >>> 56);
+    }
+
+    private static NumberFormatException invalidDigits(byte[] digits, int offset, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (digits[offset + i] & 0xFF);
+        }
+        return new NumberFormatException("Not a valid card number: '" + new String(chars) + "'");
+    }
+}
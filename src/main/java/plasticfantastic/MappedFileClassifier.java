@@ -0,0 +1,353 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Classifies large files of card numbers, one per line, by memory mapping them.
+ * <p>
+ * Lines are read as ASCII directly from the mapped file, without creating {@link String}s or {@link CardNumber}s.
+ * The file is split into line-aligned segments which are classified in parallel. As with {@link CardNumber},
+ * whitespace within a line is ignored. A line is malformed if it contains anything other than digits and whitespace,
+ * or has no digits at all.
+ */
+public class MappedFileClassifier {
+
+    private static final Logger LOGGER = Logger.getLogger(MappedFileClassifier.class.getName());
+
+    private static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+    private static final long MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int MAX_LINES = Integer.MAX_VALUE - 8;
+
+    private static final byte FLAG_VALID = 1;
+    private static final byte FLAG_MALFORMED = 2;
+
+    /**
+     * Per-line results of classifying a file. Lines are indexed from 0.
+     */
+    public static final class Result {
+        private final CardType[] cardTypes;
+        private final int[] typeIndexes;
+        private final byte[] flags;
+
+        private Result(CardType[] cardTypes, int[] typeIndexes, byte[] flags) {
+            this.cardTypes = cardTypes;
+            this.typeIndexes = typeIndexes;
+            this.flags = flags;
+        }
+
+        /**
+         * @return the number of lines in the file
+         */
+        public int getLineCount() {
+            return typeIndexes.length;
+        }
+
+        /**
+         * @param line index of the line
+         * @return index of the matching card type in {@link ValidatedCardFactory#getCardTypesList()}, or -1 if no card
+         * type matched or the line is malformed
+         */
+        public int getTypeIndex(int line) {
+            return typeIndexes[line];
+        }
+
+        /**
+         * @param line index of the line
+         * @return the matching card type, or null if no card type matched or the line is malformed
+         */
+        public CardType getType(int line) {
+            int index = typeIndexes[line];
+            return index >= 0 ? cardTypes[index] : null;
+        }
+
+        /**
+         * @param line index of the line
+         * @return true if the card number passes the same checks as {@link ValidatedCard#isNumberValid()}
+         */
+        public boolean isValid(int line) {
+            return (flags[line] & FLAG_VALID) != 0;
+        }
+
+        /**
+         * @param line index of the line
+         * @return true if the line doesn't hold a card number
+         */
+        public boolean isMalformed(int line) {
+            return (flags[line] & FLAG_MALFORMED) != 0;
+        }
+    }
+
+    private final ValidatedCardFactory factory;
+
+    /**
+     * @param factory used to classify the card numbers
+     * @throws NullPointerException if factory is null
+     */
+    public MappedFileClassifier(ValidatedCardFactory factory) {
+        if (factory == null) {
+            throw new NullPointerException("factory cannot be null");
+        }
+        this.factory = factory;
+    }
+
+    /**
+     * Classify a file, using a shared pool with one thread per available processor.
+     *
+     * @param file the file to read
+     * @return the classification of each line
+     * @throws NullPointerException if file is null
+     * @throws IOException          if there was some problem reading the file
+     * @throws InterruptedException if interrupted while waiting for classification to complete
+     */
+    public Result classify(File file) throws IOException, InterruptedException {
+        return classify(file, ValidatedCardFactory.getDefaultExecutor());
+    }
+
+    /**
+     * Classify a file.
+     *
+     * @param file     the file to read
+     * @param executor executor to classify the segments of the file on
+     * @return the classification of each line
+     * @throws NullPointerException if file or executor is null
+     * @throws IOException          if there was some problem reading the file, or it has more lines than can be held
+     *                              in an array
+     * @throws InterruptedException if interrupted while waiting for classification to complete
+     */
+    public Result classify(File file, Executor executor) throws IOException, InterruptedException {
+        if (file == null) {
+            throw new NullPointerException("file cannot be null");
+        }
+        if (executor == null) {
+            throw new NullPointerException("executor cannot be null");
+        }
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            long[] bounds = findSegmentBounds(channel);
+
+            List<FutureTask<Segment>> tasks = new ArrayList<FutureTask<Segment>>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                FutureTask<Segment> task = new FutureTask<Segment>(
+                        new Segment(channel, factory, bounds[i], bounds[i + 1]));
+                tasks.add(task);
+                executor.execute(task);
+            }
+            Throwable failure = ValidatedCardFactory.awaitAll(tasks);
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            ValidatedCardFactory.rethrowUnchecked(failure);
+
+            return merge(tasks);
+        } finally {
+            // Close silently, but at least log issues.
+            try {
+                randomAccessFile.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, e.toString(), e);
+            }
+        }
+    }
+
+    private Result merge(List<FutureTask<Segment>> tasks) throws IOException, InterruptedException {
+        long lineCount = 0;
+        for (FutureTask<Segment> task : tasks) {
+            lineCount += getSegment(task).lineCount;
+        }
+        if (lineCount > MAX_LINES) {
+            throw new IOException("Too many lines: " + lineCount);
+        }
+        int[] typeIndexes = new int[(int) lineCount];
+        byte[] flags = new byte[(int) lineCount];
+        int position = 0;
+        for (FutureTask<Segment> task : tasks) {
+            Segment segment = getSegment(task);
+            System.arraycopy(segment.typeIndexes, 0, typeIndexes, position, segment.lineCount);
+            System.arraycopy(segment.flags, 0, flags, position, segment.lineCount);
+            position += segment.lineCount;
+        }
+        return new Result(factory.getPrefixTrie().getCardTypes(), typeIndexes, flags);
+    }
+
+    private static Segment getSegment(FutureTask<Segment> task) throws InterruptedException {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            // Already checked by awaitAll().
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Split the file into segments which each start at the beginning of a line.
+     *
+     * @return the start of each segment, followed by the file size
+     */
+    private static long[] findSegmentBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long segmentSize = size / Runtime.getRuntime().availableProcessors();
+        segmentSize = Math.max(MIN_SEGMENT_SIZE, Math.min(MAX_SEGMENT_SIZE, segmentSize));
+
+        List<Long> bounds = new ArrayList<Long>();
+        bounds.add(0L);
+        long previous = 0;
+        for (long nominal = segmentSize; nominal < size; nominal += segmentSize) {
+            long bound = findLineStart(channel, Math.max(nominal, previous + 1), size);
+            if (bound < size && bound > previous) {
+                bounds.add(bound);
+                previous = bound;
+            }
+        }
+        bounds.add(size);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * @return the first position at or after from which is the start of a line, or size if there is none
+     */
+    private static long findLineStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long position = from - 1;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Classifies the lines in one segment of the file.
+     */
+    private static final class Segment implements Callable<Segment> {
+        private final FileChannel channel;
+        private final ValidatedCardFactory factory;
+        private final long start;
+        private final long end;
+
+        private int lineCount;
+        private int[] typeIndexes;
+        private byte[] flags;
+        private byte[] digits = new byte[32];
+
+        private Segment(FileChannel channel, ValidatedCardFactory factory, long start, long end) {
+            this.channel = channel;
+            this.factory = factory;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public Segment call() throws IOException {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            int limit = buffer.limit();
+            // Assume fairly short lines to start with.
+            typeIndexes = new int[Math.max(16, limit / 16)];
+            flags = new byte[typeIndexes.length];
+
+            int digitCount = 0;
+            boolean malformed = false;
+            boolean lineStarted = false;
+            for (int i = 0; i < limit; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    endLine(digitCount, malformed);
+                    digitCount = 0;
+                    malformed = false;
+                    lineStarted = false;
+                    continue;
+                }
+                lineStarted = true;
+                if (b >= '0' && b <= '9') {
+                    if (digitCount == digits.length) {
+                        byte[] grown = new byte[digits.length * 2];
+                        System.arraycopy(digits, 0, grown, 0, digitCount);
+                        digits = grown;
+                    }
+                    digits[digitCount++] = b;
+                } else if (!isWhitespace(b)) {
+                    malformed = true;
+                }
+            }
+            if (lineStarted) {
+                // Last line of the file, without a line break.
+                endLine(digitCount, malformed);
+            }
+            return this;
+        }
+
+        private void endLine(int digitCount, boolean malformed) {
+            if (lineCount == typeIndexes.length) {
+                int[] grownTypeIndexes = new int[lineCount * 2];
+                System.arraycopy(typeIndexes, 0, grownTypeIndexes, 0, lineCount);
+                typeIndexes = grownTypeIndexes;
+                byte[] grownFlags = new byte[lineCount * 2];
+                System.arraycopy(flags, 0, grownFlags, 0, lineCount);
+                flags = grownFlags;
+            }
+
+            if (malformed || digitCount == 0) {
+                typeIndexes[lineCount] = -1;
+                flags[lineCount] = FLAG_MALFORMED;
+            } else {
+                int match = factory.findBestMatch(digits, 0, digitCount);
+                typeIndexes[lineCount] = PrefixTrie.getTypeIndex(match);
+                // Valid if the pattern and length both match, and the Luhn check passes.
+                boolean valid = match != PrefixTrie.NO_MATCH
+                        && (PrefixTrie.getStrength(match) & 1) != 0
+                        && Luhn.passesCheck(digits, 0, digitCount);
+                flags[lineCount] = valid ? FLAG_VALID : 0;
+            }
+            lineCount++;
+        }
+
+        /**
+         * Same set of characters as {@code \s} in a regular expression, other than the line feed.
+         */
+        private static boolean isWhitespace(byte b) {
+            return b == ' ' || b == '\t' || b == '\r' || b == 0x0B || b == '\f';
+        }
+    }
+}
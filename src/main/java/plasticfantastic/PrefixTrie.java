@@ -0,0 +1,438 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import plasticfantastic.internal.NumberPattern;
+import plasticfantastic.internal.RangePattern;
+import plasticfantastic.internal.SingleNumberPattern;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A digit trie built from the number patterns of a list of {@link CardType}s.
+ * <p>
+ * Finding the strongest match for a card number is a single walk over its leading digits, rather than a scan of
+ * every pattern of every card type. Each node holds entries for the patterns which are matched by any card number
+ * with that prefix. Range patterns are split into the smallest set of prefixes which cover the range, so those entries
+ * can sit above the depth of the pattern itself - they only count if the card number has at least as many digits as
+ * the pattern.
+ * <p>
+ * The trie is stored as flat arrays, with the root at node 0.
+ */
+final class PrefixTrie {
+
+    static final int NO_NODE = -1;
+    static final int ROOT = 0;
+    static final int NO_MATCH = 0;
+
+    /**
+     * Limit on the number of card types, so that a type index fits in 16 bits.
+     */
+    static final int MAX_TYPES = 0x10000;
+
+    /**
+     * Limit on pattern length, so that a match strength fits in 15 bits.
+     */
+    private static final int MAX_PATTERN_LENGTH = 0x3FFF;
+
+    private final CardType[] cardTypes;
+    private final int[] children;
+    private final int[] entryOffsets;
+    private final int[] entryTypes;
+    private final int[] entryLengths;
+    private final int maxPatternLength;
+    private volatile IncrementalMatchTable incrementalMatchTable;
+
+    /**
+     * @param cardTypes card types in priority order (null elements are ignored)
+     * @throws IllegalArgumentException if there are too many card types, or a pattern is too long
+     */
+    PrefixTrie(List<CardType> cardTypes) {
+        if (cardTypes.size() > MAX_TYPES) {
+            throw new IllegalArgumentException("Cannot have more than " + MAX_TYPES + " card types");
+        }
+        this.cardTypes = cardTypes.toArray(new CardType[cardTypes.size()]);
+
+        Node root = new Node();
+        for (int typeIndex = 0; typeIndex < this.cardTypes.length; typeIndex++) {
+            if (this.cardTypes[typeIndex] != null) {
+                for (NumberPattern pattern : this.cardTypes[typeIndex].getNumberPatterns()) {
+                    addPattern(root, pattern, typeIndex);
+                }
+            }
+        }
+
+        // Flatten the tree, breadth first.
+        List<Node> nodes = new ArrayList<Node>();
+        LinkedList<Node> queue = new LinkedList<Node>();
+        queue.add(root);
+        int entryCount = 0;
+        while (!queue.isEmpty()) {
+            Node node = queue.removeFirst();
+            node.id = nodes.size();
+            nodes.add(node);
+            entryCount += node.entries.size();
+            for (Node child : node.children) {
+                if (child != null) {
+                    queue.add(child);
+                }
+            }
+        }
+
+        children = new int[nodes.size() * 10];
+        entryOffsets = new int[nodes.size() + 1];
+        entryTypes = new int[entryCount];
+        entryLengths = new int[entryCount];
+        int entryIdx = 0;
+        int maxPatternLength = 0;
+        for (Node node : nodes) {
+            for (int digit = 0; digit < 10; digit++) {
+                Node child = node.children[digit];
+                children[node.id * 10 + digit] = child != null ? child.id : NO_NODE;
+            }
+            entryOffsets[node.id] = entryIdx;
+            for (int[] entry : node.entries) {
+                entryTypes[entryIdx] = entry[0];
+                entryLengths[entryIdx] = entry[1];
+                maxPatternLength = Math.max(maxPatternLength, entry[1]);
+                entryIdx++;
+            }
+        }
+        entryOffsets[nodes.size()] = entryIdx;
+        this.maxPatternLength = maxPatternLength;
+    }
+
+    /**
+     * Create a trie from arrays built by another trie for the same card types, as read by {@link CompiledCardTypes}.
+     *
+     * @param cardTypes    card types in priority order (null elements are ignored)
+     * @param children     child of each node for each digit, at {@code node * 10 + digit}, or {@link #NO_NODE}
+     * @param entryOffsets index of the first entry of each node, followed by the number of entries
+     * @param entryTypes   type index of each entry
+     * @param entryLengths pattern length of each entry
+     * @throws IllegalArgumentException if the arrays aren't consistent
+     */
+    PrefixTrie(List<CardType> cardTypes, int[] children, int[] entryOffsets, int[] entryTypes, int[] entryLengths) {
+        if (cardTypes.size() > MAX_TYPES) {
+            throw new IllegalArgumentException("Cannot have more than " + MAX_TYPES + " card types");
+        }
+        this.cardTypes = cardTypes.toArray(new CardType[cardTypes.size()]);
+        int nodeCount = entryOffsets.length - 1;
+        if (nodeCount < 1 || children.length != nodeCount * 10 || entryOffsets[0] != 0
+                || entryOffsets[nodeCount] != entryTypes.length || entryLengths.length != entryTypes.length) {
+            throw new IllegalArgumentException("Inconsistent array sizes");
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            for (int digit = 0; digit < 10; digit++) {
+                // Nodes are numbered breadth first, so a child always comes after its parent.
+                int child = children[node * 10 + digit];
+                if (child != NO_NODE && (child <= node || child >= nodeCount)) {
+                    throw new IllegalArgumentException("Invalid child: " + child);
+                }
+            }
+            if (entryOffsets[node] > entryOffsets[node + 1]) {
+                throw new IllegalArgumentException("Invalid entry offset for node " + node);
+            }
+        }
+        int maxPatternLength = 0;
+        for (int e = 0; e < entryTypes.length; e++) {
+            if (entryTypes[e] < 0 || entryTypes[e] >= this.cardTypes.length || this.cardTypes[entryTypes[e]] == null) {
+                throw new IllegalArgumentException("Invalid type index: " + entryTypes[e]);
+            }
+            if (entryLengths[e] <= 0 || entryLengths[e] > MAX_PATTERN_LENGTH) {
+                throw new IllegalArgumentException("Invalid pattern length: " + entryLengths[e]);
+            }
+            maxPatternLength = Math.max(maxPatternLength, entryLengths[e]);
+        }
+        this.children = children;
+        this.entryOffsets = entryOffsets;
+        this.entryTypes = entryTypes;
+        this.entryLengths = entryLengths;
+        this.maxPatternLength = maxPatternLength;
+    }
+
+    /**
+     * @param index index of the card type, as returned by {@link #getTypeIndex(int)}
+     * @return the card type
+     */
+    CardType getCardType(int index) {
+        return cardTypes[index];
+    }
+
+    /**
+     * @return the number of nodes. Nodes are numbered from {@link #ROOT} up to this.
+     */
+    int getNodeCount() {
+        return entryOffsets.length - 1;
+    }
+
+    /**
+     * @return the table used by {@link IncrementalCardMatcher}, which is built on first use
+     */
+    IncrementalMatchTable getIncrementalMatchTable() {
+        // Benign race: at worst, two threads build equivalent tables.
+        IncrementalMatchTable table = incrementalMatchTable;
+        if (table == null) {
+            FlightRecorderEvents events = FlightRecorderEvents.get();
+            Object build = events.beginIndexBuild();
+            table = new IncrementalMatchTable(this);
+            events.endIndexBuild(build, "IncrementalMatchTable", table.getClassCount());
+            incrementalMatchTable = table;
+        }
+        return table;
+    }
+
+    /**
+     * @return the length of the longest pattern. No digits beyond this affect the match for a card number.
+     */
+    int getMaxPatternLength() {
+        return maxPatternLength;
+    }
+
+    /**
+     * @return the card types, in the order they were given
+     */
+    CardType[] getCardTypes() {
+        return cardTypes;
+    }
+
+    /**
+     * @param match a match returned by one of the find methods
+     * @return index of the matching card type, or -1 if match is {@link #NO_MATCH}
+     */
+    static int getTypeIndex(int match) {
+        return match != NO_MATCH ? MAX_TYPES - 1 - (match & 0xFFFF) : -1;
+    }
+
+    /**
+     * @param match a match returned by one of the find methods
+     * @return the match strength, as returned by {@link CardType#getMatchStrength(CardNumber)}
+     */
+    static int getStrength(int match) {
+        return match >>> 16;
+    }
+
+    /**
+     * @param strength match strength
+     * @param typeIndex index of the card type
+     * @return the match, encoded as described in {@link #findBestMatch(int, int, int)}
+     */
+    static int encodeMatch(int strength, int typeIndex) {
+        return (strength << 16) | (MAX_TYPES - 1 - typeIndex);
+    }
+
+    /**
+     * @return the child of node for the digit, or {@link #NO_NODE}
+     */
+    int getChild(int node, int digit) {
+        return children[node * 10 + digit];
+    }
+
+    /**
+     * @return index of the first entry at node. Entries for a node run up to the first entry of the next node.
+     */
+    int getFirstEntry(int node) {
+        return entryOffsets[node];
+    }
+
+    int getEntryType(int entry) {
+        return entryTypes[entry];
+    }
+
+    int getEntryLength(int entry) {
+        return entryLengths[entry];
+    }
+
+    /**
+     * Find the card type which is the strongest match for a card number. Strength is compared in the same way as
+     * {@link CardType#getMatchStrength(CardNumber)}. If several card types match with the same strength, the first of
+     * them wins.
+     *
+     * @param digits normalised card number
+     * @return the best match, or {@link #NO_MATCH}
+     */
+    int findBestMatch(CharSequence digits) {
+        int length = digits.length();
+        int best = NO_MATCH;
+        int node = ROOT;
+        for (int i = 0; i < length; i++) {
+            node = children[node * 10 + (digits.charAt(i) - '0')];
+            if (node == NO_NODE) {
+                break;
+            }
+            best = findBestMatch(node, length, best);
+        }
+        return best;
+    }
+
+    /**
+     * See {@link #findBestMatch(CharSequence)}.
+     *
+     * @param digits ASCII digits
+     * @param offset index of the first digit
+     * @param length number of digits
+     * @return the best match, or {@link #NO_MATCH}
+     */
+    int findBestMatch(byte[] digits, int offset, int length) {
+        int best = NO_MATCH;
+        int node = ROOT;
+        for (int i = 0; i < length; i++) {
+            node = children[node * 10 + (digits[offset + i] - '0')];
+            if (node == NO_NODE) {
+                break;
+            }
+            best = findBestMatch(node, length, best);
+        }
+        return best;
+    }
+
+    /**
+     * Find the best match among a set of entries, for a card number which has matched all of their prefixes. This is
+     * for precomputing matches, so isn't fast.
+     *
+     * @param entries {type index, pattern length} for each entry
+     * @param length  number of digits in the card number
+     * @return the best match, or {@link #NO_MATCH}
+     */
+    int findBestMatch(int[][] entries, int length) {
+        int best = NO_MATCH;
+        for (int[] entry : entries) {
+            int type = entry[0];
+            int patternLength = entry[1];
+            if (patternLength <= length) {
+                int strength = patternLength << 1;
+                if (cardTypes[type].lengthMatches(length)) {
+                    strength++;
+                }
+                best = Math.max(best, encodeMatch(strength, type));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Check the entries at one node of the trie.
+     * <p>
+     * A match is encoded as the strength in the high 16 bits and the inverted card type index in the low 16 bits. A
+     * stronger match, or an equally strong match for an earlier card type, then always has a larger value.
+     *
+     * @param node   node to check
+     * @param length number of digits in the card number
+     * @param best   best match so far
+     * @return the better of best and any match at this node
+     */
+    private int findBestMatch(int node, int length, int best) {
+        for (int e = entryOffsets[node]; e < entryOffsets[node + 1]; e++) {
+            int patternLength = entryLengths[e];
+            if (patternLength <= length) {
+                int type = entryTypes[e];
+                int strength = patternLength << 1;
+                if (cardTypes[type].lengthMatches(length)) {
+                    strength++;
+                }
+                int match = encodeMatch(strength, type);
+                if (match > best) {
+                    best = match;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static void addPattern(Node root, NumberPattern pattern, int typeIndex) {
+        if (pattern.getLength() > MAX_PATTERN_LENGTH) {
+            throw new IllegalArgumentException("Patterns cannot be longer than " + MAX_PATTERN_LENGTH + " digits");
+        }
+        if (pattern instanceof SingleNumberPattern) {
+            String digits = ((SingleNumberPattern) pattern).getNumberPattern();
+            Node node = root;
+            for (int i = 0; i < digits.length(); i++) {
+                node = node.child(digits.charAt(i) - '0');
+            }
+            node.addEntry(typeIndex, digits.length());
+        } else if (pattern instanceof RangePattern) {
+            RangePattern range = (RangePattern) pattern;
+            int length = range.getLength();
+            addRange(root, 0, toDigits(range.getMin(), length), toDigits(range.getMax(), length), true, true,
+                    typeIndex, length);
+        } else {
+            throw new IllegalArgumentException("Unsupported pattern type: " + pattern.getClass().getName());
+        }
+    }
+
+    /**
+     * Add entries covering the part of a range which lies under the given node.
+     *
+     * @param minTight true if the node's prefix is equal to the leading digits of min (so lower digits are bounded)
+     * @param maxTight true if the node's prefix is equal to the leading digits of max (so higher digits are bounded)
+     */
+    private static void addRange(Node node, int depth, String min, String max, boolean minTight, boolean maxTight,
+                                 int typeIndex, int length) {
+        // A bound which continues with only 0s/9s doesn't rule out anything below this node.
+        if (minTight && isRepeated(min, depth, '0')) {
+            minTight = false;
+        }
+        if (maxTight && isRepeated(max, depth, '9')) {
+            maxTight = false;
+        }
+        if (!minTight && !maxTight) {
+            node.addEntry(typeIndex, length);
+            return;
+        }
+        int lowDigit = minTight ? min.charAt(depth) - '0' : 0;
+        int highDigit = maxTight ? max.charAt(depth) - '0' : 9;
+        for (int digit = lowDigit; digit <= highDigit; digit++) {
+            addRange(node.child(digit), depth + 1, min, max,
+                    minTight && digit == lowDigit, maxTight && digit == highDigit, typeIndex, length);
+        }
+    }
+
+    private static boolean isRepeated(String str, int start, char c) {
+        for (int i = start; i < str.length(); i++) {
+            if (str.charAt(i) != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String toDigits(long value, int length) {
+        StringBuilder sb = new StringBuilder(Long.toString(value));
+        while (sb.length() < length) {
+            sb.insert(0, '0');
+        }
+        return sb.toString();
+    }
+
+    private static final class Node {
+        private final Node[] children = new Node[10];
+        private final List<int[]> entries = new ArrayList<int[]>();
+        private int id;
+
+        private Node child(int digit) {
+            if (children[digit] == null) {
+                children[digit] = new Node();
+            }
+            return children[digit];
+        }
+
+        private void addEntry(int typeIndex, int length) {
+            entries.add(new int[]{typeIndex, length});
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter which can be updated by many threads at once without them contending for the same memory.
+ * <p>
+ * Updates go to one of several cells, chosen by the current thread, and reading the count adds them up. Each cell is
+ * on its own cache line. This does the same job as {@code java.util.concurrent.atomic.LongAdder}, which isn't
+ * available in Java 6.
+ */
+final class StripedCounter {
+
+    /**
+     * Number of stripes, a power of 2.
+     */
+    static final int STRIPE_COUNT = Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors() * 2, 16));
+
+    /**
+     * Number of longs in a cache line, which is the spacing between cells.
+     */
+    static final int PADDING = 8;
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPE_COUNT * PADDING);
+
+    void increment() {
+        cells.incrementAndGet(getStripe() * PADDING);
+    }
+
+    void add(long x) {
+        cells.addAndGet(getStripe() * PADDING, x);
+    }
+
+    /**
+     * @return the total of all updates. This isn't an atomic snapshot if there are updates in progress.
+     */
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    /**
+     * Set the count to 0. Updates made at the same time may or may not be kept.
+     */
+    void reset() {
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            cells.set(i * PADDING, 0);
+        }
+    }
+
+    /**
+     * @return the stripe for the current thread, from 0 to {@link #STRIPE_COUNT} - 1
+     */
+    static int getStripe() {
+        long id = Thread.currentThread().getId();
+        // Thread ids are sequential, so spread them over the stripes.
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (hash >>> 16) & (STRIPE_COUNT - 1);
+    }
+}
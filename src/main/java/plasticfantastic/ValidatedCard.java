@@ -43,6 +43,19 @@ public final class ValidatedCard {
                 && number.passesLuhnCheck();
     }
 
+    /**
+     * For use when the checks have already been done, by {@link ValidatedCardFactory}.
+     *
+     * @param number        card number
+     * @param type          card type
+     * @param isNumberValid result of the checks described in {@link #isNumberValid()}
+     */
+    ValidatedCard(CardNumber number, CardType type, boolean isNumberValid) {
+        this.number = number;
+        this.type = type;
+        this.isNumberValid = isNumberValid;
+    }
+
     /**
      * @return the card number
      */
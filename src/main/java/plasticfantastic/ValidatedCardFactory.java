@@ -15,13 +15,24 @@
  */
 package plasticfantastic;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonIOException;
 import com.google.gson.JsonParseException;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -37,7 +48,7 @@ import java.util.logging.Logger;
  *     <li>&quot;validLengths&quot; <em>(list of ints)</em> - the allowed lengths for the card type</li>
  * </ul>
  * Number patterns can be either a single number or a range. Ranges are specified as {@code "min-max"} with optional
- * whitespace around the hyphen.
+ * whitespace around the hyphen. Any other fields are ignored.
  * <p>
  * For example:
  * <pre>
@@ -53,20 +64,33 @@ import java.util.logging.Logger;
  *     "validLengths": [ 16, 17, 18, 19 ]
  *   }
  * ]</pre>
+ * Gson isn't needed to parse the JSON, and is an optional dependency. If it's on the classpath, invalid JSON is
+ * reported as a {@link JsonParseException}, as in earlier versions. Otherwise it's reported as an
+ * {@link IllegalArgumentException}.
  */
 public class ValidatedCardFactory {
 
     private static final Logger LOGGER = Logger.getLogger(ValidatedCardFactory.class.getName());
 
     /**
-     * Create a factory using the default set of card types, as defined in "plasticfantastic_card_types.json".
+     * Number of card numbers handled by each task in a batch. Large enough that task overhead is negligible, small
+     * enough to balance the work between threads.
+     */
+    private static final int BATCH_CHUNK_SIZE = 4096;
+
+    /**
+     * Get a factory using the default set of card types, as defined in "plasticfantastic_card_types.json".
+     * <p>
+     * The card types are compiled into the library from the JSON at build time, so nothing is read or parsed. The
+     * factory is created on first use, and the same instance is returned after that. Factories are immutable, so it
+     * can be shared freely.
      *
-     * @return a new factory, initialised with the given data
-     * @throws IOException if there was some problem reading the file from the filesystem
+     * @return the shared factory
+     * @throws IOException never, since the card types are built in. Declared for compatibility with earlier versions,
+     *                     which read the JSON at runtime.
      */
     public static ValidatedCardFactory withDefaultCardTypes() throws IOException {
-        String path = ValidatedCardFactory.class.getResource("/plasticfantastic_card_types.json").getFile();
-        return fromFile(new File(path));
+        return DefaultFactoryHolder.FACTORY;
     }
 
     /**
@@ -84,9 +108,7 @@ public class ValidatedCardFactory {
             throw new NullPointerException("json cannot be null");
         }
 
-        CardTypeDefinition[] typeDefinitions = new Gson().fromJson(json, CardTypeDefinition[].class);
-
-        return fromParsedCardTypeDefinitions(typeDefinitions);
+        return parse(new StringReader(json), "JSON string");
     }
 
     /**
@@ -106,9 +128,12 @@ public class ValidatedCardFactory {
         }
         FileReader reader = new FileReader(file);
         try {
-            return fromReader(reader);
-        } catch (JsonIOException e) {
-            throw new IOException(e);
+            return parse(reader, file.getPath());
+        } catch (RuntimeException e) {
+            if (JsonErrors.isIoError(e)) {
+                throw new IOException(e);
+            }
+            throw e;
         } finally {
             // Close silently, but at least log issues.
             try {
@@ -134,12 +159,18 @@ public class ValidatedCardFactory {
             throw new NullPointerException("json cannot be null");
         }
 
-        CardTypeDefinition[] typeDefinitions = new Gson().fromJson(reader, CardTypeDefinition[].class);
-        if (typeDefinitions == null) {
-            throw new JsonParseException("reader is at EOF");
-        }
+        return parse(reader, "Reader");
+    }
 
-        return fromParsedCardTypeDefinitions(typeDefinitions);
+    /**
+     * @param source where the JSON came from, for {@link FlightRecorderEvents}
+     */
+    private static ValidatedCardFactory parse(Reader reader, String source) {
+        FlightRecorderEvents events = FlightRecorderEvents.get();
+        Object load = events.beginLoad();
+        ValidatedCardFactory factory = new ValidatedCardFactory(CardTypeJsonParser.parse(reader));
+        events.endLoad(load, source, factory);
+        return factory;
     }
 
     /**
@@ -157,46 +188,55 @@ public class ValidatedCardFactory {
             throw new IllegalArgumentException("typeDefinitions cannot be empty");
         }
 
+        FlightRecorderEvents events = FlightRecorderEvents.get();
+        Object load = events.beginLoad();
         CardType[] cardTypes = new CardType[typeDefinitions.length];
 
         for (int i = 0; i < typeDefinitions.length; i++) {
             try {
                 CardTypeDefinition definition = typeDefinitions[i];
-                if (definition.name == null) {
-                    throw new IllegalArgumentException("'name' is missing");
-                }
-                CardType.Builder builder = new CardType.Builder(definition.name);
-
-                if (definition.numberPatterns == null
-                        || definition.numberPatterns.length == 0) {
-                    throw new IllegalArgumentException("'numberPatterns' is missing or empty");
-                }
-                builder.withNumberPatterns(definition.numberPatterns);
-
-                if (definition.validLengths == null
-                        || definition.validLengths.length == 0) {
-                    throw new IllegalArgumentException("'validLengths' is missing or empty");
-                }
-                builder.withValidLengths(definition.validLengths);
-
-                cardTypes[i] = builder.build();
+                cardTypes[i] = createCardType(definition.name, definition.numberPatterns, definition.validLengths);
             } catch (IllegalArgumentException e) {
                 throw new IllegalArgumentException("Invalid data at position " + i, e);
             }
         }
 
-        return new ValidatedCardFactory(cardTypes);
+        ValidatedCardFactory factory = new ValidatedCardFactory(cardTypes);
+        events.endLoad(load, "CardTypeDefinitions", factory);
+        return factory;
     }
 
-    private static ValidatedCardFactory fromParsedCardTypeDefinitions(CardTypeDefinition[] typeDefinitions) {
-        try {
-            return fromCardTypeDefinitions(typeDefinitions);
-        } catch (IllegalArgumentException e) {
-            throw new JsonParseException(e);
+    /**
+     * Create a card type from the fields of a {@link CardTypeDefinition}.
+     *
+     * @throws IllegalArgumentException if any of the fields are missing or invalid
+     */
+    static CardType createCardType(String name, String[] numberPatterns, int[] validLengths) {
+        if (name == null) {
+            throw new IllegalArgumentException("'name' is missing");
+        }
+        CardType.Builder builder = new CardType.Builder(name);
+
+        if (numberPatterns == null
+                || numberPatterns.length == 0) {
+            throw new IllegalArgumentException("'numberPatterns' is missing or empty");
         }
+        builder.withNumberPatterns(numberPatterns);
+
+        if (validLengths == null
+                || validLengths.length == 0) {
+            throw new IllegalArgumentException("'validLengths' is missing or empty");
+        }
+        builder.withValidLengths(validLengths);
+
+        return builder.build();
     }
 
     private final List<CardType> cardTypes;
+    private final PrefixTrie prefixTrie;
+    private final BinLookupTable binLookupTable;
+    private final BinCache binCache;
+    private final ValidationMetrics metrics;
 
     /**
      * Create a new factory with the given card types.
@@ -217,6 +257,9 @@ public class ValidatedCardFactory {
      * <p>
      * Note that the list of card types is in priority order. i.e. When matching, the first {@link CardType} matching
      * the card number's pattern will be used.
+     * <p>
+     * The list is copied, so later changes to it don't affect the factory. Factories are immutable, so can be shared
+     * between threads.
      *
      * @param cardTypes list of card types
      * @throws NullPointerException     if cardTypes is null
@@ -226,14 +269,214 @@ public class ValidatedCardFactory {
         if (cardTypes == null) {
             throw new NullPointerException("cardTypes cannot be null");
         }
-        this.cardTypes = cardTypes;
+        this.cardTypes = Collections.unmodifiableList(new ArrayList<CardType>(cardTypes));
+        prefixTrie = new PrefixTrie(this.cardTypes);
+        binLookupTable = null;
+        binCache = null;
+        metrics = null;
     }
 
     /**
-     * Get the list of card types used by the factory. This returns the actual instance used by the list, so changes
-     * to the list will affect the factory.
+     * Create a factory with a trie which has already been built for the card types.
+     */
+    ValidatedCardFactory(List<CardType> cardTypes, PrefixTrie prefixTrie) {
+        this.cardTypes = Collections.unmodifiableList(new ArrayList<CardType>(cardTypes));
+        this.prefixTrie = prefixTrie;
+        binLookupTable = null;
+        binCache = null;
+        metrics = null;
+    }
+
+    private ValidatedCardFactory(ValidatedCardFactory factory, BinLookupTable binLookupTable, BinCache binCache,
+                                 ValidationMetrics metrics) {
+        cardTypes = factory.cardTypes;
+        prefixTrie = factory.prefixTrie;
+        this.binLookupTable = binLookupTable;
+        this.binCache = binCache;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Create a factory with the same card types, which looks up the first 6 digits of a card number in a table
+     * instead of matching against the number patterns.
+     * <p>
+     * The table has a slot for every possible 6 digit prefix, so takes about 2MB, and some time to build. In return,
+     * finding the card type takes the same time however many card types there are. Results are the same as for this
+     * factory. Card numbers with fewer than 6 digits, or which fall under a pattern with more than 6 digits, are matched
+     * in the usual way.
      *
-     * @return the list of card types used by this factory
+     * @return a new factory
+     */
+    public ValidatedCardFactory withBinLookupTable() {
+        return binLookupTable != null
+                ? this
+                : new ValidatedCardFactory(this, buildBinLookupTable(), binCache, metrics);
+    }
+
+    private BinLookupTable buildBinLookupTable() {
+        FlightRecorderEvents events = FlightRecorderEvents.get();
+        Object build = events.beginIndexBuild();
+        BinLookupTable table = new BinLookupTable(prefixTrie);
+        events.endIndexBuild(build, "BinLookupTable", table.getClassCount());
+        return table;
+    }
+
+    /**
+     * Create a factory with the same card types, which caches the card type found for each combination of leading
+     * digits and length. This suits traffic where most card numbers come from a small set of BINs.
+     * <p>
+     * Only the leading digits up to the length of the longest number pattern are used, so results are always the same
+     * as for this factory. The cache is safe for concurrent use, and split into stripes with their own locks. When
+     * full, entries are evicted with the clock (second chance) algorithm: an entry which has been hit since the clock
+     * hand last passed it is kept for another round, and the first one which hasn't is evicted. The cache isn't used
+     * if any number pattern has more than 14 digits.
+     *
+     * @param maximumSize maximum number of cached results
+     * @return a new factory, with its own empty cache
+     * @throws IllegalArgumentException if maximumSize is &lt;= 0
+     */
+    public ValidatedCardFactory withBinCache(int maximumSize) {
+        return new ValidatedCardFactory(this, binLookupTable,
+                new BinCache(maximumSize, prefixTrie.getMaxPatternLength()), metrics);
+    }
+
+    /**
+     * Create a factory with the same card types, which reports what it does to a {@link ValidationMetrics}.
+     * <p>
+     * The metrics are told about every card number passed to one of the {@code create} or {@code classify} methods,
+     * including those in a batch, and about every batch. Card numbers classified by {@link MappedFileClassifier} and
+     * {@link ColumnClassifier} aren't reported. Without metrics, a factory doesn't read the clock or make any calls
+     * for them, so the only cost is checking whether there are any.
+     *
+     * @param metrics to report to, or null for none
+     * @return a new factory
+     * @see CountingValidationMetrics
+     */
+    public ValidatedCardFactory withMetrics(ValidationMetrics metrics) {
+        return new ValidatedCardFactory(this, binLookupTable, binCache, metrics);
+    }
+
+    /**
+     * Create a factory with this factory's card types, and the same BIN lookup table, BIN cache and metrics settings as
+     * another factory. The table and cache are built afresh for the card types.
+     *
+     * @param other factory to copy the settings from
+     * @return a new factory, or this factory if the other has none of them
+     */
+    ValidatedCardFactory withSettingsOf(ValidatedCardFactory other) {
+        ValidatedCardFactory result = this;
+        if (other.binLookupTable != null) {
+            result = result.withBinLookupTable();
+        }
+        if (other.binCache != null) {
+            result = result.withBinCache(other.binCache.getMaximumSize());
+        }
+        if (other.metrics != null) {
+            result = result.withMetrics(other.metrics);
+        }
+        return result;
+    }
+
+    /**
+     * @return the metrics the factory reports to, or null if there are none
+     * @see #withMetrics(ValidationMetrics)
+     */
+    public ValidationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the number of card types found in the cache, or 0 if there is no cache
+     * @see #withBinCache(int)
+     */
+    public long getBinCacheHitCount() {
+        return binCache != null ? binCache.getHitCount() : 0;
+    }
+
+    /**
+     * @return the number of card types which had to be looked up because they weren't in the cache, or 0 if there is
+     * no cache
+     * @see #withBinCache(int)
+     */
+    public long getBinCacheMissCount() {
+        return binCache != null ? binCache.getMissCount() : 0;
+    }
+
+    /**
+     * Set the cache hit and miss counts to 0.
+     */
+    void resetBinCacheCounts() {
+        if (binCache != null) {
+            binCache.resetCounts();
+        }
+    }
+
+    PrefixTrie getPrefixTrie() {
+        return prefixTrie;
+    }
+
+    BinLookupTable getBinLookupTable() {
+        return binLookupTable;
+    }
+
+    BinCache getBinCache() {
+        return binCache;
+    }
+
+    /**
+     * See {@link PrefixTrie#findBestMatch(CharSequence)}.
+     */
+    int findBestMatch(CharSequence digits) {
+        if (binCache != null) {
+            long key = binCache.getKey(digits);
+            if (key != BinCache.NO_KEY) {
+                int match = binCache.get(key);
+                if (match == BinCache.MISSING) {
+                    match = findBestMatchUncached(digits);
+                    binCache.put(key, match);
+                }
+                return match;
+            }
+        }
+        return findBestMatchUncached(digits);
+    }
+
+    private int findBestMatchUncached(CharSequence digits) {
+        return binLookupTable != null ? binLookupTable.findBestMatch(digits) : prefixTrie.findBestMatch(digits);
+    }
+
+    /**
+     * See {@link PrefixTrie#findBestMatch(byte[], int, int)}.
+     */
+    int findBestMatch(byte[] digits, int offset, int length) {
+        if (binCache != null) {
+            long key = binCache.getKey(digits, offset, length);
+            if (key != BinCache.NO_KEY) {
+                int match = binCache.get(key);
+                if (match == BinCache.MISSING) {
+                    match = findBestMatchUncached(digits, offset, length);
+                    binCache.put(key, match);
+                }
+                return match;
+            }
+        }
+        return findBestMatchUncached(digits, offset, length);
+    }
+
+    private int findBestMatchUncached(byte[] digits, int offset, int length) {
+        return binLookupTable != null
+                ? binLookupTable.findBestMatch(digits, offset, length)
+                : prefixTrie.findBestMatch(digits, offset, length);
+    }
+
+    static Executor getDefaultExecutor() {
+        return DefaultExecutorHolder.EXECUTOR;
+    }
+
+    /**
+     * Get the list of card types used by the factory. This is a copy of the list passed to the constructor.
+     *
+     * @return the unmodifiable list of card types used by this factory
      */
     public List<CardType> getCardTypesList() {
         return cardTypes;
@@ -248,7 +491,8 @@ public class ValidatedCardFactory {
      * @throws NumberFormatException if cardNumberString is not a valid card number
      */
     public ValidatedCard create(String cardNumberString) {
-        return create(new CardNumber(cardNumberString));
+        long start = metrics != null ? System.nanoTime() : 0;
+        return create(parse(cardNumberString, start), start);
     }
 
     /**
@@ -265,19 +509,412 @@ public class ValidatedCardFactory {
         if (cardNumber == null) {
             throw new NullPointerException("cardNumber cannot be null");
         }
-        ValidatedCard result = null;
-        int resultStrength = 0;
-        for (CardType cardType : cardTypes) {
-            if (cardType != null) {
-                int strength = cardType.getMatchStrength(cardNumber);
-                if (strength > resultStrength) {
-                    result = new ValidatedCard(cardNumber, cardType);
-                    resultStrength = strength;
+        return create(cardNumber, metrics != null ? System.nanoTime() : 0);
+    }
+
+    /**
+     * @param start when the call started, if there are metrics
+     */
+    private ValidatedCard create(CardNumber cardNumber, long start) {
+        int match = findBestMatch(cardNumber.getNumberString());
+        if (match == PrefixTrie.NO_MATCH) {
+            if (metrics != null) {
+                metrics.onClassify(Classification.NO_MATCH, System.nanoTime() - start);
+            }
+            return null;
+        }
+        // The match already holds the strength, so the pattern & length needn't be checked again. The low bit is set
+        // if the length is valid, and only then is the Luhn check needed.
+        boolean isLengthValid = (PrefixTrie.getStrength(match) & 1) != 0;
+        boolean isNumberValid = isLengthValid && cardNumber.passesLuhnCheck();
+        ValidatedCard card = new ValidatedCard(cardNumber, getMatchedCardType(match), isNumberValid);
+        if (metrics != null) {
+            boolean luhnCheck = isLengthValid ? isNumberValid : cardNumber.passesLuhnCheck();
+            metrics.onClassify(encode(match, luhnCheck), System.nanoTime() - start);
+        }
+        return card;
+    }
+
+    /**
+     * Parse a card number, reporting any failure to the metrics.
+     *
+     * @param start when the call started, if there are metrics
+     */
+    private CardNumber parse(String cardNumberString, long start) {
+        if (metrics == null) {
+            return new CardNumber(cardNumberString);
+        }
+        try {
+            return new CardNumber(cardNumberString);
+        } catch (NumberFormatException e) {
+            metrics.onParseFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * See {@link #create(CardNumber)}.
+     * <p>
+     * If the card number is only digits, it is matched and checked in place, and a {@link CardNumber} is only created
+     * for the returned card. Otherwise it is handled in the same way as {@link #create(String)}.
+     *
+     * @param cardNumber partial or complete card number (must consist only of digits, and optional whitespace)
+     * @return a new {@link ValidatedCard} instance, or null if a card type matching the card number could not be found
+     * @throws NullPointerException  if cardNumber is null
+     * @throws NumberFormatException if cardNumber is not a valid card number
+     */
+    public ValidatedCard create(CharSequence cardNumber) {
+        if (cardNumber == null) {
+            throw new NullPointerException("cardNumber cannot be null");
+        }
+        long start = metrics != null ? System.nanoTime() : 0;
+        if (!isDigitsOnly(cardNumber)) {
+            return create(parse(cardNumber.toString(), start), start);
+        }
+        int match = findBestMatch(cardNumber);
+        if (match == PrefixTrie.NO_MATCH) {
+            if (metrics != null) {
+                metrics.onClassify(Classification.NO_MATCH, System.nanoTime() - start);
+            }
+            return null;
+        }
+        boolean isLengthValid = (PrefixTrie.getStrength(match) & 1) != 0;
+        boolean isNumberValid = isLengthValid && Luhn.passesCheck(cardNumber);
+        ValidatedCard card = new ValidatedCard(new CardNumber(cardNumber.toString()), getMatchedCardType(match),
+                isNumberValid);
+        if (metrics != null) {
+            boolean luhnCheck = isLengthValid ? isNumberValid : Luhn.passesCheck(cardNumber);
+            metrics.onClassify(encode(match, luhnCheck), System.nanoTime() - start);
+        }
+        return card;
+    }
+
+    /**
+     * See {@link #create(CharSequence)}.
+     *
+     * @param chars  holds a partial or complete card number (must consist only of digits, and optional whitespace)
+     * @param offset index of the first character
+     * @param length number of characters
+     * @return a new {@link ValidatedCard} instance, or null if a card type matching the card number could not be found
+     * @throws NullPointerException      if chars is null
+     * @throws IndexOutOfBoundsException if offset or length are negative, or offset + length is greater than the
+     *                                   length of chars
+     * @throws NumberFormatException     if the characters are not a valid card number
+     */
+    public ValidatedCard create(char[] chars, int offset, int length) {
+        if (chars == null) {
+            throw new NullPointerException("chars cannot be null");
+        }
+        checkBounds(chars.length, offset, length);
+        return create(CharBuffer.wrap(chars, offset, length));
+    }
+
+    /**
+     * See {@link #create(CharSequence)}. The bytes are read as ASCII.
+     *
+     * @param bytes  holds a partial or complete card number (must consist only of digits, and optional whitespace)
+     * @param offset index of the first byte
+     * @param length number of bytes
+     * @return a new {@link ValidatedCard} instance, or null if a card type matching the card number could not be found
+     * @throws NullPointerException      if bytes is null
+     * @throws IndexOutOfBoundsException if offset or length are negative, or offset + length is greater than the
+     *                                   length of bytes
+     * @throws NumberFormatException     if the bytes are not a valid card number
+     */
+    public ValidatedCard create(byte[] bytes, int offset, int length) {
+        if (bytes == null) {
+            throw new NullPointerException("bytes cannot be null");
+        }
+        checkBounds(bytes.length, offset, length);
+        long start = metrics != null ? System.nanoTime() : 0;
+        if (!isDigitsOnly(bytes, offset, length)) {
+            return create(parse(decodeAscii(bytes, offset, length), start), start);
+        }
+        int match = findBestMatch(bytes, offset, length);
+        if (match == PrefixTrie.NO_MATCH) {
+            if (metrics != null) {
+                metrics.onClassify(Classification.NO_MATCH, System.nanoTime() - start);
+            }
+            return null;
+        }
+        boolean isLengthValid = (PrefixTrie.getStrength(match) & 1) != 0;
+        boolean isNumberValid = isLengthValid && Luhn.passesCheck(bytes, offset, length);
+        ValidatedCard card = new ValidatedCard(new CardNumber(decodeAscii(bytes, offset, length)),
+                getMatchedCardType(match), isNumberValid);
+        if (metrics != null) {
+            boolean luhnCheck = isLengthValid ? isNumberValid : Luhn.passesCheck(bytes, offset, length);
+            metrics.onClassify(encode(match, luhnCheck), System.nanoTime() - start);
+        }
+        return card;
+    }
+
+    /**
+     * See {@link #create(CharSequence)}. The bytes from the buffer's position up to its limit are read as ASCII. The
+     * buffer's position is not changed.
+     * <p>
+     * Buffers without an accessible array (e.g. direct buffers) are read in place, and the digits are only copied out
+     * if a card is returned.
+     *
+     * @param buffer holds a partial or complete card number (must consist only of digits, and optional whitespace)
+     * @return a new {@link ValidatedCard} instance, or null if a card type matching the card number could not be found
+     * @throws NullPointerException  if buffer is null
+     * @throws NumberFormatException if the bytes are not a valid card number
+     */
+    public ValidatedCard create(ByteBuffer buffer) {
+        if (buffer == null) {
+            throw new NullPointerException("buffer cannot be null");
+        }
+        if (buffer.hasArray()) {
+            return create(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        return create(new AsciiBufferSequence(buffer, buffer.position(), buffer.limit()));
+    }
+
+    /**
+     * Classify a card number without creating any objects, for when only the card type and validity are needed.
+     * <p>
+     * The result can be decoded with the static methods of {@link Classification}. The card type is the same as for
+     * {@link #create(CharSequence)}, and is identified by its ordinal. See {@link #getCardType(int)}. Card numbers
+     * which aren't only digits are handled in the same way as {@link #create(String)}, so may allocate.
+     *
+     * @param cardNumber partial or complete card number (must consist only of digits, and optional whitespace)
+     * @return the classification, or {@link Classification#NO_MATCH}
+     * @throws NullPointerException  if cardNumber is null
+     * @throws NumberFormatException if cardNumber is not a valid card number
+     */
+    public int classify(CharSequence cardNumber) {
+        if (cardNumber == null) {
+            throw new NullPointerException("cardNumber cannot be null");
+        }
+        long start = metrics != null ? System.nanoTime() : 0;
+        if (!isDigitsOnly(cardNumber)) {
+            return classify(parse(cardNumber.toString(), start), start);
+        }
+        int match = findBestMatch(cardNumber);
+        int classification = match != PrefixTrie.NO_MATCH
+                ? encode(match, Luhn.passesCheck(cardNumber))
+                : Classification.NO_MATCH;
+        if (metrics != null) {
+            metrics.onClassify(classification, System.nanoTime() - start);
+        }
+        return classification;
+    }
+
+    /**
+     * See {@link #classify(CharSequence)}.
+     *
+     * @param cardNumber card number to classify
+     * @return the classification, or {@link Classification#NO_MATCH}
+     * @throws NullPointerException if cardNumber is null
+     */
+    public int classify(CardNumber cardNumber) {
+        if (cardNumber == null) {
+            throw new NullPointerException("cardNumber cannot be null");
+        }
+        return classify(cardNumber, metrics != null ? System.nanoTime() : 0);
+    }
+
+    /**
+     * @param start when the call started, if there are metrics
+     */
+    private int classify(CardNumber cardNumber, long start) {
+        int match = findBestMatch(cardNumber.getNumberString());
+        int classification = match != PrefixTrie.NO_MATCH
+                ? encode(match, cardNumber.passesLuhnCheck())
+                : Classification.NO_MATCH;
+        if (metrics != null) {
+            metrics.onClassify(classification, System.nanoTime() - start);
+        }
+        return classification;
+    }
+
+    /**
+     * See {@link #classify(CharSequence)}. The bytes are read as ASCII.
+     *
+     * @param bytes  holds a partial or complete card number (must consist only of digits, and optional whitespace)
+     * @param offset index of the first byte
+     * @param length number of bytes
+     * @return the classification, or {@link Classification#NO_MATCH}
+     * @throws NullPointerException      if bytes is null
+     * @throws IndexOutOfBoundsException if offset or length are negative, or offset + length is greater than the
+     *                                   length of bytes
+     * @throws NumberFormatException     if the bytes are not a valid card number
+     */
+    public int classify(byte[] bytes, int offset, int length) {
+        if (bytes == null) {
+            throw new NullPointerException("bytes cannot be null");
+        }
+        checkBounds(bytes.length, offset, length);
+        long start = metrics != null ? System.nanoTime() : 0;
+        if (!isDigitsOnly(bytes, offset, length)) {
+            return classify(parse(decodeAscii(bytes, offset, length), start), start);
+        }
+        int match = findBestMatch(bytes, offset, length);
+        int classification = match != PrefixTrie.NO_MATCH
+                ? encode(match, Luhn.passesCheck(bytes, offset, length))
+                : Classification.NO_MATCH;
+        if (metrics != null) {
+            metrics.onClassify(classification, System.nanoTime() - start);
+        }
+        return classification;
+    }
+
+    private static int encode(int match, boolean luhnCheck) {
+        return Classification.encode(PrefixTrie.getStrength(match), PrefixTrie.getTypeIndex(match), luhnCheck);
+    }
+
+    /**
+     * Card types are given ordinals by their position in the list passed to the constructor, starting from 0. These
+     * don't change for the lifetime of the factory, and are shared by factories derived from it (e.g. by
+     * {@link #withBinCache(int)}).
+     *
+     * @param ordinal ordinal of a card type, as returned by {@link Classification#getTypeOrdinal(int)}
+     * @return the card type
+     * @throws IndexOutOfBoundsException if ordinal is out of range
+     */
+    public CardType getCardType(int ordinal) {
+        return prefixTrie.getCardTypes()[ordinal];
+    }
+
+    /**
+     * @return the number of card type ordinals. See {@link #getCardType(int)}.
+     */
+    public int getCardTypeCount() {
+        return prefixTrie.getCardTypes().length;
+    }
+
+    private CardType getMatchedCardType(int match) {
+        return prefixTrie.getCardType(PrefixTrie.getTypeIndex(match));
+    }
+
+    private static boolean isDigitsOnly(CharSequence chars) {
+        int length = chars.length();
+        for (int i = 0; i < length; i++) {
+            char c = chars.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return length > 0;
+    }
+
+    private static boolean isDigitsOnly(byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] < '0' || bytes[i] > '9') {
+                return false;
+            }
+        }
+        return length > 0;
+    }
+
+    private static String decodeAscii(byte[] bytes, int offset, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (bytes[offset + i] & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    private static void checkBounds(int arrayLength, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > arrayLength - length) {
+            throw new IndexOutOfBoundsException(
+                    "offset: " + offset + ", length: " + length + ", array length: " + arrayLength);
+        }
+    }
+
+    /**
+     * Create {@link ValidatedCard}s for a batch of card numbers, using a shared pool with one thread per available
+     * processor.
+     * <p>
+     * See {@link #createAll(List, Executor)}.
+     *
+     * @param cardNumberStrings partial or complete card numbers
+     * @return the results, in the same order as cardNumberStrings
+     * @throws NullPointerException if cardNumberStrings or any of its elements is null
+     * @throws InterruptedException if interrupted while waiting for the batch to complete
+     */
+    public BatchResult createAll(List<String> cardNumberStrings) throws InterruptedException {
+        return createAll(cardNumberStrings, getDefaultExecutor());
+    }
+
+    /**
+     * Create {@link ValidatedCard}s for a batch of card numbers.
+     * <p>
+     * The batch is split into contiguous chunks, which are run on the given executor. Each card number is handled in
+     * the same way as {@link #create(String)}, except that card numbers which are not valid are reported through
+     * {@link BatchResult#getError(int)} rather than aborting the batch.
+     *
+     * @param cardNumberStrings partial or complete card numbers
+     * @param executor          executor to run the chunks on
+     * @return the results, in the same order as cardNumberStrings
+     * @throws NullPointerException if cardNumberStrings, any of its elements, or executor is null
+     * @throws InterruptedException if interrupted while waiting for the batch to complete
+     */
+    public BatchResult createAll(List<String> cardNumberStrings, Executor executor) throws InterruptedException {
+        if (cardNumberStrings == null) {
+            throw new NullPointerException("cardNumberStrings cannot be null");
+        }
+        if (executor == null) {
+            throw new NullPointerException("executor cannot be null");
+        }
+        long startNanos = metrics != null ? System.nanoTime() : 0;
+        String[] input = cardNumberStrings.toArray(new String[cardNumberStrings.size()]);
+        ValidatedCard[] cards = new ValidatedCard[input.length];
+        NumberFormatException[] errors = new NumberFormatException[input.length];
+
+        if (input.length <= BATCH_CHUNK_SIZE) {
+            // Not worth handing off to another thread.
+            new BatchChunk(input, cards, errors, 0, input.length).call();
+        } else {
+            List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>();
+            for (int start = 0; start < input.length; start += BATCH_CHUNK_SIZE) {
+                int end = Math.min(start + BATCH_CHUNK_SIZE, input.length);
+                FutureTask<Void> task = new FutureTask<Void>(new BatchChunk(input, cards, errors, start, end));
+                tasks.add(task);
+                executor.execute(task);
+            }
+            rethrowUnchecked(awaitAll(tasks));
+        }
+
+        if (metrics != null) {
+            metrics.onBatch(input.length, System.nanoTime() - startNanos);
+        }
+        return new BatchResult(cards, errors);
+    }
+
+    /**
+     * Wait for all of the tasks to complete.
+     *
+     * @return the cause of the first task which failed, or null if they were all successful
+     * @throws InterruptedException if interrupted while waiting, in which case any remaining tasks are cancelled
+     */
+    static Throwable awaitAll(List<? extends Future<?>> tasks) throws InterruptedException {
+        Throwable failure = null;
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
                 }
+            } catch (InterruptedException e) {
+                for (Future<?> toCancel : tasks) {
+                    toCancel.cancel(false);
+                }
+                throw e;
             }
         }
+        return failure;
+    }
 
-        return result;
+    static void rethrowUnchecked(Throwable failure) {
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
     }
 
     @Override
@@ -293,4 +930,116 @@ public class ValidatedCardFactory {
         sb.append("]}");
         return sb.toString();
     }
+
+    /**
+     * Creates the validated cards for one contiguous part of a batch.
+     */
+    private final class BatchChunk implements Callable<Void> {
+        private final String[] input;
+        private final ValidatedCard[] cards;
+        private final NumberFormatException[] errors;
+        private final int start;
+        private final int end;
+
+        private BatchChunk(String[] input, ValidatedCard[] cards, NumberFormatException[] errors, int start, int end) {
+            this.input = input;
+            this.cards = cards;
+            this.errors = errors;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public Void call() {
+            for (int i = start; i < end; i++) {
+                try {
+                    cards[i] = create(input[i]);
+                } catch (NumberFormatException e) {
+                    errors[i] = e;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A view of ASCII bytes in a buffer as characters, read with absolute gets so the buffer's position isn't changed.
+     * Lets buffers without an accessible array be matched in place, by the {@link CharSequence} methods.
+     */
+    private static final class AsciiBufferSequence implements CharSequence {
+        private final ByteBuffer buffer;
+        private final int start;
+        private final int end;
+
+        private AsciiBufferSequence(ByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= end - start) {
+                throw new IndexOutOfBoundsException("index: " + index + ", length: " + (end - start));
+            }
+            return (char) (buffer.get(start + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            if (from < 0 || to > end - start || from > to) {
+                throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + (end - start));
+            }
+            return new AsciiBufferSequence(buffer, start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            char[] chars = new char[end - start];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = (char) (buffer.get(start + i) & 0xFF);
+            }
+            return new String(chars);
+        }
+    }
+
+    /**
+     * Lazily creates the factory returned by {@link #withDefaultCardTypes()}. Class initialisation is thread-safe, so
+     * the factory is only ever created once.
+     */
+    private static final class DefaultFactoryHolder {
+        private static final ValidatedCardFactory FACTORY = create();
+
+        private static ValidatedCardFactory create() {
+            FlightRecorderEvents events = FlightRecorderEvents.get();
+            Object load = events.beginLoad();
+            ValidatedCardFactory factory = new ValidatedCardFactory(DefaultCardTypes.CARD_TYPES);
+            events.endLoad(load, "default card types", factory);
+            return factory;
+        }
+    }
+
+    /**
+     * Lazily creates the shared pool used for batches when no executor is given. The threads are daemons, so the pool
+     * doesn't need to be shut down.
+     */
+    private static final class DefaultExecutorHolder {
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(),
+                new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "plasticfantastic-batch-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
 }
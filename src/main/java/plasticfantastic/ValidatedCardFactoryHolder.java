@@ -0,0 +1,248 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import com.google.gson.JsonParseException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Holds the current {@link ValidatedCardFactory}, so that card type definitions can be updated while in use.
+ * <p>
+ * New definitions can be pushed as JSON, or read from a file which is checked for changes. Each new factory is built
+ * in full by the thread doing the update, and then replaces the current one in a single step. {@link #get()} never
+ * blocks, and always returns a complete factory. If the new definitions are invalid, the current factory is kept.
+ * <p>
+ * Callers should get the factory once for each unit of work, so that all of the work uses the same definitions.
+ * <p>
+ * When watching a file, it is reloaded when its modification time or size changes. To avoid reading a file which is
+ * only partly written, new versions should be written to a temporary file and then renamed.
+ * <p>
+ * Factories built from pushed JSON or a reloaded file get the same settings as the factory they replace: a BIN lookup
+ * table if it had one, a BIN cache of the same size if it had one, and the same {@link ValidationMetrics}. So the
+ * holder can be set up once with e.g. {@code holder.update(holder.get().withBinCache(1000))}, and reloads keep it.
+ */
+public class ValidatedCardFactoryHolder {
+
+    private static final Logger LOGGER = Logger.getLogger(ValidatedCardFactoryHolder.class.getName());
+
+    private final AtomicReference<ValidatedCardFactory> factory;
+    private final File file;
+
+    /**
+     * Guards the fields below, and makes sure updates are applied in order.
+     */
+    private final Object updateLock = new Object();
+    private long lastModified;
+    private long lastLength;
+    private volatile long lastUpdateTime;
+
+    /**
+     * Create a holder for definitions which will be pushed with {@link #update(String)}.
+     *
+     * @param initialFactory factory to use until the first update
+     * @throws NullPointerException if initialFactory is null
+     */
+    public ValidatedCardFactoryHolder(ValidatedCardFactory initialFactory) {
+        if (initialFactory == null) {
+            throw new NullPointerException("initialFactory cannot be null");
+        }
+        factory = new AtomicReference<ValidatedCardFactory>(initialFactory);
+        file = null;
+    }
+
+    /**
+     * Create a holder for definitions read from a JSON file. See {@link ValidatedCardFactory} for details of the
+     * expected JSON structure.
+     *
+     * @param file the file to read. Use {@link #reloadIfModified()} or {@link #watch} to pick up changes to it.
+     * @throws NullPointerException if file is null
+     * @throws IOException          if there was some problem reading the file from the filesystem
+     * @throws JsonParseException   if the data is not valid or could not be read for some reason
+     */
+    public ValidatedCardFactoryHolder(File file) throws IOException {
+        if (file == null) {
+            throw new NullPointerException("file cannot be null");
+        }
+        this.file = file;
+        long modified = file.lastModified();
+        long length = file.length();
+        factory = new AtomicReference<ValidatedCardFactory>(ValidatedCardFactory.fromFile(file));
+        lastModified = modified;
+        lastLength = length;
+    }
+
+    /**
+     * @return the current factory
+     */
+    public ValidatedCardFactory get() {
+        return factory.get();
+    }
+
+    /**
+     * Replace the current factory with one built from a JSON string. See {@link ValidatedCardFactory} for details of
+     * the expected JSON structure.
+     *
+     * @param json to parse
+     * @return the new factory
+     * @throws NullPointerException if json is null
+     * @throws JsonParseException   if the data is not valid for some reason, in which case the current factory is kept
+     */
+    public ValidatedCardFactory update(String json) {
+        ValidatedCardFactory newFactory = ValidatedCardFactory.fromJsonString(json);
+        synchronized (updateLock) {
+            return replace(newFactory, true);
+        }
+    }
+
+    /**
+     * Replace the current factory. The new factory is used as it is, including its settings.
+     *
+     * @param newFactory the new factory
+     * @throws NullPointerException if newFactory is null
+     */
+    public void update(ValidatedCardFactory newFactory) {
+        if (newFactory == null) {
+            throw new NullPointerException("newFactory cannot be null");
+        }
+        synchronized (updateLock) {
+            replace(newFactory, false);
+        }
+    }
+
+    /**
+     * Reload the file if its modification time or size has changed since it was last read. If the file can't be read
+     * or isn't valid, the problem is logged and the current factory is kept. The same version of the file isn't tried
+     * again.
+     *
+     * @return true if the factory was replaced
+     * @throws IllegalStateException if the holder wasn't created from a file
+     */
+    public boolean reloadIfModified() {
+        return reload(false);
+    }
+
+    /**
+     * Reload the file, whether or not it has changed. If the file can't be read or isn't valid, the problem is logged
+     * and the current factory is kept.
+     *
+     * @return true if the factory was replaced
+     * @throws IllegalStateException if the holder wasn't created from a file
+     */
+    public boolean reload() {
+        return reload(true);
+    }
+
+    /**
+     * @return true if the holder was created from a file, so can be reloaded
+     */
+    public boolean isReloadable() {
+        return file != null;
+    }
+
+    /**
+     * @return the time the factory was last replaced, in milliseconds since the epoch, or 0 if it hasn't been
+     */
+    public long getLastUpdateTime() {
+        return lastUpdateTime;
+    }
+
+    private boolean reload(boolean force) {
+        if (file == null) {
+            throw new IllegalStateException("Not created from a file");
+        }
+        synchronized (updateLock) {
+            long modified = file.lastModified();
+            long length = file.length();
+            if (!force && modified == lastModified && length == lastLength) {
+                return false;
+            }
+            lastModified = modified;
+            lastLength = length;
+            try {
+                replace(ValidatedCardFactory.fromFile(file), true);
+                return true;
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to reload " + file + ", keeping current card types", e);
+            } catch (RuntimeException e) {
+                if (!JsonErrors.isJsonError(e)) {
+                    throw e;
+                }
+                LOGGER.log(Level.WARNING, "Failed to reload " + file + ", keeping current card types", e);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Check the file for changes at a fixed interval, using {@link #reloadIfModified()}.
+     *
+     * @param executor to run the checks on
+     * @param period   time between checks
+     * @param unit     unit of period
+     * @return the scheduled checks, which can be cancelled to stop watching the file
+     * @throws NullPointerException     if executor or unit is null
+     * @throws IllegalArgumentException if period is &lt;= 0
+     * @throws IllegalStateException    if the holder wasn't created from a file
+     */
+    public ScheduledFuture<?> watch(ScheduledExecutorService executor, long period, TimeUnit unit) {
+        if (executor == null) {
+            throw new NullPointerException("executor cannot be null");
+        }
+        if (unit == null) {
+            throw new NullPointerException("unit cannot be null");
+        }
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be greater than 0");
+        }
+        if (file == null) {
+            throw new IllegalStateException("Not created from a file");
+        }
+        return executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    reloadIfModified();
+                } catch (RuntimeException e) {
+                    // Don't let one failure cancel the checks.
+                    LOGGER.log(Level.WARNING, "Failed to reload " + file, e);
+                }
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Must be called with {@link #updateLock} held.
+     *
+     * @param keepSettings whether the new factory should get the current factory's settings
+     * @return the factory now in use
+     */
+    private ValidatedCardFactory replace(ValidatedCardFactory newFactory, boolean keepSettings) {
+        if (keepSettings) {
+            newFactory = newFactory.withSettingsOf(factory.get());
+        }
+        factory.set(newFactory);
+        lastUpdateTime = System.currentTimeMillis();
+        return newFactory;
+    }
+}
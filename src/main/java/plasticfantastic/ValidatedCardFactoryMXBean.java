@@ -0,0 +1,140 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import java.util.Map;
+
+/**
+ * Management interface for a {@link ValidatedCardFactory}, implemented by {@link ValidatedCardFactoryMonitor}.
+ * <p>
+ * Counts and latencies come from the factory's {@link CountingValidationMetrics}, and are 0 if it doesn't have one.
+ * Cache counts are 0 if the factory has no BIN cache.
+ */
+public interface ValidatedCardFactoryMXBean {
+
+    /**
+     * @return the number of card types loaded
+     */
+    int getCardTypeCount();
+
+    /**
+     * @return the total number of number patterns over all card types
+     */
+    int getPatternCount();
+
+    /**
+     * @return true if the factory reports to a {@link CountingValidationMetrics}
+     */
+    boolean isMetricsEnabled();
+
+    /**
+     * @return the number of card numbers classified, including those which failed to parse
+     */
+    long getClassificationCount();
+
+    /**
+     * @return the number of card numbers which matched each card type, by name
+     */
+    Map<String, Long> getMatchCountsByType();
+
+    /**
+     * @return the number of card numbers which didn't match any card type
+     */
+    long getUnmatchedCount();
+
+    /**
+     * @return the number of card numbers which matched a card type, but failed the Luhn check
+     */
+    long getLuhnFailureCount();
+
+    /**
+     * @return the number of card numbers which matched a card type, but weren't a valid length for it
+     */
+    long getLengthMismatchCount();
+
+    /**
+     * @return the number of card numbers which couldn't be parsed
+     */
+    long getParseFailureCount();
+
+    /**
+     * @return the mean time to classify a card number, in nanoseconds
+     */
+    double getClassifyLatencyMeanNanos();
+
+    /**
+     * @return the approximate 99th percentile of the time to classify a card number, in nanoseconds
+     */
+    long getClassifyLatency99thPercentileNanos();
+
+    /**
+     * @return the number of batches
+     */
+    long getBatchCount();
+
+    /**
+     * @return the number of card types found in the BIN cache
+     */
+    long getBinCacheHitCount();
+
+    /**
+     * @return the number of card types which weren't in the BIN cache
+     */
+    long getBinCacheMissCount();
+
+    /**
+     * @return the fraction of lookups which were found in the BIN cache, from 0 to 1, or 0 if there have been none
+     */
+    double getBinCacheHitRatio();
+
+    /**
+     * @return card numbers classified per second over about the last minute
+     */
+    double getThroughputLastMinute();
+
+    /**
+     * @return card numbers classified per second over about the last 5 minutes
+     */
+    double getThroughputLast5Minutes();
+
+    /**
+     * @return card numbers classified per second over about the last 15 minutes
+     */
+    double getThroughputLast15Minutes();
+
+    /**
+     * @return the time the card types were last replaced, in milliseconds since the epoch, or 0 if they haven't been
+     */
+    long getLastReloadTime();
+
+    /**
+     * @return true if the card types were read from a file, so {@link #reloadDefinitions()} can be used
+     */
+    boolean isReloadable();
+
+    /**
+     * Set all of the counts to 0, and clear the latencies and throughput history.
+     */
+    void resetCounters();
+
+    /**
+     * Read the card types from their file again, whether or not it has changed.
+     *
+     * @return true if the card types were replaced, or false if the file couldn't be read or isn't valid
+     * @throws IllegalStateException if the card types weren't read from a file
+     */
+    boolean reloadDefinitions();
+}
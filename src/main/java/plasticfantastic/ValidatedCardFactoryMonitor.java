@@ -0,0 +1,297 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes the statistics of a {@link ValidatedCardFactory} through JMX, as a {@link ValidatedCardFactoryMXBean}.
+ * <p>
+ * The factory is read from a {@link ValidatedCardFactoryHolder} each time, so statistics follow reloads. Counts need
+ * the factory to report to a {@link CountingValidationMetrics}, e.g.
+ * <pre>
+ * holder.update(holder.get().withMetrics(new CountingValidationMetrics()));
+ * new ValidatedCardFactoryMonitor(holder).register("payments");
+ * </pre>
+ * The {@link CountingValidationMetrics} can also be the delegate of a {@code JfrValidationMetrics}.
+ * The holder passes the metrics on to factories loaded after that. Matches are counted by card type ordinal, so if a
+ * reload changes the order of the card types, counts from before it are attributed to the new card type names.
+ * <p>
+ * Throughput is worked out from the classification count when it is read, so nothing runs in the background. The
+ * windows are only approximate: they reach back to the latest earlier read at least that long ago, or to when the
+ * monitor was created or reset if there isn't one.
+ */
+public class ValidatedCardFactoryMonitor implements ValidatedCardFactoryMXBean {
+
+    /**
+     * Domain of the names used by {@link #register(String)}.
+     */
+    public static final String DOMAIN = "plasticfantastic";
+
+    private static final long MIN_SAMPLE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final long MAX_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(15);
+
+    private final ValidatedCardFactoryHolder holder;
+
+    /**
+     * {time in milliseconds, classification count}, oldest first. Guarded by this.
+     */
+    private final ArrayDeque<long[]> samples = new ArrayDeque<long[]>();
+
+    /**
+     * @param holder holds the factory to monitor. Reloads are done through it.
+     * @throws NullPointerException if holder is null
+     */
+    public ValidatedCardFactoryMonitor(ValidatedCardFactoryHolder holder) {
+        if (holder == null) {
+            throw new NullPointerException("holder cannot be null");
+        }
+        this.holder = holder;
+        samples.addLast(new long[]{System.currentTimeMillis(), getClassificationCount()});
+    }
+
+    /**
+     * Monitor a factory which can't be reloaded.
+     *
+     * @param factory the factory to monitor
+     * @throws NullPointerException if factory is null
+     */
+    public ValidatedCardFactoryMonitor(ValidatedCardFactory factory) {
+        this(new ValidatedCardFactoryHolder(factory));
+    }
+
+    /**
+     * Register with the platform MBean server, under the name
+     * {@code plasticfantastic:type=ValidatedCardFactory,name=<name>}.
+     *
+     * @param name distinguishes this factory from any others in the JVM
+     * @return the name registered under, which can be used to unregister
+     * @throws NullPointerException if name is null
+     * @throws JMException          if the name is already registered, or registration failed for some other reason
+     */
+    public ObjectName register(String name) throws JMException {
+        if (name == null) {
+            throw new NullPointerException("name cannot be null");
+        }
+        ObjectName objectName = new ObjectName(DOMAIN + ":type=ValidatedCardFactory,name=" + ObjectName.quote(name));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * @return the holder of the factory being monitored
+     */
+    public ValidatedCardFactoryHolder getHolder() {
+        return holder;
+    }
+
+    @Override
+    public int getCardTypeCount() {
+        return holder.get().getCardTypeCount();
+    }
+
+    @Override
+    public int getPatternCount() {
+        ValidatedCardFactory factory = holder.get();
+        int count = 0;
+        for (int i = 0; i < factory.getCardTypeCount(); i++) {
+            count += factory.getCardType(i).getNumberPatterns().length;
+        }
+        return count;
+    }
+
+    @Override
+    public boolean isMetricsEnabled() {
+        return getMetrics() != null;
+    }
+
+    @Override
+    public long getClassificationCount() {
+        CountingValidationMetrics metrics = getMetrics();
+        return metrics != null ? metrics.getClassifyLatency().getCount() : 0;
+    }
+
+    @Override
+    public Map<String, Long> getMatchCountsByType() {
+        ValidatedCardFactory factory = holder.get();
+        CountingValidationMetrics metrics = getMetrics(factory);
+        Map<String, Long> counts = new LinkedHashMap<String, Long>();
+        for (int i = 0; i < factory.getCardTypeCount(); i++) {
+            String name = factory.getCardType(i).getName();
+            long count = metrics != null ? metrics.getMatchCount(i) : 0;
+            // Names should be unique, but aren't checked.
+            Long previous = counts.get(name);
+            counts.put(name, previous != null ? previous + count : count);
+        }
+        return counts;
+    }
+
+    @Override
+    public long getUnmatchedCount() {
+        CountingValidationMetrics metrics = getMetrics();
+        return metrics != null ? metrics.getUnmatchedCount() : 0;
+    }
+
+    @Override
+    public long getLuhnFailureCount() {
+        CountingValidationMetrics metrics = getMetrics();
+        return metrics != null ? metrics.getLuhnFailureCount() : 0;
+    }
+
+    @Override
+    public long getLengthMismatchCount() {
+        CountingValidationMetrics metrics = getMetrics();
+        return metrics != null ? metrics.getLengthMismatchCount() : 0;
+    }
+
+    @Override
+    public long getParseFailureCount() {
+        CountingValidationMetrics metrics = getMetrics();
+        return metrics != null ? metrics.getParseFailureCount() : 0;
+    }
+
+    @Override
+    public double getClassifyLatencyMeanNanos() {
+        CountingValidationMetrics metrics = getMetrics();
+        return metrics != null ? metrics.getClassifyLatency().getMeanNanos() : 0;
+    }
+
+    @Override
+    public long getClassifyLatency99thPercentileNanos() {
+        CountingValidationMetrics metrics = getMetrics();
+        return metrics != null ? metrics.getClassifyLatency().getValueAtPercentile(99) : 0;
+    }
+
+    @Override
+    public long getBatchCount() {
+        CountingValidationMetrics metrics = getMetrics();
+        return metrics != null ? metrics.getBatchLatency().getCount() : 0;
+    }
+
+    @Override
+    public long getBinCacheHitCount() {
+        return holder.get().getBinCacheHitCount();
+    }
+
+    @Override
+    public long getBinCacheMissCount() {
+        return holder.get().getBinCacheMissCount();
+    }
+
+    @Override
+    public double getBinCacheHitRatio() {
+        ValidatedCardFactory factory = holder.get();
+        long hits = factory.getBinCacheHitCount();
+        long total = hits + factory.getBinCacheMissCount();
+        return total > 0 ? (double) hits / total : 0;
+    }
+
+    @Override
+    public double getThroughputLastMinute() {
+        return getThroughput(TimeUnit.MINUTES.toMillis(1), System.currentTimeMillis());
+    }
+
+    @Override
+    public double getThroughputLast5Minutes() {
+        return getThroughput(TimeUnit.MINUTES.toMillis(5), System.currentTimeMillis());
+    }
+
+    @Override
+    public double getThroughputLast15Minutes() {
+        return getThroughput(TimeUnit.MINUTES.toMillis(15), System.currentTimeMillis());
+    }
+
+    @Override
+    public long getLastReloadTime() {
+        return holder.getLastUpdateTime();
+    }
+
+    @Override
+    public boolean isReloadable() {
+        return holder.isReloadable();
+    }
+
+    @Override
+    public void resetCounters() {
+        ValidatedCardFactory factory = holder.get();
+        CountingValidationMetrics metrics = getMetrics(factory);
+        if (metrics != null) {
+            metrics.reset();
+        }
+        factory.resetBinCacheCounts();
+        synchronized (this) {
+            samples.clear();
+            samples.addLast(new long[]{System.currentTimeMillis(), getClassificationCount()});
+        }
+    }
+
+    @Override
+    public boolean reloadDefinitions() {
+        return holder.reload();
+    }
+
+    /**
+     * @param windowMillis how far back to measure from
+     * @param nowMillis    the current time
+     * @return card numbers classified per second over the window
+     */
+    synchronized double getThroughput(long windowMillis, long nowMillis) {
+        long count = getClassificationCount();
+        long[] last = samples.peekLast();
+        if (nowMillis - last[0] >= MIN_SAMPLE_INTERVAL_MILLIS) {
+            samples.addLast(new long[]{nowMillis, count});
+        }
+        // Drop samples older than needed for the longest window, keeping one at or before its start.
+        while (samples.size() > 1) {
+            long[] oldest = samples.removeFirst();
+            if (samples.peekFirst()[0] > nowMillis - MAX_WINDOW_MILLIS) {
+                samples.addFirst(oldest);
+                break;
+            }
+        }
+
+        // The latest sample at or before the start of the window, or the earliest there is.
+        long[] base = samples.peekFirst();
+        for (long[] sample : samples) {
+            if (sample[0] > nowMillis - windowMillis) {
+                break;
+            }
+            base = sample;
+        }
+        long elapsed = nowMillis - base[0];
+        return elapsed > 0 ? Math.max(0, count - base[1]) * 1000.0 / elapsed : 0;
+    }
+
+    private CountingValidationMetrics getMetrics() {
+        return getMetrics(holder.get());
+    }
+
+    private static CountingValidationMetrics getMetrics(ValidatedCardFactory factory) {
+        ValidationMetrics metrics = factory.getMetrics();
+        while (metrics instanceof DelegatingValidationMetrics) {
+            metrics = ((DelegatingValidationMetrics) metrics).getDelegate();
+        }
+        return metrics instanceof CountingValidationMetrics ? (CountingValidationMetrics) metrics : null;
+    }
+}
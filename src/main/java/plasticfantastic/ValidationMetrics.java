@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+/**
+ * Receives a report of each card number a {@link ValidatedCardFactory} classifies, and of each batch.
+ * <p>
+ * Install with {@link ValidatedCardFactory#withMetrics(ValidationMetrics)}. Methods are called on the thread doing the
+ * work, which for batches may be one of several threads at once, so implementations must be thread-safe. They are
+ * called on the hot path, so should be quick and shouldn't block. Anything they throw is passed on to the caller.
+ *
+ * @see CountingValidationMetrics
+ */
+public interface ValidationMetrics {
+
+    /**
+     * Called when a card number has been classified by one of the {@code create} or {@code classify} methods.
+     *
+     * @param classification the classification of the card number, which can be decoded with the methods of
+     *                       {@link Classification}. The Luhn check result is included even if the length is invalid.
+     * @param elapsedNanos   time taken, in nanoseconds
+     */
+    void onClassify(int classification, long elapsedNanos);
+
+    /**
+     * Called when one of the {@code create} or {@code classify} methods couldn't parse a card number, and is about to
+     * throw a {@link NumberFormatException}.
+     *
+     * @param elapsedNanos time taken, in nanoseconds
+     */
+    void onParseFailure(long elapsedNanos);
+
+    /**
+     * Called when a batch has been completed by {@link ValidatedCardFactory#createAll(java.util.List)} or one of
+     * its overloads. Each card number in the batch has already been reported.
+     *
+     * @param size         number of card numbers in the batch
+     * @param elapsedNanos time taken for the whole batch, in nanoseconds
+     */
+    void onBatch(int size, long elapsedNanos);
+}
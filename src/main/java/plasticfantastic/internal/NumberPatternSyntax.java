@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic.internal;
+
+/**
+ * The syntax of number pattern strings, e.g. "123" or "400-499", shared by {@code CardType.Builder} and the code
+ * generator for the default card types.
+ * <p>
+ * This must not depend on any other classes in the library, since the code generator is compiled with just this
+ * class, before the main classes.
+ */
+public final class NumberPatternSyntax {
+
+    /**
+     * The maximum number of digits in the low and high numbers of a range. {@link RangePattern#MAX_LENGTH} is
+     * defined as this.
+     */
+    public static final int MAX_RANGE_LENGTH = 18;
+
+    private static final String REGEX_NUMBERS_ONLY = "^[0-9]+$";
+    private static final String REGEX_RANGE = "^[0-9]+\\s*[-]\\s*[0-9]+$";
+
+    private NumberPatternSyntax() {
+    }
+
+    /**
+     * @param pattern number pattern
+     * @return true if the pattern is a single number, e.g. "123"
+     */
+    public static boolean isSingleNumber(String pattern) {
+        return pattern.matches(REGEX_NUMBERS_ONLY);
+    }
+
+    /**
+     * @param pattern number pattern
+     * @return true if the pattern is a range, e.g. "400-499" (the numbers aren't checked)
+     */
+    public static boolean isRange(String pattern) {
+        return pattern.matches(REGEX_RANGE);
+    }
+
+    /**
+     * @param range pattern for which {@link #isRange(String)} is true
+     * @return the lowest number in the range
+     */
+    public static String getRangeMin(String range) {
+        return range.substring(0, range.indexOf('-')).trim();
+    }
+
+    /**
+     * @param range pattern for which {@link #isRange(String)} is true
+     * @return the highest number in the range
+     */
+    public static String getRangeMax(String range) {
+        return range.substring(range.indexOf('-') + 1).trim();
+    }
+
+    /**
+     * Checks the low and high numbers of a range.
+     *
+     * @param min lowest number (inclusive)
+     * @param max highest number (inclusive)
+     * @throws IllegalArgumentException if min or max is not a valid number, they have different numbers of digits or
+     *                                  more than {@link #MAX_RANGE_LENGTH}, or min is greater than max
+     */
+    public static void checkRange(String min, String max) {
+        if (!min.matches(REGEX_NUMBERS_ONLY)) {
+            throw new IllegalArgumentException("min not valid: " + min);
+        }
+        if (!max.matches(REGEX_NUMBERS_ONLY)) {
+            throw new IllegalArgumentException("max not valid: " + max);
+        }
+        if (min.length() != max.length()) {
+            throw new IllegalArgumentException("Min & max must have the same number of digits");
+        }
+        if (min.length() > MAX_RANGE_LENGTH) {
+            throw new IllegalArgumentException("Min & max cannot have more than " + MAX_RANGE_LENGTH + " digits");
+        }
+        // The same number of digits, so comparing the strings compares the values.
+        if (min.compareTo(max) > 0) {
+            throw new IllegalArgumentException("Min (" + min + ") cannot be greater than max (" + max + ")");
+        }
+    }
+}
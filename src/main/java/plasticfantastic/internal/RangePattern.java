@@ -17,57 +17,66 @@ package plasticfantastic.internal;
 
 import plasticfantastic.CardNumber;
 
-import java.math.BigInteger;
-
 /**
  * Matches {@link CardNumber}s against a range of prefixes.
  * <p>
- * A limitation is that the low and high numbers must have the same number of digits.
+ * A limitation is that the low and high numbers must have the same number of digits, and no more than
+ * {@link #MAX_LENGTH}.
  */
 public class RangePattern implements NumberPattern {
 
-    private static final String REGEX_NUMBERS_ONLY = "^[0-9]+$";
+    /**
+     * The maximum number of digits in the low and high numbers. This allows the range to be checked with primitive
+     * long arithmetic.
+     */
+    public static final int MAX_LENGTH = NumberPatternSyntax.MAX_RANGE_LENGTH;
 
     private final int checkLen;
-    private final BigInteger minVal;
-    private final BigInteger maxVal;
+    private final long minVal;
+    private final long maxVal;
 
     /**
      * @param min lowest number (inclusive)
      * @param max highest number (inclusive)
      * @throws NullPointerException     if min or max is null
-     * @throws IllegalArgumentException if min or max is not a valid number
+     * @throws IllegalArgumentException if min or max is not a valid number, or is longer than {@link #MAX_LENGTH}
      */
     public RangePattern(String min, String max) {
         if (min == null || max == null) {
             throw new NullPointerException("min and max cannot be null");
         }
-        if (!min.matches(REGEX_NUMBERS_ONLY)) {
-            throw new IllegalArgumentException("min not valid: " + min);
-        }
-        if (!max.matches(REGEX_NUMBERS_ONLY)) {
-            throw new IllegalArgumentException("max not valid: " + max);
-        }
-        if (min.length() != max.length()) {
-            throw new IllegalArgumentException("Min & max must have the same number of digits");
-        }
+        NumberPatternSyntax.checkRange(min, max);
         checkLen = min.length();
+        minVal = Long.parseLong(min);
+        maxVal = Long.parseLong(max);
+    }
 
-        try {
-            minVal = new BigInteger(min);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Unexpected error when parsing min: " + min);
+    /**
+     * Create a range from numbers which have already been parsed.
+     *
+     * @param length number of digits in the low and high numbers
+     * @param min    lowest number (inclusive)
+     * @param max    highest number (inclusive)
+     * @throws IllegalArgumentException if length is &lt;= 0 or longer than {@link #MAX_LENGTH}, or min and max aren't
+     *                                  a valid range of numbers with that many digits
+     */
+    public RangePattern(int length, long min, long max) {
+        if (length <= 0 || length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Invalid length: " + length);
         }
-
-        try {
-            maxVal = new BigInteger(max);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Unexpected error when parsing max: " + max);
+        long limit = 1;
+        for (int i = 0; i < length; i++) {
+            limit *= 10;
         }
-
-        if (minVal.compareTo(maxVal) > 0) {
+        if (min < 0 || max >= limit) {
+            throw new IllegalArgumentException("Min & max must have no more than " + length + " digits");
+        }
+        if (min > max) {
             throw new IllegalArgumentException("Min (" + min + ") cannot be greater than max (" + max + ")");
         }
+        checkLen = length;
+        minVal = min;
+        maxVal = max;
     }
 
     @Override
@@ -75,9 +84,11 @@ public class RangePattern implements NumberPattern {
         String checkStr = cardNumber.getNumberString();
         boolean result = false;
         if (checkStr.length() >= checkLen) {
-            checkStr = checkStr.substring(0, checkLen);
-            BigInteger checkVal = new BigInteger(checkStr);
-            result = minVal.compareTo(checkVal) <= 0 && checkVal.compareTo(maxVal) <= 0;
+            long checkVal = 0;
+            for (int i = 0; i < checkLen; i++) {
+                checkVal = checkVal * 10 + (checkStr.charAt(i) - '0');
+            }
+            result = minVal <= checkVal && checkVal <= maxVal;
         }
         return result;
     }
@@ -87,6 +98,20 @@ public class RangePattern implements NumberPattern {
         return checkLen;
     }
 
+    /**
+     * @return lowest number (inclusive)
+     */
+    public long getMin() {
+        return minVal;
+    }
+
+    /**
+     * @return highest number (inclusive)
+     */
+    public long getMax() {
+        return maxVal;
+    }
+
     @Override
     public String toString() {
         return minVal + "-" + maxVal;
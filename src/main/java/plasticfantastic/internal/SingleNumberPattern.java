@@ -22,8 +22,6 @@ import plasticfantastic.CardNumber;
  */
 public class SingleNumberPattern implements NumberPattern {
 
-    private static final String REGEX_NUMBERS_ONLY = "^[0-9]+$";
-
     private final String numberPattern;
 
     /**
@@ -35,13 +33,29 @@ public class SingleNumberPattern implements NumberPattern {
         if (numberPattern == null) {
             throw new NullPointerException("Pattern cannot be null");
         }
-        if (!numberPattern.matches(REGEX_NUMBERS_ONLY)) {
+        if (!isDigits(numberPattern)) {
             throw new IllegalArgumentException("Invalid single number pattern: \"" + numberPattern + "\". " +
                     "Must be non-empty and consist of digits 0-9.");
         }
         this.numberPattern = numberPattern;
     }
 
+    /**
+     * Same as matching against {@code ^[0-9]+$}, without the cost of a regular expression.
+     */
+    private static boolean isDigits(String str) {
+        if (str.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public boolean isMatch(CardNumber cardNumber) {
         String toCheck = cardNumber.getNumberString();
@@ -59,6 +73,13 @@ public class SingleNumberPattern implements NumberPattern {
         return numberPattern.length();
     }
 
+    /**
+     * @return the digits of the prefix
+     */
+    public String getNumberPattern() {
+        return numberPattern;
+    }
+
     @Override
     public String toString() {
         return numberPattern;
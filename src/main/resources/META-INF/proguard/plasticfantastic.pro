@@ -0,0 +1,9 @@
+# Consumer rules for ProGuard and R8.
+
+# The Java Flight Recorder events are in a separate jar (classifier "jfr"), which references jdk.jfr.
+-dontwarn jdk.jfr.**
+
+# Loaded by name in FlightRecorderEvents, if the "jfr" jar is on the classpath.
+-keep class plasticfantastic.JfrFlightRecorderEvents {
+    <init>();
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link CardNumberStreamValidator}.
+ */
+public class CardNumberStreamValidator_Parsing {
+
+    private static final CardType TYPE_1 = new CardType.Builder("Type 1").withNumberPatterns("1").withValidLengths(10).build();
+    private static final CardType TYPE_2 = new CardType.Builder("Type 2").withNumberPatterns("2").withValidLengths(10).build();
+
+    private static final ValidatedCardFactory FACTORY = new ValidatedCardFactory(TYPE_1, TYPE_2);
+
+    /**
+     * Records each result as "lineNumber:cardNumber:typeName" or "lineNumber:error".
+     */
+    private static class RecordingListener implements CardNumberStreamValidator.Listener {
+        private final List<String> results = new ArrayList<String>();
+
+        @Override
+        public void onCard(long lineNumber, String cardNumberString, ValidatedCard card) {
+            results.add(lineNumber + ":" + cardNumberString + ":" + (card != null ? card.getType().getName() : "none"));
+        }
+
+        @Override
+        public void onError(long lineNumber, NumberFormatException error) {
+            results.add(lineNumber + ":error");
+        }
+
+        @Override
+        public String toString() {
+            return results.toString();
+        }
+    }
+
+    private static String validate(CardNumberStreamValidator validator, String input) throws IOException {
+        RecordingListener listener = new RecordingListener();
+        validator.validate(new StringReader(input), listener);
+        return listener.toString();
+    }
+
+    @Test
+    public void lines_are_validated_in_order() throws IOException {
+        CardNumberStreamValidator validator = new CardNumberStreamValidator.Builder(FACTORY).build();
+        assertThat(validate(validator, "123\n234\n345"),
+                is(equalTo("[1:123:Type 1, 2:234:Type 2, 3:345:none]")));
+    }
+
+    @Test
+    public void all_line_endings_are_recognised() throws IOException {
+        CardNumberStreamValidator validator = new CardNumberStreamValidator.Builder(FACTORY).build();
+        assertThat(validate(validator, "11\r\n12\r13\n"),
+                is(equalTo("[1:11:Type 1, 2:12:Type 1, 3:13:Type 1]")));
+    }
+
+    @Test
+    public void empty_lines_are_skipped_but_counted() throws IOException {
+        CardNumberStreamValidator validator = new CardNumberStreamValidator.Builder(FACTORY).build();
+        assertThat(validate(validator, "\n11\n\n\n12\n\n"),
+                is(equalTo("[2:11:Type 1, 5:12:Type 1]")));
+    }
+
+    @Test
+    public void invalid_lines_are_reported_with_line_numbers() throws IOException {
+        CardNumberStreamValidator validator = new CardNumberStreamValidator.Builder(FACTORY).build();
+        assertThat(validate(validator, "11\nabc\n 1 2 \n  \n"),
+                is(equalTo("[1:11:Type 1, 2:error, 3: 1 2 :Type 1, 4:error]")));
+    }
+
+    @Test
+    public void header_lines_are_skipped() throws IOException {
+        CardNumberStreamValidator validator = new CardNumberStreamValidator.Builder(FACTORY)
+                .withHeaderLines(1)
+                .build();
+        assertThat(validate(validator, "pan\n11"), is(equalTo("[2:11:Type 1]")));
+    }
+
+    @Test
+    public void csv_column_is_read() throws IOException {
+        CardNumberStreamValidator validator = new CardNumberStreamValidator.Builder(FACTORY)
+                .withCsvColumn(1, ',')
+                .withHeaderLines(1)
+                .build();
+        assertThat(validate(validator, "id,pan,name\n1,11,\"a, b\"\n2,\"2 2\",c\n3,,d\n4\n"),
+                is(equalTo("[2:11:Type 1, 3:2 2:Type 2, 4:error, 5:error]")));
+    }
+
+    @Test
+    public void csv_quoted_fields_may_contain_delimiters_and_quotes() throws IOException {
+        CardNumberStreamValidator validator = new CardNumberStreamValidator.Builder(FACTORY)
+                .withCsvColumn(2, ';')
+                .build();
+        assertThat(validate(validator, "\"a;\"\"b\";c;11\n\"x\";\"\"\"\";\"22\""),
+                is(equalTo("[1:11:Type 1, 2:22:Type 2]")));
+    }
+
+    @Test
+    public void overlong_fields_are_reported() throws IOException {
+        CardNumberStreamValidator validator = new CardNumberStreamValidator.Builder(FACTORY)
+                .withMaxFieldLength(4)
+                .build();
+        assertThat(validate(validator, "1234\n12345\n11"),
+                is(equalTo("[1:1234:Type 1, 2:error, 3:11:Type 1]")));
+    }
+
+    @Test
+    public void input_larger_than_buffer_is_read() throws IOException {
+        final int lines = 100000;
+        Reader reader = new Reader() {
+            private final String line = "1234567890\n";
+            private long position;
+
+            @Override
+            public int read(char[] cbuf, int off, int len) {
+                if (position >= (long) lines * line.length()) {
+                    return -1;
+                }
+                int count = 0;
+                while (count < len && position < (long) lines * line.length()) {
+                    cbuf[off + count++] = line.charAt((int) (position++ % line.length()));
+                }
+                return count;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        final long[] cards = new long[1];
+        long read = new CardNumberStreamValidator.Builder(FACTORY).build().validate(reader,
+                new CardNumberStreamValidator.Listener() {
+                    @Override
+                    public void onCard(long lineNumber, String cardNumberString, ValidatedCard card) {
+                        cards[0]++;
+                    }
+
+                    @Override
+                    public void onError(long lineNumber, NumberFormatException error) {
+                    }
+                });
+        assertThat(read, is(equalTo((long) lines)));
+        assertThat(cards[0], is(equalTo((long) lines)));
+    }
+
+    @Test
+    public void input_stream_is_decoded() throws IOException {
+        RecordingListener listener = new RecordingListener();
+        new CardNumberStreamValidator.Builder(FACTORY).build().validate(
+                new ByteArrayInputStream("11\n22".getBytes("US-ASCII")), Charset.forName("US-ASCII"), listener);
+        assertThat(listener.toString(), is(equalTo("[1:11:Type 1, 2:22:Type 2]")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void quote_delimiter_throws_IllegalArgumentException() {
+        new CardNumberStreamValidator.Builder(FACTORY).withCsvColumn(0, '"');
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void null_factory_throws_NullPointerException() {
+        new CardNumberStreamValidator.Builder(null);
+    }
+}
@@ -19,6 +19,7 @@ import org.junit.Test;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -38,6 +39,43 @@ public class CardNumber_Misc {
         assertThat(cardNumber.getNumberString(), is(equalTo("123456789")));
     }
 
+    @Test
+    public void valid_string_without_whitespace_is_not_copied() {
+        String numberString = "123456789";
+        assertThat(new CardNumber(numberString).getNumberString(), is(sameInstance(numberString)));
+    }
+
+    @Test
+    public void valid_string_with_separators_strips_separators_and_whitespace() {
+        CardNumber cardNumber = new CardNumber("1234-5678. 9", '-', '.');
+        assertThat(cardNumber.getNumberString(), is(equalTo("123456789")));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void separators_are_not_stripped_unless_specified() {
+        new CardNumber("1234-5678-9");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void only_separators_throws_NumberFormatException() {
+        new CardNumber("- -", '-');
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void null_separators_throws_NullPointerException() {
+        new CardNumber("123", (char[]) null);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void whitespace_only_throws_NumberFormatException() {
+        new CardNumber(" \t ");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void non_ascii_digits_throws_NumberFormatException() {
+        new CardNumber("12\u0663");
+    }
+
     @Test
     public void length_without_whitespace() {
         CardNumber cardNumber = new CardNumber("123456789");
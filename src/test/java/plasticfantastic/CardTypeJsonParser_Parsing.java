@@ -0,0 +1,161 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link CardTypeJsonParser}.
+ */
+public class CardTypeJsonParser_Parsing {
+
+    private static List<CardType> parse(String json) {
+        return CardTypeJsonParser.parse(new StringReader(json));
+    }
+
+    private static JsonParseException parseFailure(String json) {
+        try {
+            parse(json);
+        } catch (JsonParseException e) {
+            return e;
+        }
+        fail("Expected JsonParseException for: " + json);
+        return null;
+    }
+
+    @Test
+    public void card_types_are_parsed_in_order() {
+        List<CardType> cardTypes = parse(
+                "[{\"name\":\"A\",\"numberPatterns\":[\"1\",\"20 - 29\"],\"validLengths\":[16]},"
+                + "\n {\"validLengths\": [12, 19], \"numberPatterns\": [\"5018\"], \"name\": \"B\"}]");
+        assertThat(cardTypes.toString(), is(equalTo(
+                "[{name:\"A\", patterns:[1, 20-29], lengths:[16]}, {name:\"B\", patterns:[5018], lengths:[12, 19]}]")));
+    }
+
+    @Test
+    public void unknown_fields_are_skipped() {
+        List<CardType> cardTypes = parse("[{\"id\":7,\"name\":\"A\","
+                + "\"extra\":{\"a\":[1,-2.5e3,true,null,{}],\"b\":\"]}\"},"
+                + "\"numberPatterns\":[\"1\"],\"validLengths\":[16],\"more\":[]}]");
+        assertThat(cardTypes.get(0).getName(), is(equalTo("A")));
+    }
+
+    @Test
+    public void string_escapes_are_decoded() {
+        List<CardType> cardTypes = parse(
+                "[{\"name\":\"\\\"A\\\\B\\/C\\u00e9\\n\",\"numberPatterns\":[\"1\"],\"validLengths\":[16]}]");
+        assertThat(cardTypes.get(0).getName(), is(equalTo("\"A\\B/C\u00e9\n")));
+    }
+
+    @Test
+    public void numbers_and_strings_are_converted_like_gson() {
+        List<CardType> cardTypes = parse(
+                "[{\"name\":\"A\",\"numberPatterns\":[34, \"35\"],\"validLengths\":[\"15\", 1.6e1]}]");
+        assertThat(cardTypes.toString(), is(equalTo("[{name:\"A\", patterns:[34, 35], lengths:[15, 16]}]")));
+    }
+
+    @Test
+    public void input_larger_than_buffer_is_parsed() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            if (i > 0) {
+                sb.append(",\n");
+            }
+            sb.append("{\"name\":\"Type ").append(i).append("\",\"numberPatterns\":[\"").append(i)
+                    .append("\"],\"validLengths\":[16]}");
+        }
+        sb.append("]");
+        List<CardType> cardTypes = parse(sb.toString());
+        assertThat(cardTypes.size(), is(equalTo(1000)));
+        assertThat(cardTypes.get(999).getName(), is(equalTo("Type 999")));
+    }
+
+    @Test
+    public void syntax_errors_throw_JsonSyntaxException() {
+        String[] invalid = {
+                "[{\"name\":\"A\",\"numberPatterns\":[\"1\"],\"validLengths\":[16],}]",
+                "[{\"name\":\"A\",\"numberPatterns\":[\"1\"],\"validLengths\":[16]},]",
+                "[{\"name\" \"A\",\"numberPatterns\":[\"1\"],\"validLengths\":[16]}]",
+                "[{name:\"A\",\"numberPatterns\":[\"1\"],\"validLengths\":[16]}]",
+                "[{\"name\":'A',\"numberPatterns\":[\"1\"],\"validLengths\":[16]}]",
+                "[{\"name\":\"A\\q\",\"numberPatterns\":[\"1\"],\"validLengths\":[16]}]",
+                "[{\"name\":\"A\",\"numberPatterns\":[\"1\"],\"validLengths\":[016]}]",
+                "[{\"name\":\"A\",\"numberPatterns\":[\"1\"],\"validLengths\":[16.5]}]",
+                "[{\"name\":\"A\",\"numberPatterns\":[\"1\"],\"validLengths\":[nul]}]",
+                "[{\"name\":\"A\",\"numberPatterns\":[\"1\"],\"validLengths\":[16]}] []",
+                "[{\"name\":\"A",
+                "[",
+                "{}",
+        };
+        for (String json : invalid) {
+            assertThat(json, parseFailure(json), is(instanceOf(JsonSyntaxException.class)));
+        }
+    }
+
+    @Test
+    public void syntax_error_reports_position() {
+        assertThat(parseFailure("[\n  {\"name\" \"A\"}]").getMessage(), containsString("line 2 column 11"));
+    }
+
+    @Test
+    public void invalid_data_throws_JsonParseException() {
+        String[] invalid = {
+                "[{\"numberPatterns\":[\"1\"],\"validLengths\":[16]}]",
+                "[{\"name\":null,\"numberPatterns\":[\"1\"],\"validLengths\":[16]}]",
+                "[{\"name\":\"A\",\"numberPatterns\":[],\"validLengths\":[16]}]",
+                "[{\"name\":\"A\",\"numberPatterns\":[\"-1\"],\"validLengths\":[16]}]",
+                "[{\"name\":\"A\",\"numberPatterns\":[\"1\"],\"validLengths\":null}]",
+                "[{\"name\":\"A\",\"numberPatterns\":[\"1\"],\"validLengths\":[0]}]",
+                "[null]",
+                "[]",
+                "",
+                "   ",
+        };
+        for (String json : invalid) {
+            assertThat(json, parseFailure(json), is(not(instanceOf(JsonSyntaxException.class))));
+        }
+    }
+
+    @Test(expected = JsonIOException.class)
+    public void read_failure_throws_JsonIOException() {
+        CardTypeJsonParser.parse(new Reader() {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                throw new IOException("Failed");
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import org.junit.Test;
+import plasticfantastic.internal.NumberPattern;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for the compiled matching used by {@link CardType#getMatchStrength(CardNumber)}.
+ */
+public class CardType_CompiledMatching {
+
+    /**
+     * Match strength worked out by checking every pattern.
+     */
+    private static int bruteForceMatchStrength(CardType cardType, CardNumber cardNumber) {
+        int result = 0;
+        for (NumberPattern pattern : cardType.getNumberPatterns()) {
+            if (pattern.isMatch(cardNumber)) {
+                result = Math.max(result, pattern.getLength());
+            }
+        }
+        if (result > 0) {
+            result <<= 1;
+            if (cardType.lengthMatches(cardNumber)) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    private static String randomDigits(Random random, int length) {
+        char[] digits = new char[length];
+        for (int i = 0; i < length; i++) {
+            // Skewed towards low digits, so random patterns overlap.
+            digits[i] = (char) ('0' + random.nextInt(random.nextBoolean() ? 3 : 10));
+        }
+        return new String(digits);
+    }
+
+    @Test
+    public void results_match_brute_force() {
+        Random random = new Random(10);
+        for (int typeCount = 0; typeCount < 200; typeCount++) {
+            List<String> patterns = new ArrayList<String>();
+            for (int i = 0; i < 1 + random.nextInt(12); i++) {
+                int length = 1 + random.nextInt(6);
+                String min = randomDigits(random, length);
+                if (random.nextBoolean()) {
+                    patterns.add(min);
+                } else {
+                    String max = randomDigits(random, length);
+                    patterns.add(min.compareTo(max) <= 0 ? min + "-" + max : max + "-" + min);
+                }
+            }
+            CardType cardType = new CardType.Builder("Type")
+                    .withNumberPatterns(patterns.toArray(new String[patterns.size()]))
+                    .withValidLengths(6, 7, 8)
+                    .build();
+
+            for (int i = 0; i < 200; i++) {
+                CardNumber cardNumber = new CardNumber(randomDigits(random, 1 + random.nextInt(9)));
+                assertThat(patterns + " " + cardNumber, cardType.getMatchStrength(cardNumber),
+                        is(equalTo(bruteForceMatchStrength(cardType, cardNumber))));
+            }
+        }
+    }
+
+    @Test
+    public void duplicate_nested_and_adjacent_patterns_are_merged() {
+        CardType cardType = new CardType.Builder("Type")
+                .withNumberPatterns("51-53", "52", "53-55", "56", "56", "4", "41", "40-49")
+                .withValidLengths(16)
+                .build();
+        // "51"-"56", "40"-"49" & "41", and "4".
+        assertThat(cardType.getMatcher().getPatternCount(), is(equalTo(3)));
+        assertThat(cardType.getMatchStrength(new CardNumber("4100")), is(equalTo(4)));
+        assertThat(cardType.getMatchStrength(new CardNumber("4")), is(equalTo(2)));
+        assertThat(cardType.getMatchStrength(new CardNumber("5612345678901234")), is(equalTo(5)));
+        assertThat(cardType.getMatchStrength(new CardNumber("57")), is(equalTo(0)));
+    }
+
+    @Test
+    public void range_with_leading_zeros_matches() {
+        CardType cardType = new CardType.Builder("Type").withNumberPatterns("0500-0999").withValidLengths(6).build();
+        assertThat(cardType.getMatchStrength(new CardNumber("050012")), is(equalTo(9)));
+        assertThat(cardType.getMatchStrength(new CardNumber("049912")), is(equalTo(0)));
+        assertThat(cardType.getMatchStrength(new CardNumber("500012")), is(equalTo(0)));
+    }
+
+    @Test
+    public void patterns_longer_than_a_long_value_match() {
+        CardType cardType = new CardType.Builder("Type")
+                .withNumberPatterns("1234567890123456789012", "12345678901234567890", "1")
+                .withValidLengths(22)
+                .build();
+        assertThat(cardType.getMatchStrength(new CardNumber("1234567890123456789012")), is(equalTo(45)));
+        assertThat(cardType.getMatchStrength(new CardNumber("123456789012345678901")), is(equalTo(40)));
+        assertThat(cardType.getMatchStrength(new CardNumber("1234567890123456789")), is(equalTo(2)));
+    }
+
+    @Test
+    public void lengths_too_large_for_the_bitmask_are_matched() {
+        CardType cardType = new CardType.Builder("Type").withNumberPatterns("1").withValidLengths(16, 64, 100).build();
+        assertThat(cardType.lengthMatches(16), is(equalTo(true)));
+        assertThat(cardType.lengthMatches(63), is(equalTo(false)));
+        assertThat(cardType.lengthMatches(64), is(equalTo(true)));
+        assertThat(cardType.lengthMatches(100), is(equalTo(true)));
+        assertThat(cardType.lengthMatches(101), is(equalTo(false)));
+    }
+}
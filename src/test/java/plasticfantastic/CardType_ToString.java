@@ -50,6 +50,10 @@ public class CardType_ToString {
                         new CardType.Builder("Type Name").withNumberPatterns("12-34", "56-78").withValidLengths(10).build(),
                         "{name:\"Type Name\", patterns:[12-34, 56-78], lengths:[10]}"
                 },
+                {
+                        new CardType.Builder("Type Name").withNumberPatterns("0500-0999").withValidLengths(10).build(),
+                        "{name:\"Type Name\", patterns:[500-999], lengths:[10]}"
+                },
                 {
                         new CardType.Builder("Type Name").withNumberPatterns("123", "12-34").withValidLengths(10).build(),
                         "{name:\"Type Name\", patterns:[123, 12-34], lengths:[10]}"
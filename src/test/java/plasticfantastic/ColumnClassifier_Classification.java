@@ -0,0 +1,146 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link ColumnClassifier}.
+ */
+public class ColumnClassifier_Classification {
+
+    private static List<String> randomNumbers(Random random, int count) {
+        List<String> result = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(20);
+            for (int j = 0; j < length; j++) {
+                sb.append((char) ('0' + random.nextInt(10)));
+            }
+            result.add(sb.toString());
+        }
+        result.add("4741 9080 1435 2850");
+        result.add("\t");
+        result.add("12a4");
+        result.add("-1");
+        return result;
+    }
+
+    private static byte[] concatenate(List<String> numbers, String prefix, int[] offsets) throws IOException {
+        StringBuilder sb = new StringBuilder(prefix);
+        for (int i = 0; i < numbers.size(); i++) {
+            offsets[i] = sb.length() - prefix.length();
+            sb.append(numbers.get(i));
+        }
+        offsets[numbers.size()] = sb.length() - prefix.length();
+        return sb.toString().getBytes("US-ASCII");
+    }
+
+    private static void assertMatchesClassify(ValidatedCardFactory factory, List<String> numbers,
+                                              ColumnClassifier.Result result) {
+        assertThat(result.size(), is(equalTo(numbers.size())));
+        for (int i = 0; i < numbers.size(); i++) {
+            String message = "Index " + i + ": '" + numbers.get(i) + "'";
+            int classification;
+            boolean malformed = false;
+            boolean luhnValid;
+            try {
+                classification = factory.classify(numbers.get(i));
+                luhnValid = new CardNumber(numbers.get(i)).passesLuhnCheck();
+            } catch (NumberFormatException e) {
+                classification = Classification.NO_MATCH;
+                malformed = true;
+                luhnValid = false;
+            }
+            assertThat(message, result.getTypeOrdinals()[i],
+                    is(equalTo(Classification.getTypeOrdinal(classification))));
+            assertThat(message, isSet(result.getMalformed(), i), is(equalTo(malformed)));
+            assertThat(message, isSet(result.getLuhnValid(), i), is(equalTo(luhnValid)));
+            assertThat(message, isSet(result.getLengthValid(), i),
+                    is(equalTo(Classification.isLengthValid(classification))));
+            assertThat(message, result.isNumberValid(i), is(equalTo(Classification.isNumberValid(classification))));
+        }
+    }
+
+    private static boolean isSet(long[] bitmap, int index) {
+        return (bitmap[index >>> 6] & (1L << index)) != 0;
+    }
+
+    @Test
+    public void byte_array_results_match_classify() throws IOException {
+        ValidatedCardFactory factory = ValidatedCardFactory.withDefaultCardTypes();
+        List<String> numbers = randomNumbers(new Random(16), 5000);
+        int[] offsets = new int[numbers.size() + 1];
+        byte[] data = concatenate(numbers, "", offsets);
+        assertMatchesClassify(factory, numbers, new ColumnClassifier(factory).classify(data, offsets));
+    }
+
+    @Test
+    public void heap_buffer_results_match_classify() throws IOException {
+        ValidatedCardFactory factory = ValidatedCardFactory.withDefaultCardTypes();
+        List<String> numbers = randomNumbers(new Random(17), 1000);
+        int[] offsets = new int[numbers.size() + 1];
+        ByteBuffer buffer = ByteBuffer.wrap(concatenate(numbers, "xyz", offsets));
+        buffer.position(3);
+        assertMatchesClassify(factory, numbers, new ColumnClassifier(factory).classify(buffer.slice(), offsets));
+        assertMatchesClassify(factory, numbers, new ColumnClassifier(factory).classify(buffer, offsets));
+        assertThat(buffer.position(), is(equalTo(3)));
+    }
+
+    @Test
+    public void direct_buffer_results_match_classify() throws IOException {
+        ValidatedCardFactory factory = ValidatedCardFactory.withDefaultCardTypes();
+        List<String> numbers = randomNumbers(new Random(18), 1000);
+        int[] offsets = new int[numbers.size() + 1];
+        byte[] data = concatenate(numbers, "xyz", offsets);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data);
+        buffer.position(3);
+        assertMatchesClassify(factory, numbers, new ColumnClassifier(factory).classify(buffer, offsets));
+        assertThat(buffer.position(), is(equalTo(3)));
+    }
+
+    @Test
+    public void single_offset_is_an_empty_column() throws IOException {
+        ColumnClassifier classifier = new ColumnClassifier(ValidatedCardFactory.withDefaultCardTypes());
+        assertThat(classifier.classify(new byte[4], new int[]{2}).size(), is(equalTo(0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decreasing_offsets_throws_IllegalArgumentException() throws IOException {
+        new ColumnClassifier(ValidatedCardFactory.withDefaultCardTypes()).classify(new byte[4], new int[]{0, 2, 1});
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void offset_past_end_throws_IndexOutOfBoundsException() throws IOException {
+        new ColumnClassifier(ValidatedCardFactory.withDefaultCardTypes()).classify(new byte[4], new int[]{0, 5});
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void null_factory_throws_NullPointerException() {
+        new ColumnClassifier(null);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link CompactCardNumber}.
+ */
+public class CompactCardNumber_Misc {
+
+    @Test
+    public void number_string_is_unpacked() {
+        assertThat(new CompactCardNumber("4741908014352850").getNumberString(), is(equalTo("4741908014352850")));
+    }
+
+    @Test
+    public void leading_zeros_are_kept() {
+        CompactCardNumber cardNumber = new CompactCardNumber("0000123");
+        assertThat(cardNumber.getNumberString(), is(equalTo("0000123")));
+        assertThat(cardNumber.getLength(), is(equalTo(7)));
+        assertThat(cardNumber, is(not(equalTo(new CompactCardNumber("123")))));
+    }
+
+    @Test
+    public void maximum_length_number_is_unpacked() {
+        CompactCardNumber cardNumber = new CompactCardNumber("9876543210987654321");
+        assertThat(cardNumber.getNumberString(), is(equalTo("9876543210987654321")));
+        assertThat(cardNumber.getLength(), is(equalTo(CompactCardNumber.MAX_LENGTH)));
+    }
+
+    @Test
+    public void whitespace_and_separators_are_ignored() {
+        assertThat(new CompactCardNumber(" 1234-5678.\t9 ", '-', '.').getNumberString(), is(equalTo("123456789")));
+    }
+
+    @Test
+    public void equal_numbers_are_equal_and_have_equal_hash_codes() {
+        CompactCardNumber a = new CompactCardNumber("4741 9080 1435 2850");
+        CompactCardNumber b = new CompactCardNumber(new CardNumber("4741908014352850"));
+        assertThat(a, is(equalTo(b)));
+        assertThat(a.hashCode(), is(equalTo(b.hashCode())));
+        assertThat(a, is(not(equalTo(new CompactCardNumber("4741908014352851")))));
+    }
+
+    @Test
+    public void behaves_like_CardNumber() {
+        Random random = new Random(9);
+        for (int i = 0; i < 20000; i++) {
+            char[] digits = new char[1 + random.nextInt(CompactCardNumber.MAX_LENGTH)];
+            for (int j = 0; j < digits.length; j++) {
+                digits[j] = (char) ('0' + random.nextInt(10));
+            }
+            CardNumber expected = new CardNumber(new String(digits));
+            CompactCardNumber cardNumber = new CompactCardNumber(expected);
+            assertThat(cardNumber.getNumberString(), is(equalTo(expected.getNumberString())));
+            assertThat(cardNumber.getLength(), is(equalTo(expected.getLength())));
+            assertThat(expected.getNumberString(), cardNumber.passesLuhnCheck(),
+                    is(equalTo(expected.passesLuhnCheck())));
+            assertThat(cardNumber.toCardNumber(), is(equalTo(expected)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void too_many_digits_throws_IllegalArgumentException() {
+        new CompactCardNumber("12345678901234567890");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void non_number_throws_NumberFormatException() {
+        new CompactCardNumber("12a");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void non_number_with_too_many_digits_throws_NumberFormatException() {
+        new CompactCardNumber("12345678901234567890a");
+    }
+
+    @Test
+    public void too_many_digits_is_not_reported_as_NumberFormatException() {
+        try {
+            new CompactCardNumber("12345678901234567890");
+            fail();
+        } catch (NumberFormatException e) {
+            fail("Expected only IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void whitespace_only_throws_NumberFormatException() {
+        new CompactCardNumber(" \t ");
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void null_string_throws_NullPointerException() {
+        new CompactCardNumber((String) null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void null_CardNumber_throws_NullPointerException() {
+        new CompactCardNumber((CardNumber) null);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link CompiledCardTypes}.
+ */
+public class CompiledCardTypes_ReadWrite {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static void assertSameResults(ValidatedCardFactory expected, ValidatedCardFactory actual) {
+        assertThat(actual.getCardTypesList().toString(), is(equalTo(expected.getCardTypesList().toString())));
+        Random random = new Random(19);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = 1 + random.nextInt(19);
+            for (int j = 0; j < length; j++) {
+                sb.append((char) ('0' + random.nextInt(10)));
+            }
+            String numberString = sb.toString();
+            assertThat("Failed for card number: " + numberString, actual.classify(numberString),
+                    is(equalTo(expected.classify(numberString))));
+        }
+    }
+
+    @Test
+    public void default_card_types_are_read_back_from_file() throws IOException {
+        ValidatedCardFactory factory = ValidatedCardFactory.withDefaultCardTypes();
+        File file = temporaryFolder.newFile();
+        CompiledCardTypes.write(factory, file);
+        assertSameResults(factory, CompiledCardTypes.read(file));
+    }
+
+    @Test
+    public void card_types_are_read_back_from_stream() throws IOException {
+        CardType type1 = new CardType.Builder("Type \u00e9").withNumberPatterns("1", "20-29", "12345678901234567890")
+                .withValidLengths(10, 20).build();
+        CardType type2 = new CardType.Builder("Type 2").withNumberPatterns("123000-123999").withValidLengths(16).build();
+        ValidatedCardFactory factory = new ValidatedCardFactory(Arrays.asList(type1, null, type2));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        CompiledCardTypes.write(factory, outputStream);
+        outputStream.write(42);
+        InputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
+        ValidatedCardFactory read = CompiledCardTypes.read(inputStream);
+
+        assertSameResults(factory, read);
+        List<CardType> cardTypes = read.getCardTypesList();
+        assertThat(cardTypes.size(), is(equalTo(3)));
+        assertThat(cardTypes.get(0).getName(), is(equalTo("Type \u00e9")));
+        assertThat(cardTypes.get(1), is(nullValue()));
+        assertThat(read.create("12345678901234567890").getType().getName(), is(equalTo("Type \u00e9")));
+        // Only the factory's data is read from the stream.
+        assertThat(inputStream.read(), is(equalTo(42)));
+    }
+
+    @Test(expected = IOException.class)
+    public void corrupt_data_throws_IOException() throws IOException {
+        byte[] bytes = CompiledCardTypes.toBytes(ValidatedCardFactory.withDefaultCardTypes());
+        bytes[bytes.length / 2] ^= 1;
+        CompiledCardTypes.fromBytes(bytes);
+    }
+
+    @Test(expected = IOException.class)
+    public void other_version_throws_IOException() throws IOException {
+        byte[] bytes = CompiledCardTypes.toBytes(ValidatedCardFactory.withDefaultCardTypes());
+        bytes[7]++;
+        CompiledCardTypes.fromBytes(bytes);
+    }
+
+    @Test(expected = IOException.class)
+    public void truncated_data_throws_IOException() throws IOException {
+        byte[] bytes = CompiledCardTypes.toBytes(ValidatedCardFactory.withDefaultCardTypes());
+        CompiledCardTypes.read(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1)));
+    }
+
+    @Test(expected = IOException.class)
+    public void json_file_throws_IOException() throws IOException {
+        String path = ValidatedCardFactory.class.getResource("/plasticfantastic_card_types.json").getFile();
+        CompiledCardTypes.read(new File(path));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void null_factory_throws_NullPointerException() throws IOException {
+        CompiledCardTypes.write(null, new ByteArrayOutputStream());
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link CountingValidationMetrics}, and reporting to {@link ValidationMetrics} from
+ * {@link ValidatedCardFactory}.
+ */
+public class CountingValidationMetrics_Recording {
+
+    private static final CardType TYPE_1 = new CardType.Builder("Type 1").withNumberPatterns("1").withValidLengths(10).build();
+    private static final CardType TYPE_2 = new CardType.Builder("Type 2").withNumberPatterns("2").withValidLengths(10).build();
+
+    private static final ValidatedCardFactory FACTORY = new ValidatedCardFactory(TYPE_1, TYPE_2);
+
+    @Test
+    public void factory_has_no_metrics_by_default() {
+        assertThat(FACTORY.getMetrics(), is(nullValue()));
+    }
+
+    @Test
+    public void metrics_are_kept_by_derived_factories() {
+        CountingValidationMetrics metrics = new CountingValidationMetrics();
+        ValidatedCardFactory factory = FACTORY.withMetrics(metrics).withBinLookupTable().withBinCache(16);
+        assertThat(factory.getMetrics(), is(sameInstance((ValidationMetrics) metrics)));
+        assertThat(factory.withMetrics(null).getMetrics(), is(nullValue()));
+    }
+
+    @Test
+    public void outcomes_are_counted() {
+        CountingValidationMetrics metrics = new CountingValidationMetrics();
+        ValidatedCardFactory factory = FACTORY.withMetrics(metrics);
+
+        // Valid.
+        factory.create("1000000008");
+        factory.create("2000000006");
+        factory.create("1000 0000 08");
+        // Luhn failure.
+        factory.create("1000000000");
+        // Length mismatch, which passes the Luhn check.
+        factory.create("18");
+        // Both.
+        factory.create("2000");
+        // No match.
+        factory.create("3000000000");
+        try {
+            factory.create("abc");
+            fail();
+        } catch (NumberFormatException e) {
+            // Expected.
+        }
+
+        assertThat(metrics.getMatchCount(0), is(equalTo(4L)));
+        assertThat(metrics.getMatchCount(1), is(equalTo(2L)));
+        assertThat(metrics.getMatchCount(2), is(equalTo(0L)));
+        assertThat(metrics.getMatchCount(), is(equalTo(6L)));
+        assertThat(metrics.getUnmatchedCount(), is(equalTo(1L)));
+        assertThat(metrics.getLuhnFailureCount(), is(equalTo(2L)));
+        assertThat(metrics.getLengthMismatchCount(), is(equalTo(2L)));
+        assertThat(metrics.getParseFailureCount(), is(equalTo(1L)));
+        assertThat(metrics.getClassifyLatency().getCount(), is(equalTo(8L)));
+        assertThat(metrics.getBatchLatency().getCount(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void every_overload_is_reported_once() throws Exception {
+        CountingValidationMetrics metrics = new CountingValidationMetrics();
+        ValidatedCardFactory factory = FACTORY.withMetrics(metrics);
+        byte[] bytes = "1000000008".getBytes("US-ASCII");
+        byte[] spacedBytes = "1000 0000 08".getBytes("US-ASCII");
+
+        factory.create("1000000008");
+        factory.create(new CardNumber("1000000008"));
+        factory.create((CharSequence) new StringBuilder("1000 0000 08"));
+        factory.create("1000000008".toCharArray(), 0, 10);
+        factory.create(bytes, 0, bytes.length);
+        factory.create(spacedBytes, 0, spacedBytes.length);
+        factory.classify("1000000008");
+        factory.classify("1000 0000 08");
+        factory.classify(new CardNumber("1000000008"));
+        factory.classify(bytes, 0, bytes.length);
+        factory.classify(spacedBytes, 0, spacedBytes.length);
+
+        assertThat(metrics.getMatchCount(0), is(equalTo(11L)));
+        assertThat(metrics.getClassifyLatency().getCount(), is(equalTo(11L)));
+        assertThat(metrics.getLuhnFailureCount(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void parse_failures_are_counted_for_every_overload() throws Exception {
+        CountingValidationMetrics metrics = new CountingValidationMetrics();
+        final ValidatedCardFactory factory = FACTORY.withMetrics(metrics);
+        final byte[] bytes = "12x".getBytes("US-ASCII");
+        List<Runnable> calls = new ArrayList<Runnable>();
+        calls.add(new Runnable() {
+            @Override
+            public void run() {
+                factory.create("12x");
+            }
+        });
+        calls.add(new Runnable() {
+            @Override
+            public void run() {
+                factory.create((CharSequence) "  ");
+            }
+        });
+        calls.add(new Runnable() {
+            @Override
+            public void run() {
+                factory.create(bytes, 0, bytes.length);
+            }
+        });
+        calls.add(new Runnable() {
+            @Override
+            public void run() {
+                factory.classify("12x");
+            }
+        });
+        calls.add(new Runnable() {
+            @Override
+            public void run() {
+                factory.classify(bytes, 0, bytes.length);
+            }
+        });
+        for (Runnable call : calls) {
+            try {
+                call.run();
+                fail();
+            } catch (NumberFormatException e) {
+                // Expected.
+            }
+        }
+        assertThat(metrics.getParseFailureCount(), is(equalTo(5L)));
+        assertThat(metrics.getClassifyLatency().getCount(), is(equalTo(5L)));
+    }
+
+    @Test
+    public void batches_are_counted() throws InterruptedException {
+        CountingValidationMetrics metrics = new CountingValidationMetrics();
+        ValidatedCardFactory factory = FACTORY.withMetrics(metrics);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<String> numbers = new ArrayList<String>();
+            for (int i = 0; i < 5000; i++) {
+                numbers.add(i % 2 == 0 ? "1000000008" : "x");
+            }
+            factory.createAll(numbers, executor);
+            factory.createAll(Arrays.asList("2000000006"), executor);
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(metrics.getMatchCount(0), is(equalTo(2500L)));
+        assertThat(metrics.getMatchCount(1), is(equalTo(1L)));
+        assertThat(metrics.getParseFailureCount(), is(equalTo(2500L)));
+        assertThat(metrics.getBatchLatency().getCount(), is(equalTo(2L)));
+        assertThat(metrics.getBatchedCardCount(), is(equalTo(5001L)));
+    }
+
+    @Test
+    public void concurrent_updates_are_not_lost() throws InterruptedException {
+        final CountingValidationMetrics metrics = new CountingValidationMetrics();
+        final int perThread = 10000;
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int ordinal = t % 3;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    int classification = Classification.encode(2, ordinal, true);
+                    for (int i = 0; i < perThread; i++) {
+                        metrics.onClassify(classification, i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(metrics.getMatchCount(), is(equalTo((long) threads.length * perThread)));
+        assertThat(metrics.getMatchCount(2), is(equalTo(2L * perThread)));
+        assertThat(metrics.getClassifyLatency().getCount(), is(equalTo((long) threads.length * perThread)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negative_ordinal_throws_IllegalArgumentException() {
+        new CountingValidationMetrics().getMatchCount(-1);
+    }
+}
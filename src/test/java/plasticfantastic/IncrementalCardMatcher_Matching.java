@@ -0,0 +1,182 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link IncrementalCardMatcher}.
+ */
+public class IncrementalCardMatcher_Matching {
+
+    private static final CardType TYPE_A = new CardType.Builder("A").withNumberPatterns("4").withValidLengths(16).build();
+    private static final CardType TYPE_B = new CardType.Builder("B").withNumberPatterns("51-55").withValidLengths(16).build();
+    private static final CardType TYPE_C = new CardType.Builder("C").withNumberPatterns("5018").withValidLengths(12, 19).build();
+    private static final CardType TYPE_D = new CardType.Builder("D").withNumberPatterns("622126-622925").withValidLengths(16).build();
+
+    private static final String[] PREFIXES = {"4", "5", "34", "37", "6011", "6221", "622126", "3528", "62", "5018", "30",
+            "1", "9", ""};
+
+    private static void assertMatchesFactory(ValidatedCardFactory factory, IncrementalCardMatcher matcher) {
+        String numberString = matcher.getNumberString();
+        String message = "Failed for card number: " + numberString;
+        assertThat(message, matcher.getLength(), is(equalTo(numberString.length())));
+        assertThat(message, matcher.passesLuhnCheck(),
+                is(equalTo(numberString.isEmpty() || Luhn.passesCheck(numberString))));
+        if (numberString.isEmpty()) {
+            assertThat(message, matcher.getClassification(), is(equalTo(Classification.NO_MATCH)));
+            assertThat(message, matcher.getCardType(), is(nullValue()));
+            return;
+        }
+        assertThat(message, matcher.getClassification(), is(equalTo(factory.classify(numberString))));
+        ValidatedCard card = factory.create(numberString);
+        if (card == null) {
+            assertThat(message, matcher.getCardType(), is(nullValue()));
+            assertThat(message, matcher.getMatchStrength(), is(equalTo(0)));
+            assertThat(message, matcher.isNumberValid(), is(equalTo(false)));
+        } else {
+            assertThat(message, matcher.getCardType(), is(sameInstance(card.getType())));
+            assertThat(message, matcher.getMatchStrength(),
+                    is(equalTo(card.getType().getMatchStrength(card.getNumber()))));
+            assertThat(message, matcher.isLengthValid(), is(equalTo(card.getType().lengthMatches(card.getNumber()))));
+            assertThat(message, matcher.isNumberValid(), is(equalTo(card.isNumberValid())));
+        }
+    }
+
+    @Test
+    public void results_match_factory_while_typing_and_deleting() throws IOException {
+        ValidatedCardFactory factory = ValidatedCardFactory.withDefaultCardTypes();
+        IncrementalCardMatcher matcher = new IncrementalCardMatcher(factory);
+        Random random = new Random(17);
+        for (int i = 0; i < 2000; i++) {
+            matcher.clear();
+            assertMatchesFactory(factory, matcher);
+            for (char c : PREFIXES[random.nextInt(PREFIXES.length)].toCharArray()) {
+                matcher.append(c);
+                assertMatchesFactory(factory, matcher);
+            }
+            int keystrokes = random.nextInt(30);
+            for (int j = 0; j < keystrokes; j++) {
+                if (matcher.getLength() > 0 && random.nextInt(4) == 0) {
+                    matcher.deleteLast();
+                } else {
+                    matcher.append((char) ('0' + random.nextInt(10)));
+                }
+                assertMatchesFactory(factory, matcher);
+            }
+        }
+    }
+
+    @Test
+    public void long_card_numbers_match_factory() throws IOException {
+        ValidatedCardFactory factory = ValidatedCardFactory.withDefaultCardTypes();
+        IncrementalCardMatcher matcher = new IncrementalCardMatcher(factory);
+        Random random = new Random(71);
+        matcher.append('4');
+        for (int i = 0; i < 100; i++) {
+            matcher.append((char) ('0' + random.nextInt(10)));
+            assertMatchesFactory(factory, matcher);
+        }
+        for (int i = 0; i < 100; i++) {
+            matcher.deleteLast();
+            assertMatchesFactory(factory, matcher);
+        }
+    }
+
+    @Test
+    public void valid_card_number_is_recognised() throws IOException {
+        IncrementalCardMatcher matcher = new IncrementalCardMatcher(ValidatedCardFactory.withDefaultCardTypes());
+        for (char c : "4111111111111111".toCharArray()) {
+            matcher.append(c);
+        }
+        assertThat(matcher.getCardType().getName(), is(equalTo("Visa")));
+        assertThat(matcher.isNumberValid(), is(equalTo(true)));
+        matcher.deleteLast();
+        matcher.append('2');
+        assertThat(matcher.isLengthValid(), is(equalTo(true)));
+        assertThat(matcher.passesLuhnCheck(), is(equalTo(false)));
+        assertThat(matcher.isNumberValid(), is(equalTo(false)));
+    }
+
+    private static List<CardType> possibleTypes(IncrementalCardMatcher matcher, String numberString) {
+        matcher.clear();
+        for (char c : numberString.toCharArray()) {
+            matcher.append(c);
+        }
+        return matcher.getPossibleCardTypes();
+    }
+
+    @Test
+    public void possible_card_types_narrow_as_digits_are_added() {
+        IncrementalCardMatcher matcher = new IncrementalCardMatcher(
+                new ValidatedCardFactory(TYPE_A, TYPE_B, TYPE_C, TYPE_D));
+        assertThat(possibleTypes(matcher, ""), is(equalTo(Arrays.asList(TYPE_A, TYPE_B, TYPE_C, TYPE_D))));
+        assertThat(possibleTypes(matcher, "5"), is(equalTo(Arrays.asList(TYPE_B, TYPE_C))));
+        assertThat(possibleTypes(matcher, "50"), is(equalTo(Arrays.asList(TYPE_C))));
+        assertThat(possibleTypes(matcher, "5018"), is(equalTo(Arrays.asList(TYPE_C))));
+        assertThat(possibleTypes(matcher, "501899"), is(equalTo(Arrays.asList(TYPE_C))));
+        assertThat(possibleTypes(matcher, "52"), is(equalTo(Arrays.asList(TYPE_B))));
+        assertThat(possibleTypes(matcher, "62212"), is(equalTo(Arrays.asList(TYPE_D))));
+        assertThat(possibleTypes(matcher, "6221269"), is(equalTo(Arrays.asList(TYPE_D))));
+        assertThat(possibleTypes(matcher, "622125"), is(equalTo(Collections.<CardType>emptyList())));
+        assertThat(possibleTypes(matcher, "9"), is(equalTo(Collections.<CardType>emptyList())));
+    }
+
+    @Test
+    public void possible_card_types_are_restored_by_deletes() {
+        IncrementalCardMatcher matcher = new IncrementalCardMatcher(
+                new ValidatedCardFactory(TYPE_A, TYPE_B, TYPE_C, TYPE_D));
+        possibleTypes(matcher, "5019");
+        assertThat(matcher.getPossibleCardTypes(), is(equalTo(Collections.<CardType>emptyList())));
+        matcher.deleteLast();
+        assertThat(matcher.getPossibleCardTypes(), is(equalTo(Arrays.asList(TYPE_C))));
+        matcher.deleteLast();
+        matcher.deleteLast();
+        assertThat(matcher.getPossibleCardTypes(), is(equalTo(Arrays.asList(TYPE_B, TYPE_C))));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void possible_card_types_are_unmodifiable() {
+        new IncrementalCardMatcher(new ValidatedCardFactory(TYPE_A)).getPossibleCardTypes().clear();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void non_digit_throws_IllegalArgumentException() {
+        new IncrementalCardMatcher(new ValidatedCardFactory(TYPE_A)).append(' ');
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void delete_when_empty_throws_IllegalStateException() {
+        new IncrementalCardMatcher(new ValidatedCardFactory(TYPE_A)).deleteLast();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void null_factory_throws_NullPointerException() {
+        new IncrementalCardMatcher(null);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link LatencyHistogram}.
+ */
+public class LatencyHistogram_Recording {
+
+    @Test
+    public void buckets_cover_all_values_in_order() {
+        assertThat(LatencyHistogram.getLowerBound(0), is(equalTo(0L)));
+        for (int bucket = 0; bucket < LatencyHistogram.getBucket(Long.MAX_VALUE); bucket++) {
+            long lower = LatencyHistogram.getLowerBound(bucket);
+            long upper = LatencyHistogram.getUpperBound(bucket);
+            assertThat(LatencyHistogram.getBucket(lower), is(equalTo(bucket)));
+            assertThat(LatencyHistogram.getBucket(upper), is(equalTo(bucket)));
+            assertThat(LatencyHistogram.getLowerBound(bucket + 1), is(equalTo(upper + 1)));
+            assertTrue("Bucket " + bucket + " too wide", upper - lower <= lower / 4);
+        }
+        assertTrue(LatencyHistogram.getBucket(Long.MAX_VALUE) < LatencyHistogram.BUCKET_COUNT);
+    }
+
+    @Test
+    public void percentiles_are_within_bucket_accuracy() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000);
+        }
+        assertThat(histogram.getCount(), is(equalTo(1000L)));
+        assertThat(histogram.getTotalNanos(), is(equalTo(500500000L)));
+        assertThat(histogram.getMeanNanos(), is(equalTo(500500.0)));
+        assertWithin(histogram.getValueAtPercentile(50), 500000);
+        assertWithin(histogram.getValueAtPercentile(99), 990000);
+        assertWithin(histogram.getValueAtPercentile(100), 1000000);
+        assertWithin(histogram.getValueAtPercentile(0), 1000);
+    }
+
+    private static void assertWithin(long actual, long expected) {
+        assertTrue(actual + " < " + expected, actual >= expected);
+        assertTrue(actual + " > 125% of " + expected, actual <= expected + expected / 4);
+    }
+
+    @Test
+    public void empty_histogram_is_zero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.getCount(), is(equalTo(0L)));
+        assertThat(histogram.getMeanNanos(), is(equalTo(0.0)));
+        assertThat(histogram.getValueAtPercentile(99), is(equalTo(0L)));
+    }
+
+    @Test
+    public void negative_values_are_recorded_as_zero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertThat(histogram.getCount(), is(equalTo(1L)));
+        assertThat(histogram.getTotalNanos(), is(equalTo(0L)));
+        assertThat(histogram.getValueAtPercentile(100), is(equalTo(0L)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void percentile_over_100_throws_IllegalArgumentException() {
+        new LatencyHistogram().getValueAtPercentile(100.5);
+    }
+}
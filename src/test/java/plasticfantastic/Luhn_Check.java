@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link Luhn}.
+ */
+public class Luhn_Check {
+
+    /**
+     * Straightforward implementation, to check the optimised ones against.
+     */
+    private static boolean referenceCheck(String digits) {
+        int sum = 0;
+        boolean doubleValue = false;
+        for (int i = digits.length() - 1; i >= 0; i--) {
+            int value = digits.charAt(i) - '0';
+            if (doubleValue) {
+                value *= 2;
+                if (value > 9) {
+                    value -= 9;
+                }
+            }
+            sum += value;
+            doubleValue = !doubleValue;
+        }
+        return sum % 10 == 0;
+    }
+
+    private static String randomDigits(Random random, int length) {
+        char[] digits = new char[length];
+        for (int i = 0; i < length; i++) {
+            digits[i] = (char) ('0' + random.nextInt(10));
+        }
+        return new String(digits);
+    }
+
+    @Test
+    public void results_match_reference_implementation() throws Exception {
+        Random random = new Random(8);
+        for (int i = 0; i < 20000; i++) {
+            String digits = randomDigits(random, random.nextInt(41));
+            boolean expected = referenceCheck(digits);
+            assertThat(digits, Luhn.passesCheck(digits), is(equalTo(expected)));
+            assertThat(digits, Luhn.passesCheck(new StringBuilder(digits)), is(equalTo(expected)));
+            assertThat(digits, Luhn.passesCheck(digits.getBytes("US-ASCII")), is(equalTo(expected)));
+        }
+    }
+
+    @Test
+    public void byte_range_within_larger_array_is_checked() throws Exception {
+        byte[] bytes = "xx4741908014352850yy".getBytes("US-ASCII");
+        assertThat(Luhn.passesCheck(bytes, 2, 16), is(equalTo(true)));
+        assertThat(Luhn.passesCheck(bytes, 3, 15), is(equalTo(false)));
+    }
+
+    @Test
+    public void every_check_digit_is_checked() {
+        for (int checkDigit = 0; checkDigit <= 9; checkDigit++) {
+            String digits = "7992739871" + checkDigit;
+            assertThat(digits, Luhn.passesCheck(digits), is(equalTo(checkDigit == 3)));
+        }
+    }
+
+    @Test
+    public void every_non_digit_byte_is_rejected_in_each_position() {
+        for (int length : new int[]{1, 8, 19}) {
+            for (int position = 0; position < length; position++) {
+                for (int b = -128; b < 128; b++) {
+                    if (b >= '0' && b <= '9') {
+                        continue;
+                    }
+                    byte[] digits = new byte[length];
+                    Arrays.fill(digits, (byte) '5');
+                    digits[position] = (byte) b;
+                    try {
+                        Luhn.passesCheck(digits);
+                        throw new AssertionError("No exception for byte " + b + " at " + position + "/" + length);
+                    } catch (NumberFormatException expected) {
+                        // Expected.
+                    }
+                }
+            }
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void non_ascii_digit_char_throws_NumberFormatException() {
+        Luhn.passesCheck("4741\u0669908014352850");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void whitespace_throws_NumberFormatException() {
+        Luhn.passesCheck("4741 9080 1435 2850");
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void range_past_end_of_array_throws_IndexOutOfBoundsException() {
+        Luhn.passesCheck(new byte[16], 1, 16);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void null_CharSequence_throws_NullPointerException() {
+        Luhn.passesCheck((CharSequence) null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void null_byte_array_throws_NullPointerException() {
+        Luhn.passesCheck((byte[]) null);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link MappedFileClassifier}.
+ */
+public class MappedFileClassifier_Classification {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File writeLines(List<String> lines, boolean trailingLineBreak) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines.size(); i++) {
+            if (i > 0) {
+                sb.append('\n');
+            }
+            sb.append(lines.get(i));
+        }
+        if (trailingLineBreak) {
+            sb.append('\n');
+        }
+        File file = temporaryFolder.newFile();
+        FileUtils.writeStringToFile(file, sb.toString(), "US-ASCII");
+        return file;
+    }
+
+    private static void assertMatchesCreate(ValidatedCardFactory factory, List<String> lines,
+                                            MappedFileClassifier.Result result) {
+        assertThat(result.getLineCount(), is(equalTo(lines.size())));
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            ValidatedCard card;
+            boolean malformed = false;
+            try {
+                card = factory.create(line);
+            } catch (NumberFormatException e) {
+                card = null;
+                malformed = true;
+            }
+            String message = "Line " + i + ": " + line;
+            assertThat(message, result.isMalformed(i), is(equalTo(malformed)));
+            assertThat(message, result.getType(i), is(sameInstance(card != null ? card.getType() : null)));
+            assertThat(message, result.isValid(i), is(equalTo(card != null && card.isNumberValid())));
+        }
+    }
+
+    @Test
+    public void lines_are_classified_like_create() throws IOException, InterruptedException {
+        ValidatedCardFactory factory = ValidatedCardFactory.withDefaultCardTypes();
+        List<String> lines = new ArrayList<String>();
+        lines.add("4111 1111 1111 1111");
+        lines.add("4111111111111112");
+        lines.add("340000000000009\r");
+        lines.add("");
+        lines.add("   ");
+        lines.add("6221-2600-0000-0000");
+        lines.add("9999");
+        lines.add("5555555555554444");
+
+        MappedFileClassifier.Result result = new MappedFileClassifier(factory).classify(writeLines(lines, false));
+
+        assertMatchesCreate(factory, lines, result);
+        assertThat(result.isValid(0), is(equalTo(true)));
+        assertThat(result.isValid(2), is(equalTo(true)));
+        assertThat(result.getTypeIndex(6), is(equalTo(-1)));
+    }
+
+    @Test
+    public void trailing_line_break_does_not_add_a_line() throws IOException, InterruptedException {
+        ValidatedCardFactory factory = ValidatedCardFactory.withDefaultCardTypes();
+        List<String> lines = new ArrayList<String>();
+        lines.add("4111111111111111");
+        lines.add("");
+        assertThat(new MappedFileClassifier(factory).classify(writeLines(lines, true)).getLineCount(),
+                is(equalTo(2)));
+    }
+
+    @Test
+    public void empty_file_has_no_lines() throws IOException, InterruptedException {
+        ValidatedCardFactory factory = ValidatedCardFactory.withDefaultCardTypes();
+        assertThat(new MappedFileClassifier(factory).classify(temporaryFolder.newFile()).getLineCount(),
+                is(equalTo(0)));
+    }
+
+    @Test
+    public void large_file_is_classified_in_order() throws IOException, InterruptedException {
+        ValidatedCardFactory factory = ValidatedCardFactory.withDefaultCardTypes();
+        Random random = new Random(42);
+        List<String> lines = new ArrayList<String>();
+        while (lines.size() < 300000) {
+            StringBuilder sb = new StringBuilder();
+            int length = 12 + random.nextInt(8);
+            for (int i = 0; i < length; i++) {
+                sb.append((char) ('0' + random.nextInt(10)));
+            }
+            lines.add(sb.toString());
+        }
+
+        MappedFileClassifier.Result result = new MappedFileClassifier(factory).classify(writeLines(lines, true));
+
+        assertMatchesCreate(factory, lines, result);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void null_factory_throws_NullPointerException() {
+        new MappedFileClassifier(null);
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import com.google.gson.JsonParseException;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link ValidatedCardFactoryHolder}.
+ */
+public class ValidatedCardFactoryHolder_Reloading {
+
+    private static final String JSON_V1 = "[{\"name\":\"Type 1\",\"numberPatterns\":[\"1\"],\"validLengths\":[10]}]";
+    private static final String JSON_V2 = "[{\"name\":\"Type 2\",\"numberPatterns\":[\"1\"],\"validLengths\":[10]}]";
+    private static final String JSON_INVALID = "[{\"name\":\"Type 3\",\"numberPatterns\":[],\"validLengths\":[10]}]";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static String getTypeName(ValidatedCardFactoryHolder holder) {
+        return holder.get().create("1234567890").getType().getName();
+    }
+
+    private static void write(File file, String json, long lastModified) throws IOException {
+        FileUtils.writeStringToFile(file, json, "UTF-8");
+        // Don't rely on the file system's timestamp resolution.
+        file.setLastModified(lastModified);
+    }
+
+    @Test
+    public void pushed_json_replaces_factory() {
+        ValidatedCardFactoryHolder holder = new ValidatedCardFactoryHolder(ValidatedCardFactory.fromJsonString(JSON_V1));
+        ValidatedCardFactory updated = holder.update(JSON_V2);
+        assertThat(holder.get(), is(sameInstance(updated)));
+        assertThat(getTypeName(holder), is(equalTo("Type 2")));
+    }
+
+    @Test
+    public void invalid_pushed_json_keeps_current_factory() {
+        ValidatedCardFactory initial = ValidatedCardFactory.fromJsonString(JSON_V1);
+        ValidatedCardFactoryHolder holder = new ValidatedCardFactoryHolder(initial);
+        try {
+            holder.update(JSON_INVALID);
+            fail("Expected JsonParseException");
+        } catch (JsonParseException e) {
+            // Expected.
+        }
+        assertThat(holder.get(), is(sameInstance(initial)));
+    }
+
+    @Test
+    public void modified_file_is_reloaded() throws IOException {
+        File file = temporaryFolder.newFile();
+        write(file, JSON_V1, 100000L);
+        ValidatedCardFactoryHolder holder = new ValidatedCardFactoryHolder(file);
+        assertThat(getTypeName(holder), is(equalTo("Type 1")));
+        assertThat(holder.reloadIfModified(), is(equalTo(false)));
+
+        write(file, JSON_V2, 200000L);
+        assertThat(holder.reloadIfModified(), is(equalTo(true)));
+        assertThat(getTypeName(holder), is(equalTo("Type 2")));
+        assertThat(holder.reloadIfModified(), is(equalTo(false)));
+    }
+
+    @Test
+    public void invalid_file_keeps_current_factory() throws IOException {
+        File file = temporaryFolder.newFile();
+        write(file, JSON_V1, 100000L);
+        ValidatedCardFactoryHolder holder = new ValidatedCardFactoryHolder(file);
+        ValidatedCardFactory initial = holder.get();
+
+        write(file, JSON_INVALID, 200000L);
+        assertThat(holder.reloadIfModified(), is(equalTo(false)));
+        assertThat(holder.get(), is(sameInstance(initial)));
+
+        write(file, "[{", 300000L);
+        assertThat(holder.reloadIfModified(), is(equalTo(false)));
+        assertThat(holder.get(), is(sameInstance(initial)));
+
+        // Fixing the file is picked up.
+        write(file, JSON_V2, 400000L);
+        assertThat(holder.reloadIfModified(), is(equalTo(true)));
+        assertThat(getTypeName(holder), is(equalTo("Type 2")));
+    }
+
+    @Test
+    public void deleted_file_keeps_current_factory() throws IOException {
+        File file = temporaryFolder.newFile();
+        write(file, JSON_V1, 100000L);
+        ValidatedCardFactoryHolder holder = new ValidatedCardFactoryHolder(file);
+        ValidatedCardFactory initial = holder.get();
+        assertThat(file.delete(), is(equalTo(true)));
+        assertThat(holder.reloadIfModified(), is(equalTo(false)));
+        assertThat(holder.get(), is(sameInstance(initial)));
+    }
+
+    @Test
+    public void watched_file_is_reloaded() throws Exception {
+        File file = temporaryFolder.newFile();
+        write(file, JSON_V1, 100000L);
+        ValidatedCardFactoryHolder holder = new ValidatedCardFactoryHolder(file);
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            holder.watch(executor, 10, TimeUnit.MILLISECONDS);
+            write(file, JSON_V2, 200000L);
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!getTypeName(holder).equals("Type 2") && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(getTypeName(holder), is(equalTo("Type 2")));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void unmodified_file_is_reloaded_when_forced() throws IOException {
+        File file = temporaryFolder.newFile();
+        write(file, JSON_V1, 100000L);
+        ValidatedCardFactoryHolder holder = new ValidatedCardFactoryHolder(file);
+        ValidatedCardFactory initial = holder.get();
+        assertThat(holder.isReloadable(), is(equalTo(true)));
+        assertThat(holder.getLastUpdateTime(), is(equalTo(0L)));
+
+        long beforeReload = System.currentTimeMillis();
+        assertThat(holder.reload(), is(equalTo(true)));
+        assertThat(holder.get() != initial, is(equalTo(true)));
+        assertThat(holder.getLastUpdateTime() >= beforeReload, is(equalTo(true)));
+    }
+
+    @Test
+    public void metrics_are_kept_by_updates() throws IOException {
+        File file = temporaryFolder.newFile();
+        write(file, JSON_V1, 100000L);
+        ValidatedCardFactoryHolder holder = new ValidatedCardFactoryHolder(file);
+        CountingValidationMetrics metrics = new CountingValidationMetrics();
+        holder.update(holder.get().withMetrics(metrics));
+
+        write(file, JSON_V2, 200000L);
+        assertThat(holder.reloadIfModified(), is(equalTo(true)));
+        assertThat(holder.get().getMetrics(), is(sameInstance((ValidationMetrics) metrics)));
+        assertThat(holder.update(JSON_V1).getMetrics(), is(sameInstance((ValidationMetrics) metrics)));
+
+        // A factory passed in is used as it is.
+        holder.update(ValidatedCardFactory.fromJsonString(JSON_V2));
+        assertThat(holder.get().getMetrics() == null, is(equalTo(true)));
+    }
+
+    @Test
+    public void bin_lookup_table_and_cache_are_kept_by_updates() throws IOException {
+        File file = temporaryFolder.newFile();
+        write(file, JSON_V1, 100000L);
+        ValidatedCardFactoryHolder holder = new ValidatedCardFactoryHolder(file);
+        holder.update(holder.get().withBinLookupTable().withBinCache(64));
+
+        write(file, JSON_V2, 200000L);
+        assertThat(holder.reloadIfModified(), is(equalTo(true)));
+        assertThat(getTypeName(holder), is(equalTo("Type 2")));
+        assertThat(holder.get().getBinLookupTable() != null, is(equalTo(true)));
+        assertThat(holder.get().getBinCache().getMaximumSize(), is(equalTo(64)));
+        holder.get().create("1234567890");
+        assertThat(holder.get().getBinCacheHitCount(), is(equalTo(1L)));
+
+        assertThat(holder.reload(), is(equalTo(true)));
+        assertThat(holder.update(JSON_V1).getBinCache().getMaximumSize(), is(equalTo(64)));
+        assertThat(holder.get().getBinLookupTable() != null, is(equalTo(true)));
+    }
+
+    @Test
+    public void factory_does_not_share_callers_list() {
+        List<CardType> cardTypes = new ArrayList<CardType>();
+        cardTypes.add(new CardType.Builder("Type 1").withNumberPatterns("1").withValidLengths(10).build());
+        ValidatedCardFactory factory = new ValidatedCardFactory(cardTypes);
+        cardTypes.clear();
+        assertThat(factory.getCardTypesList().size(), is(equalTo(1)));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void factory_card_types_are_unmodifiable() {
+        ValidatedCardFactory.fromJsonString(JSON_V1).getCardTypesList().clear();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void reload_without_file_throws_IllegalStateException() {
+        new ValidatedCardFactoryHolder(ValidatedCardFactory.fromJsonString(JSON_V1)).reloadIfModified();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void null_factory_throws_NullPointerException() {
+        new ValidatedCardFactoryHolder((ValidatedCardFactory) null);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ValidatedCardFactoryMonitor}.
+ */
+public class ValidatedCardFactoryMonitor_Attributes {
+
+    private static final String JSON = "[{\"name\":\"Type 1\",\"numberPatterns\":[\"1\",\"30-39\"],"
+            + "\"validLengths\":[10]},{\"name\":\"Type 2\",\"numberPatterns\":[\"2\"],\"validLengths\":[10]}]";
+    private static final String JSON_REORDERED = "[{\"name\":\"Type 2\",\"numberPatterns\":[\"2\"],"
+            + "\"validLengths\":[10]},{\"name\":\"Type 1\",\"numberPatterns\":[\"1\"],\"validLengths\":[10]}]";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static ValidatedCardFactory createFactory() {
+        return ValidatedCardFactory.fromJsonString(JSON).withMetrics(new CountingValidationMetrics());
+    }
+
+    private static void classify(ValidatedCardFactory factory) {
+        factory.create("1000000008");
+        factory.create("1000000008");
+        factory.create("3500000000");
+        factory.create("2000000006");
+        factory.create("9000000000");
+        try {
+            factory.create("x");
+        } catch (NumberFormatException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void counts_are_exposed() {
+        ValidatedCardFactory factory = createFactory();
+        ValidatedCardFactoryMonitor monitor = new ValidatedCardFactoryMonitor(factory);
+        classify(factory);
+
+        assertThat(monitor.getCardTypeCount(), is(equalTo(2)));
+        assertThat(monitor.getPatternCount(), is(equalTo(3)));
+        assertThat(monitor.isMetricsEnabled(), is(equalTo(true)));
+        assertThat(monitor.getClassificationCount(), is(equalTo(6L)));
+        Map<String, Long> expected = new LinkedHashMap<String, Long>();
+        expected.put("Type 1", 3L);
+        expected.put("Type 2", 1L);
+        assertThat(monitor.getMatchCountsByType(), is(equalTo(expected)));
+        assertThat(monitor.getUnmatchedCount(), is(equalTo(1L)));
+        assertThat(monitor.getLuhnFailureCount(), is(equalTo(1L)));
+        assertThat(monitor.getLengthMismatchCount(), is(equalTo(0L)));
+        assertThat(monitor.getParseFailureCount(), is(equalTo(1L)));
+        assertTrue(monitor.getClassifyLatencyMeanNanos() > 0);
+        assertTrue(monitor.getClassifyLatency99thPercentileNanos() > 0);
+    }
+
+    @Test
+    public void counts_are_zero_without_metrics() {
+        ValidatedCardFactory factory = ValidatedCardFactory.fromJsonString(JSON);
+        ValidatedCardFactoryMonitor monitor = new ValidatedCardFactoryMonitor(factory);
+        classify(factory);
+
+        assertThat(monitor.isMetricsEnabled(), is(equalTo(false)));
+        assertThat(monitor.getClassificationCount(), is(equalTo(0L)));
+        assertThat(monitor.getMatchCountsByType().get("Type 1"), is(equalTo(0L)));
+        assertThat(monitor.getThroughputLastMinute(), is(equalTo(0.0)));
+    }
+
+    @Test
+    public void counters_are_reset() {
+        ValidatedCardFactory factory = createFactory().withBinCache(16);
+        ValidatedCardFactoryMonitor monitor = new ValidatedCardFactoryMonitor(factory);
+        classify(factory);
+        assertTrue(monitor.getBinCacheHitCount() > 0);
+
+        monitor.resetCounters();
+
+        assertThat(monitor.getClassificationCount(), is(equalTo(0L)));
+        assertThat(monitor.getMatchCountsByType().get("Type 1"), is(equalTo(0L)));
+        assertThat(monitor.getParseFailureCount(), is(equalTo(0L)));
+        assertThat(monitor.getBinCacheHitCount(), is(equalTo(0L)));
+        assertThat(monitor.getBinCacheMissCount(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void bin_cache_hit_ratio_is_exposed() {
+        ValidatedCardFactory factory = createFactory().withBinCache(16);
+        ValidatedCardFactoryMonitor monitor = new ValidatedCardFactoryMonitor(factory);
+        assertThat(monitor.getBinCacheHitRatio(), is(equalTo(0.0)));
+        factory.create("1000000008");
+        factory.create("1000000008");
+        factory.create("1000000008");
+        factory.create("1000000008");
+        assertThat(monitor.getBinCacheHitRatio(), is(equalTo(0.75)));
+    }
+
+    @Test
+    public void throughput_is_measured_over_windows() {
+        ValidatedCardFactory factory = createFactory();
+        long start = System.currentTimeMillis();
+        ValidatedCardFactoryMonitor monitor = new ValidatedCardFactoryMonitor(factory);
+        for (int i = 0; i < 600; i++) {
+            factory.create("1000000008");
+        }
+        // 600 in the first minute, then another 60 in the next minute.
+        assertEquals(10.0, monitor.getThroughput(60000, start + 60000), 0.01);
+        for (int i = 0; i < 60; i++) {
+            factory.create("1000000008");
+        }
+        assertThat(monitor.getThroughput(60000, start + 120000), is(equalTo(1.0)));
+        assertEquals(5.5, monitor.getThroughput(300000, start + 120000), 0.01);
+        // Nothing classified for a long time.
+        assertThat(monitor.getThroughput(900000, start + 3600000), is(equalTo(0.0)));
+    }
+
+    @Test
+    public void definitions_are_reloaded_with_metrics() throws IOException {
+        File file = temporaryFolder.newFile();
+        FileUtils.writeStringToFile(file, JSON, "UTF-8");
+        ValidatedCardFactoryHolder holder = new ValidatedCardFactoryHolder(file);
+        holder.update(holder.get().withMetrics(new CountingValidationMetrics()));
+        ValidatedCardFactoryMonitor monitor = new ValidatedCardFactoryMonitor(holder);
+        holder.get().create("1000000008");
+        long beforeReload = System.currentTimeMillis();
+
+        FileUtils.writeStringToFile(file, JSON_REORDERED, "UTF-8");
+        assertThat(monitor.isReloadable(), is(equalTo(true)));
+        assertThat(monitor.reloadDefinitions(), is(equalTo(true)));
+
+        assertThat(monitor.getPatternCount(), is(equalTo(2)));
+        assertTrue(monitor.getLastReloadTime() >= beforeReload);
+        // Counts are kept, but follow the ordinal, not the name.
+        assertThat(monitor.getMatchCountsByType().get("Type 2"), is(equalTo(1L)));
+        holder.get().create("1000000008");
+        assertThat(monitor.getClassificationCount(), is(equalTo(2L)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void reload_without_file_throws_IllegalStateException() {
+        new ValidatedCardFactoryMonitor(createFactory()).reloadDefinitions();
+    }
+
+    @Test
+    public void attributes_are_readable_through_jmx() throws JMException {
+        ValidatedCardFactory factory = createFactory();
+        ValidatedCardFactoryMonitor monitor = new ValidatedCardFactoryMonitor(factory);
+        classify(factory);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = monitor.register("attributes_are_readable_through_jmx");
+        try {
+            assertThat(name.getDomain(), is(equalTo(ValidatedCardFactoryMonitor.DOMAIN)));
+            assertThat(server.getAttribute(name, "CardTypeCount"), is(equalTo((Object) 2)));
+            assertThat(server.getAttribute(name, "ClassificationCount"), is(equalTo((Object) 6L)));
+            TabularData matchCounts = (TabularData) server.getAttribute(name, "MatchCountsByType");
+            CompositeData type1 = matchCounts.get(new Object[]{"Type 1"});
+            assertThat(type1.get("value"), is(equalTo((Object) 3L)));
+
+            server.invoke(name, "resetCounters", new Object[0], new String[0]);
+
+            assertThat(server.getAttribute(name, "ClassificationCount"), is(equalTo((Object) 0L)));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void null_holder_throws_NullPointerException() {
+        new ValidatedCardFactoryMonitor((ValidatedCardFactoryHolder) null);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link ValidatedCardFactory#createAll(List)} and
+ * {@link ValidatedCardFactory#createAll(List, java.util.concurrent.Executor)}.
+ */
+public class ValidatedCardFactory_Batch {
+
+    private static final CardType TYPE_1 = new CardType.Builder("Type 1").withNumberPatterns("1").withValidLengths(10).build();
+    private static final CardType TYPE_2 = new CardType.Builder("Type 2").withNumberPatterns("2").withValidLengths(10).build();
+
+    private static final ValidatedCardFactory FACTORY = new ValidatedCardFactory(TYPE_1, TYPE_2);
+
+    private static List<String> buildInput(int size) {
+        List<String> input = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            switch (i % 4) {
+                case 0:
+                    input.add("1" + i);
+                    break;
+                case 1:
+                    input.add("2" + i);
+                    break;
+                case 2:
+                    input.add("3" + i);
+                    break;
+                default:
+                    input.add("x" + i);
+            }
+        }
+        return input;
+    }
+
+    private static void assertExpectedResults(List<String> input, BatchResult result) {
+        assertThat(result.size(), is(equalTo(input.size())));
+        for (int i = 0; i < input.size(); i++) {
+            switch (i % 4) {
+                case 0:
+                    assertThat(result.get(i).getType(), is(sameInstance(TYPE_1)));
+                    assertThat(result.get(i).getNumber().getNumberString(), is(equalTo(input.get(i))));
+                    break;
+                case 1:
+                    assertThat(result.get(i).getType(), is(sameInstance(TYPE_2)));
+                    break;
+                case 2:
+                    assertThat(result.get(i), is(nullValue()));
+                    assertThat(result.getError(i), is(nullValue()));
+                    break;
+                default:
+                    assertThat(result.get(i), is(nullValue()));
+                    assertThat(result.getError(i), is(notNullValue()));
+            }
+        }
+    }
+
+    @Test
+    public void small_batch_returns_results_in_input_order() throws InterruptedException {
+        List<String> input = buildInput(100);
+        assertExpectedResults(input, FACTORY.createAll(input));
+    }
+
+    @Test
+    public void large_batch_returns_results_in_input_order() throws InterruptedException {
+        List<String> input = buildInput(100000);
+        assertExpectedResults(input, FACTORY.createAll(input));
+    }
+
+    @Test
+    public void large_batch_with_given_executor_returns_results_in_input_order() throws InterruptedException {
+        List<String> input = buildInput(50000);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            assertExpectedResults(input, FACTORY.createAll(input, executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void invalid_entries_are_counted() throws InterruptedException {
+        BatchResult result = FACTORY.createAll(Arrays.asList("123", "abc", "", "456"));
+        assertThat(result.getErrorCount(), is(equalTo(2)));
+    }
+
+    @Test
+    public void empty_batch_returns_empty_result() throws InterruptedException {
+        assertThat(FACTORY.createAll(new ArrayList<String>()).size(), is(equalTo(0)));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void null_list_throws_NullPointerException() throws InterruptedException {
+        FACTORY.createAll(null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void null_element_in_large_batch_throws_NullPointerException() throws InterruptedException {
+        List<String> input = buildInput(10000);
+        input.set(9000, null);
+        FACTORY.createAll(input);
+    }
+}
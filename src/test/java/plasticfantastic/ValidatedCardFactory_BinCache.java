@@ -0,0 +1,151 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ValidatedCardFactory#withBinCache(int)}.
+ */
+public class ValidatedCardFactory_BinCache {
+
+    private static final CardType TYPE_1 = new CardType.Builder("Type 1").withNumberPatterns("1", "400-499").withValidLengths(10).build();
+    private static final CardType TYPE_2 = new CardType.Builder("Type 2").withNumberPatterns("1000-1999", "4").withValidLengths(12).build();
+    private static final CardType TYPE_3 = new CardType.Builder("Type 3").withNumberPatterns("123456789", "0604").withValidLengths(4).build();
+
+    private static String randomNumberString(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int length = 1 + random.nextInt(19);
+        for (int i = 0; i < length; i++) {
+            // Few distinct digits, so that prefixes repeat.
+            sb.append((char) ('0' + random.nextInt(i < 4 ? 3 : 10)));
+        }
+        return sb.toString();
+    }
+
+    private static CardType getType(ValidatedCard card) {
+        return card != null ? card.getType() : null;
+    }
+
+    private static void assertSameResults(ValidatedCardFactory factory, ValidatedCardFactory cached, Random random) {
+        for (int i = 0; i < 20000; i++) {
+            String numberString = randomNumberString(random);
+            assertThat("Failed for card number: " + numberString, getType(cached.create(numberString)),
+                    is(sameInstance(getType(factory.create(numberString)))));
+        }
+    }
+
+    @Test
+    public void results_match_uncached_factory() throws IOException {
+        ValidatedCardFactory factory = ValidatedCardFactory.withDefaultCardTypes();
+        assertSameResults(factory, factory.withBinCache(1000), new Random(12));
+    }
+
+    @Test
+    public void results_match_uncached_factory_with_long_patterns_and_small_cache() {
+        ValidatedCardFactory factory = new ValidatedCardFactory(TYPE_1, TYPE_2, TYPE_3);
+        assertSameResults(factory, factory.withBinCache(10), new Random(13));
+    }
+
+    @Test
+    public void hits_and_misses_are_counted() {
+        ValidatedCardFactory factory = new ValidatedCardFactory(TYPE_1, TYPE_2).withBinCache(100);
+        factory.create("4000000000");
+        factory.create("4001111111");
+        factory.create("4001222222");
+        factory.create("40012222");
+        assertThat(factory.getBinCacheMissCount(), is(equalTo(3L)));
+        assertThat(factory.getBinCacheHitCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void size_is_bounded() {
+        ValidatedCardFactory factory = new ValidatedCardFactory(TYPE_1, TYPE_2, TYPE_3).withBinCache(64);
+        Random random = new Random(14);
+        for (int i = 0; i < 10000; i++) {
+            factory.create(randomNumberString(random));
+        }
+        assertTrue(factory.getBinCache().size() <= 64);
+    }
+
+    @Test
+    public void evictions_keep_other_entries_findable() {
+        BinCache cache = new BinCache(100, 6);
+        Random random = new Random(15);
+        for (int i = 0; i < 100000; i++) {
+            long key = cache.getKey(Integer.toString(random.nextInt(1000000)));
+            int match = cache.get(key);
+            assertTrue(match == BinCache.MISSING || match == (int) key);
+            cache.put(key, (int) key);
+            assertThat(cache.get(key), is(equalTo((int) key)));
+        }
+        assertTrue(cache.size() <= 100);
+    }
+
+    @Test
+    public void patterns_too_long_for_a_key_bypass_the_cache() {
+        CardType type = new CardType.Builder("Type").withNumberPatterns("123456789012345").withValidLengths(16).build();
+        ValidatedCardFactory factory = new ValidatedCardFactory(type).withBinCache(10);
+        assertThat(factory.create("1234567890123456").getType(), is(sameInstance(type)));
+        assertThat(factory.getBinCacheMissCount() + factory.getBinCacheHitCount(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void concurrent_use_gives_same_results() throws Exception {
+        final ValidatedCardFactory factory = ValidatedCardFactory.withDefaultCardTypes();
+        final ValidatedCardFactory cached = factory.withBinCache(50);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int t = 0; t < 4; t++) {
+                final long seed = t;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        assertSameResults(factory, cached, new Random(seed));
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(cached.getBinCacheHitCount() + cached.getBinCacheMissCount(), is(equalTo(80000L)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zero_size_throws_IllegalArgumentException() {
+        new ValidatedCardFactory(TYPE_1).withBinCache(0);
+    }
+}
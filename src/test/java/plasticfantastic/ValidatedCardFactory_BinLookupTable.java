@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests that {@link ValidatedCardFactory#withBinLookupTable()} gives the same results as the plain factory.
+ */
+public class ValidatedCardFactory_BinLookupTable {
+
+    private static final CardType TYPE_1 = new CardType.Builder("Type 1").withNumberPatterns("1", "400-499").withValidLengths(10).build();
+    private static final CardType TYPE_2 = new CardType.Builder("Type 2").withNumberPatterns("1000-1999", "4").withValidLengths(12).build();
+    private static final CardType TYPE_3 = new CardType.Builder("Type 3").withNumberPatterns("10-19", "0500-0999").withValidLengths(10, 12).build();
+    private static final CardType TYPE_4 = new CardType.Builder("Type 4").withNumberPatterns("123456789", "0604").withValidLengths(4).build();
+    private static final CardType TYPE_5 = new CardType.Builder("Type 5").withNumberPatterns("1234567-1234599").withValidLengths(7, 16).build();
+
+    private static String randomNumberString(Random random, String prefix) {
+        StringBuilder sb = new StringBuilder(prefix);
+        int length = 1 + random.nextInt(19);
+        while (sb.length() < length) {
+            sb.append((char) ('0' + random.nextInt(10)));
+        }
+        return sb.toString();
+    }
+
+    private static void assertSameResults(ValidatedCardFactory factory, Random random, String... prefixes) {
+        ValidatedCardFactory withTable = factory.withBinLookupTable();
+        for (int i = 0; i < 50000; i++) {
+            String numberString = randomNumberString(random, prefixes[random.nextInt(prefixes.length)]);
+            ValidatedCard expected = factory.create(numberString);
+            ValidatedCard actual = withTable.create(numberString);
+            assertThat("Failed for card number: " + numberString,
+                    actual != null ? actual.getType() : null,
+                    is(sameInstance(expected != null ? expected.getType() : null)));
+        }
+    }
+
+    @Test
+    public void results_match_for_default_card_types() throws IOException {
+        assertSameResults(ValidatedCardFactory.withDefaultCardTypes(), new Random(11), "", "6", "62", "622", "5");
+    }
+
+    @Test
+    public void results_match_for_overlapping_types() {
+        ValidatedCardFactory factory = new ValidatedCardFactory(TYPE_1, TYPE_2, null, TYPE_3, TYPE_4, TYPE_5);
+        assertSameResults(factory, new Random(12), "", "1", "12345", "1234567", "4", "06");
+    }
+
+    @Test
+    public void deeper_patterns_fall_back_to_the_trie() {
+        ValidatedCardFactory factory = new ValidatedCardFactory(TYPE_4, TYPE_5).withBinLookupTable();
+        // "123456" is under both "123456789" & "1234567-1234599".
+        assertThat(factory.getBinLookupTable().getFallbackCount(), is(equalTo(1)));
+        assertThat(factory.create("1234567890").getType(), is(sameInstance(TYPE_4)));
+        assertThat(factory.create("1234568000").getType(), is(sameInstance(TYPE_5)));
+        assertThat(factory.create("1234560000"), is(equalTo(null)));
+    }
+
+    @Test
+    public void numbers_shorter_than_a_bin_are_matched() {
+        ValidatedCardFactory factory = new ValidatedCardFactory(TYPE_1, TYPE_4).withBinLookupTable();
+        assertThat(factory.create("0604").getType(), is(sameInstance(TYPE_4)));
+        assertThat(factory.create("1").getType(), is(sameInstance(TYPE_1)));
+        assertThat(factory.create("06"), is(equalTo(null)));
+    }
+
+    @Test
+    public void card_types_are_shared_and_table_is_only_built_once() {
+        ValidatedCardFactory factory = new ValidatedCardFactory(TYPE_1);
+        ValidatedCardFactory withTable = factory.withBinLookupTable();
+        assertThat(withTable.getCardTypesList(), is(sameInstance(factory.getCardTypesList())));
+        assertThat(withTable.withBinLookupTable(), is(sameInstance(withTable)));
+    }
+}
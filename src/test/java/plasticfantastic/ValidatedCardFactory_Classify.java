@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link ValidatedCardFactory#classify(CharSequence)} and its overloads, and for {@link Classification}.
+ */
+public class ValidatedCardFactory_Classify {
+
+    private static void assertMatchesCreate(ValidatedCardFactory factory, String numberString, int classification) {
+        String message = "Failed for card number: " + numberString;
+        ValidatedCard card = factory.create(numberString);
+        if (card == null) {
+            assertThat(message, classification, is(equalTo(Classification.NO_MATCH)));
+            assertThat(message, Classification.isMatch(classification), is(equalTo(false)));
+            assertThat(message, Classification.getTypeOrdinal(classification), is(equalTo(-1)));
+            assertThat(message, Classification.isNumberValid(classification), is(equalTo(false)));
+            return;
+        }
+        CardType type = card.getType();
+        CardNumber cardNumber = card.getNumber();
+        assertThat(message, Classification.isMatch(classification), is(equalTo(true)));
+        assertThat(message, factory.getCardType(Classification.getTypeOrdinal(classification)), is(sameInstance(type)));
+        assertThat(message, Classification.getMatchStrength(classification),
+                is(equalTo(type.getMatchStrength(cardNumber))));
+        assertThat(message, Classification.isLengthValid(classification), is(equalTo(type.lengthMatches(cardNumber))));
+        assertThat(message, Classification.passesLuhnCheck(classification),
+                is(equalTo(cardNumber.passesLuhnCheck())));
+        assertThat(message, Classification.isNumberValid(classification), is(equalTo(card.isNumberValid())));
+    }
+
+    @Test
+    public void classifications_match_create() throws Exception {
+        ValidatedCardFactory factory = ValidatedCardFactory.withDefaultCardTypes();
+        Random random = new Random(15);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = 1 + random.nextInt(19);
+            for (int j = 0; j < length; j++) {
+                sb.append((char) ('0' + random.nextInt(10)));
+            }
+            String numberString = sb.toString();
+            byte[] bytes = ("x" + numberString).getBytes("US-ASCII");
+
+            assertMatchesCreate(factory, numberString, factory.classify(numberString));
+            assertMatchesCreate(factory, numberString, factory.classify(new CardNumber(numberString)));
+            assertMatchesCreate(factory, numberString, factory.classify(bytes, 1, length));
+        }
+    }
+
+    @Test
+    public void whitespace_is_allowed() throws IOException {
+        ValidatedCardFactory factory = ValidatedCardFactory.withDefaultCardTypes();
+        int classification = factory.classify("4741 9080 1435 2850");
+        assertThat(factory.getCardType(Classification.getTypeOrdinal(classification)).getName(), is(equalTo("Visa")));
+        assertThat(Classification.isNumberValid(classification), is(equalTo(true)));
+    }
+
+    @Test
+    public void ordinals_are_positions_in_the_list() {
+        CardType first = new CardType.Builder("First").withNumberPatterns("1").withValidLengths(4).build();
+        CardType second = new CardType.Builder("Second").withNumberPatterns("2").withValidLengths(4).build();
+        ValidatedCardFactory factory = new ValidatedCardFactory(first, null, second);
+        assertThat(factory.getCardTypeCount(), is(equalTo(3)));
+        assertThat(Classification.getTypeOrdinal(factory.classify("2000")), is(equalTo(2)));
+        assertThat(Classification.getTypeOrdinal(factory.withBinCache(10).classify("2000")), is(equalTo(2)));
+        assertThat(factory.getCardType(0), is(sameInstance(first)));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void invalid_number_throws_NumberFormatException() throws IOException {
+        ValidatedCardFactory.withDefaultCardTypes().classify("12a4");
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void null_number_throws_NullPointerException() throws IOException {
+        ValidatedCardFactory.withDefaultCardTypes().classify((CharSequence) null);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link ValidatedCardFactory#withDefaultCardTypes()}: the card types generated at build time should match
+ * the JSON they were generated from, and the factory should be shared.
+ */
+public class ValidatedCardFactory_GeneratedDefaultCardTypes {
+
+    private static ValidatedCardFactory fromJson() throws IOException {
+        // Read as a stream, since the resource may be inside a JAR.
+        InputStream inputStream = ValidatedCardFactory.class.getResourceAsStream("/plasticfantastic_card_types.json");
+        try {
+            return ValidatedCardFactory.fromReader(new InputStreamReader(inputStream, "UTF-8"));
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    @Test
+    public void generated_card_types_match_json() throws IOException {
+        List<CardType> expected = fromJson().getCardTypesList();
+        List<CardType> actual = ValidatedCardFactory.withDefaultCardTypes().getCardTypesList();
+        assertThat(actual.size(), is(equalTo(expected.size())));
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).toString(), is(equalTo(expected.get(i).toString())));
+            assertThat(actual.get(i).getValidLengths(), is(equalTo(expected.get(i).getValidLengths())));
+        }
+    }
+
+    @Test
+    public void generated_card_types_match_like_json() throws IOException {
+        ValidatedCardFactory expected = fromJson();
+        ValidatedCardFactory actual = ValidatedCardFactory.withDefaultCardTypes();
+        for (int prefix = 0; prefix < 1000000; prefix += 7) {
+            String numberString = String.format("%06d0000000000", prefix);
+            assertThat(numberString, actual.classify(numberString), is(equalTo(expected.classify(numberString))));
+        }
+    }
+
+    @Test
+    public void factory_is_shared() throws IOException {
+        assertThat(ValidatedCardFactory.withDefaultCardTypes(),
+                is(sameInstance(ValidatedCardFactory.withDefaultCardTypes())));
+    }
+
+    @Test
+    public void factory_is_shared_between_threads() throws Exception {
+        final ValidatedCardFactory[] factories = new ValidatedCardFactory[8];
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[factories.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        factories[index] = ValidatedCardFactory.withDefaultCardTypes();
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (ValidatedCardFactory factory : factories) {
+            assertThat(factory, is(sameInstance(ValidatedCardFactory.withDefaultCardTypes())));
+        }
+    }
+}
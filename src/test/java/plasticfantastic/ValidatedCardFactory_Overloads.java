@@ -0,0 +1,174 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests that the {@link CharSequence}, {@code char[]}, {@code byte[]} and {@link ByteBuffer} overloads of
+ * {@link ValidatedCardFactory#create(String)} give the same results.
+ */
+public class ValidatedCardFactory_Overloads {
+
+    private static final String[] SAMPLES = {
+            "4741908014352850", "4741908014352851", "4741 9080 1435 2850", "378282246310005", "6221260000000000",
+            "0604", "9", "5", "", " ", "12a4", "-1", "4741\u0669908014352850"
+    };
+
+    private static String describe(ValidatedCardFactory factory, Creator creator, String numberString) {
+        ValidatedCard card;
+        try {
+            card = creator.create(factory, numberString);
+        } catch (NumberFormatException e) {
+            return "error";
+        }
+        if (card == null) {
+            return "none";
+        }
+        return card.getNumber().getNumberString() + " " + card.getType().getName() + " " + card.isNumberValid();
+    }
+
+    private interface Creator {
+        ValidatedCard create(ValidatedCardFactory factory, String numberString);
+    }
+
+    private static final Creator STRING = new Creator() {
+        @Override
+        public ValidatedCard create(ValidatedCardFactory factory, String numberString) {
+            return factory.create(numberString);
+        }
+    };
+
+    private static final Creator CHAR_SEQUENCE = new Creator() {
+        @Override
+        public ValidatedCard create(ValidatedCardFactory factory, String numberString) {
+            return factory.create(new StringBuilder(numberString));
+        }
+    };
+
+    private static final Creator CHAR_ARRAY = new Creator() {
+        @Override
+        public ValidatedCard create(ValidatedCardFactory factory, String numberString) {
+            char[] chars = ("xx" + numberString + "yy").toCharArray();
+            return factory.create(chars, 2, numberString.length());
+        }
+    };
+
+    private static final Creator BYTE_ARRAY = new Creator() {
+        @Override
+        public ValidatedCard create(ValidatedCardFactory factory, String numberString) {
+            byte[] bytes = toBytes("xx" + numberString + "yy");
+            return factory.create(bytes, 2, numberString.length());
+        }
+    };
+
+    private static final Creator HEAP_BYTE_BUFFER = new Creator() {
+        @Override
+        public ValidatedCard create(ValidatedCardFactory factory, String numberString) {
+            ByteBuffer buffer = ByteBuffer.wrap(toBytes("x" + numberString + "y"), 1, numberString.length()).slice();
+            ValidatedCard card = factory.create(buffer);
+            assertThat(buffer.position(), is(equalTo(0)));
+            return card;
+        }
+    };
+
+    private static final Creator DIRECT_BYTE_BUFFER = new Creator() {
+        @Override
+        public ValidatedCard create(ValidatedCardFactory factory, String numberString) {
+            byte[] bytes = toBytes("x" + numberString);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes);
+            buffer.position(1);
+            ValidatedCard card = factory.create(buffer);
+            assertThat(buffer.position(), is(equalTo(1)));
+            return card;
+        }
+    };
+
+    private static final Creator[] CREATORS = {
+            CHAR_SEQUENCE, CHAR_ARRAY, BYTE_ARRAY, HEAP_BYTE_BUFFER, DIRECT_BYTE_BUFFER
+    };
+
+    /**
+     * Non-ASCII characters become '?', which is still not a digit.
+     */
+    private static byte[] toBytes(String str) {
+        byte[] bytes = new byte[str.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            char c = str.charAt(i);
+            bytes[i] = c < 0x80 ? (byte) c : (byte) '?';
+        }
+        return bytes;
+    }
+
+    private static void assertSameResults(ValidatedCardFactory factory, String numberString) {
+        String expected = describe(factory, STRING, numberString);
+        for (Creator creator : CREATORS) {
+            assertThat("Failed for card number: '" + numberString + "'", describe(factory, creator, numberString),
+                    is(equalTo(expected)));
+        }
+    }
+
+    @Test
+    public void samples_give_same_results() throws IOException {
+        ValidatedCardFactory factory = ValidatedCardFactory.withDefaultCardTypes();
+        for (String sample : SAMPLES) {
+            assertSameResults(factory, sample);
+        }
+    }
+
+    @Test
+    public void random_numbers_give_same_results() throws IOException {
+        ValidatedCardFactory factory = ValidatedCardFactory.withDefaultCardTypes();
+        Random random = new Random(14);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(20);
+            for (int j = 0; j < length; j++) {
+                sb.append((char) ('0' + random.nextInt(10)));
+            }
+            assertSameResults(factory, sb.toString());
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void byte_range_past_end_throws_IndexOutOfBoundsException() throws IOException {
+        ValidatedCardFactory.withDefaultCardTypes().create(new byte[16], 1, 16);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void negative_char_offset_throws_IndexOutOfBoundsException() throws IOException {
+        ValidatedCardFactory.withDefaultCardTypes().create(new char[16], -1, 4);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void null_CharSequence_throws_NullPointerException() throws IOException {
+        ValidatedCardFactory.withDefaultCardTypes().create((CharSequence) null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void null_ByteBuffer_throws_NullPointerException() throws IOException {
+        ValidatedCardFactory.withDefaultCardTypes().create((ByteBuffer) null);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for parsing JSON without Gson on the classpath, using a class loader which only sees the main classes.
+ */
+public class ValidatedCardFactory_ParsingWithoutGson {
+
+    private static final String JSON = "[{\"name\":\"Type 1\",\"numberPatterns\":[\"1\"],\"validLengths\":[10]}]";
+
+    private ClassLoader classLoader;
+    private Method fromJsonString;
+
+    @Before
+    public void setUp() throws Exception {
+        URL mainClasses = ValidatedCardFactory.class.getProtectionDomain().getCodeSource().getLocation();
+        classLoader = new URLClassLoader(new URL[]{mainClasses}, null);
+        fromJsonString = classLoader.loadClass(ValidatedCardFactory.class.getName())
+                .getMethod("fromJsonString", String.class);
+    }
+
+    @Test(expected = ClassNotFoundException.class)
+    public void gson_is_not_visible() throws ClassNotFoundException {
+        classLoader.loadClass("com.google.gson.JsonParseException");
+    }
+
+    @Test
+    public void valid_json_is_parsed() throws Exception {
+        assertThat(fromJsonString.invoke(null, JSON), is(notNullValue()));
+    }
+
+    @Test
+    public void malformed_json_throws_IllegalArgumentException() throws Exception {
+        assertThrowsIllegalArgumentException("[{\"name\":");
+    }
+
+    @Test
+    public void invalid_card_type_throws_IllegalArgumentException() throws Exception {
+        assertThrowsIllegalArgumentException("[{\"name\":\"Type 1\",\"numberPatterns\":[\"1\"]}]");
+    }
+
+    private void assertThrowsIllegalArgumentException(String json) throws IllegalAccessException {
+        try {
+            fromJsonString.invoke(null, json);
+            fail("Expected an IllegalArgumentException");
+        } catch (InvocationTargetException e) {
+            assertThat(e.getCause().getClass().getName(), is(equalTo(IllegalArgumentException.class.getName())));
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015 Chris Vaughan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package plasticfantastic;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests that the prefix index used by {@link ValidatedCardFactory#create(CardNumber)} picks the same card type as
+ * checking {@link CardType#getMatchStrength(CardNumber)} for every card type.
+ */
+public class ValidatedCardFactory_PrefixIndex {
+
+    private static final CardType TYPE_1 = new CardType.Builder("Type 1").withNumberPatterns("1", "400-499").withValidLengths(10).build();
+    private static final CardType TYPE_2 = new CardType.Builder("Type 2").withNumberPatterns("1000-1999", "4").withValidLengths(12).build();
+    private static final CardType TYPE_3 = new CardType.Builder("Type 3").withNumberPatterns("10-19", "0500-0999").withValidLengths(10, 12).build();
+    private static final CardType TYPE_4 = new CardType.Builder("Type 4").withNumberPatterns("123456789", "0604").withValidLengths(4).build();
+
+    private static CardType findByScanning(List<CardType> cardTypes, CardNumber cardNumber) {
+        CardType result = null;
+        int resultStrength = 0;
+        for (CardType cardType : cardTypes) {
+            if (cardType != null) {
+                int strength = cardType.getMatchStrength(cardNumber);
+                if (strength > resultStrength) {
+                    result = cardType;
+                    resultStrength = strength;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String randomNumberString(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int length = 1 + random.nextInt(19);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('0' + random.nextInt(10)));
+        }
+        return sb.toString();
+    }
+
+    private static void assertMatchesScan(ValidatedCardFactory factory, String numberString) {
+        CardNumber cardNumber = new CardNumber(numberString);
+        CardType expected = findByScanning(factory.getCardTypesList(), cardNumber);
+        ValidatedCard card = factory.create(cardNumber);
+        assertThat("Failed for card number: " + numberString,
+                card != null ? card.getType() : null, is(sameInstance(expected)));
+    }
+
+    @Test
+    public void random_numbers_match_scan_for_overlapping_types() {
+        ValidatedCardFactory factory = new ValidatedCardFactory(TYPE_1, TYPE_2, null, TYPE_3, TYPE_4);
+        Random random = new Random(1234);
+        for (int i = 0; i < 20000; i++) {
+            assertMatchesScan(factory, randomNumberString(random));
+        }
+    }
+
+    @Test
+    public void random_numbers_match_scan_for_default_types() throws IOException {
+        ValidatedCardFactory factory = ValidatedCardFactory.withDefaultCardTypes();
+        Random random = new Random(5678);
+        for (int i = 0; i < 20000; i++) {
+            assertMatchesScan(factory, randomNumberString(random));
+        }
+    }
+
+    @Test
+    public void range_boundaries_match_scan() throws IOException {
+        ValidatedCardFactory factory = ValidatedCardFactory.withDefaultCardTypes();
+        String[] numbers = {"622125", "622126", "622925", "622926", "6221", "62212", "6221250000000000",
+                "6221260000000000", "6229250000000000", "6229260000000000", "3000", "3059", "3060", "0604",
+                "0603999999999"};
+        for (String number : numbers) {
+            assertMatchesScan(factory, number);
+        }
+    }
+
+    @Test
+    public void equal_strength_matches_use_first_card_type() {
+        CardType first = new CardType.Builder("First").withNumberPatterns("50-59").withValidLengths(16).build();
+        CardType second = new CardType.Builder("Second").withNumberPatterns("55").withValidLengths(16).build();
+        ValidatedCardFactory factory = new ValidatedCardFactory(first, second);
+        assertThat(factory.create("5500 0000 0000 0000").getType(), is(sameInstance(first)));
+        assertThat(new ValidatedCardFactory(second, first).create("5500 0000 0000 0000").getType(),
+                is(sameInstance(second)));
+    }
+
+    @Test
+    public void valid_length_breaks_ties_between_equal_length_patterns() {
+        CardType first = new CardType.Builder("First").withNumberPatterns("34").withValidLengths(16).build();
+        CardType second = new CardType.Builder("Second").withNumberPatterns("30-39").withValidLengths(15).build();
+        ValidatedCardFactory factory = new ValidatedCardFactory(first, second);
+        assertThat(factory.create("3400 0000 0000 000").getType().getName(), is(equalTo("Second")));
+        assertThat(factory.create("3400 0000 0000 0000").getType().getName(), is(equalTo("First")));
+    }
+
+    @Test
+    public void validity_matches_ValidatedCard_constructor() throws IOException {
+        ValidatedCardFactory factory = ValidatedCardFactory.withDefaultCardTypes();
+        Random random = new Random(9012);
+        for (int i = 0; i < 20000; i++) {
+            CardNumber cardNumber = new CardNumber(randomNumberString(random));
+            ValidatedCard card = factory.create(cardNumber);
+            if (card != null) {
+                assertThat("Failed for card number: " + cardNumber, card.isNumberValid(),
+                        is(equalTo(new ValidatedCard(cardNumber, card.getType()).isNumberValid())));
+            }
+        }
+    }
+}
@@ -51,4 +51,34 @@ public class RangePattern_Constructor {
     public void pass_min_equal_to_max_is_allowed() {
         new RangePattern("10", "10");
     }
+
+    @Test
+    public void pass_maximum_length_is_allowed() {
+        new RangePattern("100000000000000000", "999999999999999999");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pass_more_than_maximum_length_throws_IllegalArgumentException() {
+        new RangePattern("1000000000000000000", "9999999999999999999");
+    }
+
+    @Test
+    public void parsed_range_is_allowed() {
+        new RangePattern(3, 7, 999);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parsed_range_too_long_for_length_throws_IllegalArgumentException() {
+        new RangePattern(3, 100, 1000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parsed_range_min_greater_than_max_throws_IllegalArgumentException() {
+        new RangePattern(2, 11, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parsed_range_more_than_maximum_length_throws_IllegalArgumentException() {
+        new RangePattern(RangePattern.MAX_LENGTH + 1, 0, 1);
+    }
 }
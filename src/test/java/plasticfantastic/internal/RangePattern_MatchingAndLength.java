@@ -50,6 +50,13 @@ public class RangePattern_MatchingAndLength {
                 {"010", "020", "0015", false, 3},
                 {"1234", "1234", "1234", true, 4},
                 {"123456", "123456", "123456", true, 6},
+                {"622126", "622925", "6221260000000000", true, 6},
+                {"622126", "622925", "6229250000000000", true, 6},
+                {"622126", "622925", "6221250000000000", false, 6},
+                {"622126", "622925", "6229260000000000", false, 6},
+                {"000000000000000001", "999999999999999998", "9999999999999999980", true, 18},
+                {"000000000000000001", "999999999999999998", "9999999999999999990", false, 18},
+                {"000000000000000001", "999999999999999998", "0000000000000000000", false, 18},
         });
     }
 